@@ -0,0 +1,79 @@
+package net.ossindex.version.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.InvalidRangeException;
+import net.ossindex.version.impl.ExtendedSemanticVersion;
+import net.ossindex.version.impl.SemanticVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Version comparison, which is at the bottom of every contains and intersects
+ * call. Each invocation compares a different pair of versions from the corpus.
+ *
+ * @author Ken Duck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompareBenchmark
+{
+  private IVersion[] semantic;
+
+  private IVersion[] extended;
+
+  private int index;
+
+  @Setup
+  public void setup() throws InvalidRangeException {
+    List<IVersion> semanticList = new ArrayList<IVersion>();
+    List<IVersion> extendedList = new ArrayList<IVersion>();
+    for (IVersion version : Corpus.loadVersions("versions")) {
+      if (version instanceof ExtendedSemanticVersion) {
+        extendedList.add(version);
+      }
+      else if (version instanceof SemanticVersion) {
+        semanticList.add(version);
+      }
+    }
+    semantic = semanticList.toArray(new IVersion[semanticList.size()]);
+    extended = extendedList.toArray(new IVersion[extendedList.size()]);
+  }
+
+  /**
+   * Walk the pairs (i, i + 1), (i, i + 2) ... so that over time every version is
+   * compared with every other.
+   */
+  private int compare(IVersion[] versions) {
+    int n = versions.length;
+    int i = index % n;
+    int j = (index / n + i + 1) % n;
+    index = (index + 1) % (n * n);
+    return versions[i].compareTo(versions[j]);
+  }
+
+  @Benchmark
+  public int semanticCompareTo() {
+    return compare(semantic);
+  }
+
+  @Benchmark
+  public int extendedCompareTo() {
+    return compare(extended);
+  }
+}
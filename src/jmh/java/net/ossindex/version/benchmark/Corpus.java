@@ -0,0 +1,76 @@
+package net.ossindex.version.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionRange;
+import net.ossindex.version.InvalidRangeException;
+import net.ossindex.version.VersionFactory;
+
+/**
+ * Loads the checked in benchmark inputs from src/jmh/resources/corpus. Each file
+ * has one version string per line. Blank lines and lines starting with '#' are
+ * ignored. Leading and trailing whitespace is significant, since the parser has
+ * to deal with it.
+ *
+ * @author Ken Duck
+ */
+public final class Corpus
+{
+  private Corpus() {
+  }
+
+  public static String[] load(String name) {
+    String path = "/corpus/" + name + ".txt";
+    InputStream in = Corpus.class.getResourceAsStream(path);
+    if (in == null) {
+      throw new IllegalArgumentException("No such corpus: " + path);
+    }
+    List<String> lines = new ArrayList<String>();
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.trim().isEmpty() || line.startsWith("#")) {
+            continue;
+          }
+          lines.add(line);
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (IOException e) {
+      throw new IllegalStateException("Cannot read corpus " + path, e);
+    }
+    return lines.toArray(new String[lines.size()]);
+  }
+
+  public static IVersion[] loadVersions(String name) throws InvalidRangeException {
+    String[] lines = load(name);
+    IVersion[] versions = new IVersion[lines.length];
+    VersionFactory factory = VersionFactory.getVersionFactory();
+    for (int i = 0; i < lines.length; i++) {
+      versions[i] = factory.getVersion(lines[i]);
+    }
+    return versions;
+  }
+
+  public static IVersionRange[] loadRanges(String name) throws InvalidRangeException {
+    String[] lines = load(name);
+    IVersionRange[] ranges = new IVersionRange[lines.length];
+    VersionFactory factory = VersionFactory.getVersionFactory();
+    for (int i = 0; i < lines.length; i++) {
+      ranges[i] = factory.getRange(lines[i]);
+    }
+    return ranges;
+  }
+}
@@ -0,0 +1,43 @@
+package net.ossindex.version.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.ossindex.version.IVersionRange;
+import net.ossindex.version.InvalidRangeException;
+import net.ossindex.version.VersionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fetching the shared factories from many threads at once, as request handlers
+ * typically do. Any locking in the getters shows up here as contention.
+ *
+ * @author Ken Duck
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class FactoryBenchmark
+{
+  @Benchmark
+  public VersionFactory getVersionFactory() {
+    return VersionFactory.getVersionFactory();
+  }
+
+  /**
+   * Fetch the factory for every parse, with a string the fast path handles.
+   */
+  @Benchmark
+  public IVersionRange getFactoryAndParse() throws InvalidRangeException {
+    return VersionFactory.getVersionFactory().getRange(">=1.2.3");
+  }
+}
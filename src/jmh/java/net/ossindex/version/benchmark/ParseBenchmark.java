@@ -0,0 +1,137 @@
+package net.ossindex.version.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionRange;
+import net.ossindex.version.InvalidRangeException;
+import net.ossindex.version.RangeCodec;
+import net.ossindex.version.VersionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parse throughput for each shape of input the grammar supports. Every invocation
+ * parses the next string in the corpus, so the score is the average over the
+ * whole corpus.
+ *
+ * The non-caching factory is used, we want to measure the parser and not the
+ * cache.
+ *
+ * @author Ken Duck
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Benchmark
+  public IVersionRange getRange(RangeInputs ranges) throws InvalidRangeException {
+    return factory.getRange(ranges.next());
+  }
+
+  /**
+   * getVersion is only interesting for plain versions, so it is not run against
+   * every corpus.
+   */
+  @Benchmark
+  public IVersion getVersion(VersionInputs versions) throws InvalidRangeException {
+    return factory.getVersion(versions.next());
+  }
+
+  @State(Scope.Thread)
+  public static class RangeInputs
+  {
+    @Param({"versions", "maven", "union", "caret", "pessimistic", "broken", "named"})
+    public String corpus;
+
+    private String[] inputs;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+      inputs = Corpus.load(corpus);
+      index = 0;
+    }
+
+    String next() {
+      String input = inputs[index];
+      index = (index + 1) % inputs.length;
+      return input;
+    }
+  }
+
+  /**
+   * Load the same ranges from their binary form instead of parsing them, for
+   * comparison with getRange.
+   */
+  @Benchmark
+  public IVersionRange decode(EncodedInputs ranges) throws IOException {
+    return RangeCodec.decode(ranges.next());
+  }
+
+  @State(Scope.Thread)
+  public static class EncodedInputs
+  {
+    @Param({"versions", "maven", "union", "caret", "pessimistic", "broken", "named"})
+    public String corpus;
+
+    private ByteBuffer[] inputs;
+
+    private int index;
+
+    @Setup
+    public void setup() throws InvalidRangeException {
+      String[] strings = Corpus.load(corpus);
+      inputs = new ByteBuffer[strings.length];
+      for (int i = 0; i < strings.length; i++) {
+        inputs[i] = RangeCodec.encode(factory.getRange(strings[i]));
+      }
+      index = 0;
+    }
+
+    ByteBuffer next() {
+      ByteBuffer input = inputs[index];
+      index = (index + 1) % inputs.length;
+      // Each decode moves the position, start from the beginning every time
+      input.rewind();
+      return input;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class VersionInputs
+  {
+    private String[] inputs;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+      inputs = Corpus.load("versions");
+      index = 0;
+    }
+
+    String next() {
+      String input = inputs[index];
+      index = (index + 1) % inputs.length;
+      return input;
+    }
+  }
+}
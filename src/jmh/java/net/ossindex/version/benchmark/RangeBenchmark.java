@@ -0,0 +1,156 @@
+package net.ossindex.version.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionRange;
+import net.ossindex.version.InvalidRangeException;
+import net.ossindex.version.impl.NormalizedRange;
+import net.ossindex.version.impl.OrRange;
+import net.ossindex.version.impl.VersionRange;
+import net.ossindex.version.impl.VersionSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Range queries against already parsed ranges. Each invocation tests the next
+ * (range, probe) pair, cycling through the corpus.
+ *
+ * @author Ken Duck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeBenchmark
+{
+  private IVersion[] versions;
+
+  private VersionRange[] simpleRanges;
+
+  private OrRange[] orRanges;
+
+  private VersionSet[] sets;
+
+  private IVersionRange[] mavenRanges;
+
+  /**
+   * The same ranges as orRanges and mavenRanges, normalized
+   */
+  private NormalizedRange[] normalizedOrRanges;
+
+  private NormalizedRange[] normalizedMavenRanges;
+
+  private int rangeIndex;
+
+  private int probeIndex;
+
+  @Setup
+  public void setup() throws InvalidRangeException {
+    versions = Corpus.loadVersions("versions");
+    simpleRanges = select(Corpus.loadRanges("simple"), VersionRange.class);
+    orRanges = select(Corpus.loadRanges("union"), OrRange.class);
+    sets = select(Corpus.loadRanges("versions"), VersionSet.class);
+    mavenRanges = Corpus.loadRanges("maven");
+    normalizedOrRanges = normalize(orRanges);
+    normalizedMavenRanges = normalize(mavenRanges);
+  }
+
+  private static NormalizedRange[] normalize(IVersionRange[] ranges) {
+    NormalizedRange[] results = new NormalizedRange[ranges.length];
+    for (int i = 0; i < ranges.length; i++) {
+      results[i] = NormalizedRange.of(ranges[i]);
+    }
+    return results;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T[] select(IVersionRange[] ranges, Class<T> type) {
+    List<T> results = new ArrayList<T>();
+    for (IVersionRange range : ranges) {
+      if (type.isInstance(range)) {
+        results.add(type.cast(range));
+      }
+    }
+    return results.toArray((T[]) java.lang.reflect.Array.newInstance(type, results.size()));
+  }
+
+  /**
+   * Advance to the next pair. Probes move fastest, so every range is tested
+   * against every probe.
+   */
+  private void advance(int probes) {
+    probeIndex++;
+    if (probeIndex >= probes) {
+      probeIndex = 0;
+      rangeIndex++;
+    }
+  }
+
+  private <T> T nextRange(T[] ranges) {
+    if (rangeIndex >= ranges.length) {
+      rangeIndex = 0;
+    }
+    return ranges[rangeIndex];
+  }
+
+  @Benchmark
+  public boolean versionRangeContains() {
+    VersionRange range = nextRange(simpleRanges);
+    IVersion version = versions[probeIndex];
+    advance(versions.length);
+    return range.contains(version);
+  }
+
+  @Benchmark
+  public boolean orRangeContains() {
+    OrRange range = nextRange(orRanges);
+    IVersion version = versions[probeIndex];
+    advance(versions.length);
+    return range.contains(version);
+  }
+
+  @Benchmark
+  public boolean orRangeIntersects() {
+    OrRange range = nextRange(orRanges);
+    IVersionRange other = mavenRanges[probeIndex];
+    advance(mavenRanges.length);
+    return range.intersects(other);
+  }
+
+  @Benchmark
+  public boolean normalizedContains() {
+    NormalizedRange range = nextRange(normalizedOrRanges);
+    IVersion version = versions[probeIndex];
+    advance(versions.length);
+    return range.contains(version);
+  }
+
+  @Benchmark
+  public boolean normalizedIntersects() {
+    NormalizedRange range = nextRange(normalizedOrRanges);
+    IVersionRange other = normalizedMavenRanges[probeIndex];
+    advance(normalizedMavenRanges.length);
+    return range.intersects(other);
+  }
+
+  @Benchmark
+  public boolean versionSetIntersects() {
+    VersionSet set = nextRange(sets);
+    IVersionRange other = orRanges[probeIndex];
+    advance(orRanges.length);
+    return set.intersects(other);
+  }
+}
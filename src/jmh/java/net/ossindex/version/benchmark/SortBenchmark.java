@@ -0,0 +1,109 @@
+package net.ossindex.version.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.InvalidRangeException;
+import net.ossindex.version.VersionFactory;
+import net.ossindex.version.impl.NamedVersion;
+import net.ossindex.version.impl.SemanticVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sort a large list of versions. Most are releases, with a sprinkling of
+ * pre-releases, which is roughly what real package histories look like.
+ *
+ * The mixed corpus adds four digit versions and named versions ("nightly",
+ * branch names, dated snapshots), which are compared with the others by their
+ * strings.
+ *
+ * @author Ken Duck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SortBenchmark
+{
+  @Param({"1000000"})
+  public int size;
+
+  /**
+   * Percentage of four digit and of named versions
+   */
+  @Param({"0", "10"})
+  public int mixed;
+
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  private static final String[] BRANCHES = { "master", "develop", "trunk", "latest", "stable", "head" };
+
+  private IVersion[] versions;
+
+  @Setup
+  public void setup() throws InvalidRangeException {
+    Random random = new Random(42);
+    versions = new IVersion[size];
+    for (int i = 0; i < size; i++) {
+      int major = random.nextInt(20);
+      int minor = random.nextInt(30);
+      int patch = random.nextInt(50);
+      int kind = random.nextInt(100);
+      if (kind < mixed) {
+        versions[i] = named(random);
+        continue;
+      }
+      if (kind < 2 * mixed) {
+        versions[i] = factory.getVersion(major + "." + minor + "." + patch + "." + random.nextInt(10));
+        continue;
+      }
+      switch (random.nextInt(10)) {
+        case 7:
+          versions[i] = new SemanticVersion(major + "." + minor + "." + patch + "-beta." + random.nextInt(5));
+          break;
+        case 8:
+          versions[i] = new SemanticVersion(major + "." + minor + "." + patch + "-rc" + random.nextInt(3));
+          break;
+        case 9:
+          versions[i] = new SemanticVersion(major + "." + minor + "." + patch + "-alpha");
+          break;
+        default:
+          versions[i] = new SemanticVersion(major, minor, patch);
+      }
+    }
+  }
+
+  private static IVersion named(Random random) throws InvalidRangeException {
+    switch (random.nextInt(4)) {
+      case 0:
+        return new NamedVersion("nightly-" + (20150000 + random.nextInt(100000)));
+      case 1:
+        return new NamedVersion("snapshot-" + random.nextInt(1000));
+      case 2:
+        return new NamedVersion(BRANCHES[random.nextInt(BRANCHES.length)]);
+      default:
+        return new NamedVersion("release-" + random.nextInt(20) + "-" + random.nextInt(30));
+    }
+  }
+
+  @Benchmark
+  public IVersion[] sort() {
+    IVersion[] copy = versions.clone();
+    Arrays.sort(copy);
+    return copy;
+  }
+}
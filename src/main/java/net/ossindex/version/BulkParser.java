@@ -0,0 +1,178 @@
+package net.ossindex.version;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parse large batches of strings in parallel.
+ *
+ * The batch is split across a fork/join pool. Each worker thread reuses its own
+ * lexer and parser (see VersionParsingEngine), so the work is independent. The
+ * results are returned in the same order as the inputs, and a string which
+ * cannot be parsed is reported in its result rather than failing the whole
+ * batch.
+ *
+ * The parser keeps running totals, so throughput can be monitored across many
+ * batches.
+ *
+ * @author Ken Duck
+ */
+public class BulkParser
+{
+  /**
+   * Below this many strings a task parses them itself rather than splitting.
+   * Each parse is a few microseconds, so this keeps the task overhead small.
+   */
+  private static final int THRESHOLD = 64;
+
+  private final VersionFactory factory;
+
+  private final ForkJoinPool pool;
+
+  private final AtomicLong parsedCount = new AtomicLong();
+
+  private final AtomicLong failedCount = new AtomicLong();
+
+  private final AtomicLong elapsedNanos = new AtomicLong();
+
+  /**
+   * A pool shared by every bulk parser which does not bring its own. The
+   * workers are daemon threads, so they do not keep the JVM alive.
+   */
+  private static class SharedPool
+  {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool();
+  }
+
+  /**
+   * Parse using a pool with one worker per processor.
+   */
+  public BulkParser(VersionFactory factory)
+  {
+    this(factory, SharedPool.INSTANCE);
+  }
+
+  public BulkParser(VersionFactory factory, ForkJoinPool pool)
+  {
+    if (factory == null || pool == null) {
+      throw new IllegalArgumentException("Factory and pool must not be null");
+    }
+    this.factory = factory;
+    this.pool = pool;
+  }
+
+  /**
+   * Parse every string. The strings are parsed exactly as VersionFactory.getRange
+   * would parse them.
+   *
+   * @return One result for each input, in the same order
+   */
+  public List<ParseResult> parseAll(List<String> inputs)
+  {
+    long start = System.nanoTime();
+    // Copied so that any list, a LinkedList included, can be indexed cheaply
+    String[] strings = inputs.toArray(new String[inputs.size()]);
+    ParseResult[] results = new ParseResult[strings.length];
+    if (strings.length > 0) {
+      ParseTask task = new ParseTask(strings, results, 0, results.length);
+      if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+        // Already one of our workers, so run it here rather than waiting on ourselves
+        task.invoke();
+      }
+      else {
+        pool.invoke(task);
+      }
+    }
+    elapsedNanos.addAndGet(System.nanoTime() - start);
+    parsedCount.addAndGet(results.length);
+    return Arrays.asList(results);
+  }
+
+  /**
+   * @return The number of strings parsed so far, including failures
+   */
+  public long getParsedCount()
+  {
+    return parsedCount.get();
+  }
+
+  /**
+   * @return The number of strings which could not be parsed
+   */
+  public long getFailedCount()
+  {
+    return failedCount.get();
+  }
+
+  /**
+   * @return The total wall clock time spent in parseAll
+   */
+  public long getElapsedNanos()
+  {
+    return elapsedNanos.get();
+  }
+
+  /**
+   * @return Strings parsed per second of wall clock time, or 0 if nothing has
+   * been parsed yet
+   */
+  public double getThroughput()
+  {
+    long nanos = elapsedNanos.get();
+    if (nanos == 0) {
+      return 0;
+    }
+    return parsedCount.get() * 1e9 / nanos;
+  }
+
+  private ParseResult parse(int index, String input)
+  {
+    ParseResult result = ParseResult.parse(factory, index, input);
+    if (!result.isSuccess()) {
+      failedCount.incrementAndGet();
+    }
+    return result;
+  }
+
+  /**
+   * Parse a slice of the inputs, splitting it in half until it is small enough.
+   */
+  private class ParseTask
+      extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] inputs;
+
+    private final ParseResult[] results;
+
+    private final int from;
+
+    private final int to;
+
+    ParseTask(String[] inputs, ParseResult[] results, int from, int to)
+    {
+      this.inputs = inputs;
+      this.results = results;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (to - from <= THRESHOLD) {
+        for (int i = from; i < to; i++) {
+          results[i] = parse(i, inputs[i]);
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new ParseTask(inputs, results, from, middle), new ParseTask(inputs, results, middle, to));
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package net.ossindex.version;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Running totals of the strings a VersionFactory could not cleanly parse. These
+ * are always kept, whether or not there is a diagnostic sink, and cost one
+ * atomic increment per bad string.
+ *
+ * Strings served from a range cache were only counted when they were first
+ * parsed.
+ *
+ * @author Ken Duck
+ */
+public class DiagnosticCounts
+{
+  private static final ParseDiagnostic.Fallback[] FALLBACKS = ParseDiagnostic.Fallback.values();
+
+  private final AtomicLongArray counts = new AtomicLongArray(FALLBACKS.length);
+
+  private final AtomicLong syntaxErrors = new AtomicLong();
+
+  void count(ParseDiagnostic.Fallback fallback, int errors)
+  {
+    counts.incrementAndGet(fallback.ordinal());
+    if (errors > 0) {
+      syntaxErrors.addAndGet(errors);
+    }
+  }
+
+  /**
+   * @return The number of strings which were handled with the fallback
+   */
+  public long getCount(ParseDiagnostic.Fallback fallback)
+  {
+    return counts.get(fallback.ordinal());
+  }
+
+  /**
+   * @return The number of strings which did not cleanly parse
+   */
+  public long getTotal()
+  {
+    long total = 0;
+    for (int i = 0; i < FALLBACKS.length; i++) {
+      total += counts.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * @return The number of syntax errors the grammar reported, over all strings
+   */
+  public long getSyntaxErrorCount()
+  {
+    return syntaxErrors.get();
+  }
+
+  public void reset()
+  {
+    for (int i = 0; i < FALLBACKS.length; i++) {
+      counts.set(i, 0);
+    }
+    syntaxErrors.set(0);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for (ParseDiagnostic.Fallback fallback : FALLBACKS) {
+      sb.append(fallback).append('=').append(getCount(fallback)).append(' ');
+    }
+    return sb.append("syntaxErrors=").append(getSyntaxErrorCount()).toString();
+  }
+}
@@ -0,0 +1,16 @@
+package net.ossindex.version;
+
+/**
+ * Receives a diagnostic for every string a VersionFactory could not cleanly
+ * parse.
+ *
+ * Diagnostics are reported on the parsing thread, in the middle of the parse,
+ * so implementations must be thread safe and should be quick. Anything slow
+ * (logging, for example) is best handed off to another thread.
+ *
+ * @author Ken Duck
+ */
+public interface IDiagnosticSink
+{
+  public void report(ParseDiagnostic diagnostic);
+}
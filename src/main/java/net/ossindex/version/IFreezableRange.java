@@ -0,0 +1,27 @@
+package net.ossindex.version;
+
+/**
+ * A range which can be frozen so that it may be shared. All of the ranges
+ * built by VersionFactory are freezable.
+ *
+ * @author Ken Duck
+ */
+public interface IFreezableRange
+    extends IVersionRange
+{
+  /**
+   * Prevent any further modification of the range (and any ranges it contains) so
+   * that it can be safely shared, for example by a caching version factory.
+   *
+   * A frozen range never changes, and reading it never writes to it, so any
+   * number of threads may read it without locking. It must still be published
+   * safely (through a final field, a volatile, a concurrent collection or a
+   * lock) as the caching factories and the interner do.
+   */
+  public abstract void freeze();
+
+  /**
+   * Returns true if the range can no longer be modified.
+   */
+  public abstract boolean isFrozen();
+}
@@ -0,0 +1,61 @@
+package net.ossindex.version;
+
+/**
+ * Receives one measurement for every string a VersionFactory is asked to parse.
+ *
+ * A factory without metrics (the default) does not even read the clock, so
+ * there is no cost unless metrics are wanted. ParseStatistics is a ready made
+ * implementation; anything else (Dropwizard, Micrometer and so on) only needs
+ * this one method.
+ *
+ * Measurements are made on the parsing thread, so implementations must be
+ * thread safe and should be quick.
+ *
+ * @author Ken Duck
+ */
+public interface IParseMetrics
+{
+  /**
+   * How a string was handled. The grammar outcomes are the alternatives of the
+   * grammar's top level "range" rule.
+   */
+  public enum Outcome
+  {
+    /**
+     * Answered from the factory's range cache
+     */
+    CACHE_HIT,
+
+    /**
+     * Parsed by the hand written parser, without the grammar
+     */
+    FAST_PATH,
+
+    MAVEN_RANGES,
+
+    VERSION_SET,
+
+    UNION_RANGE,
+
+    RANGE_TYPE,
+
+    BROKEN_RANGE,
+
+    /**
+     * Could not be parsed, and became a named version
+     */
+    NAMED_FALLBACK,
+
+    /**
+     * Could not be parsed, and was rejected with an InvalidRangeException
+     */
+    REJECTED
+  }
+
+  /**
+   * @param outcome      How the string was handled
+   * @param inputLength  Length of the string
+   * @param elapsedNanos Time taken, including any cache lookup
+   */
+  public void record(Outcome outcome, int inputLength, long elapsedNanos);
+}
@@ -0,0 +1,35 @@
+package net.ossindex.version;
+
+import java.util.Collection;
+
+/**
+ * Parses the versions of a single ecosystem, following that ecosystem's own
+ * rules rather than the heuristic grammar.
+ *
+ * VersionFactory.getSchemeVersion(hint, version) picks the scheme registered for the
+ * hint. Schemes are registered with VersionFactory.Builder.scheme, and a scheme
+ * registered there replaces any built in scheme for the same hint.
+ *
+ * Implementations must be thread safe.
+ *
+ * @author Ken Duck
+ */
+public interface IVersionScheme
+{
+  /**
+   * @return The hints this scheme is chosen for, in lower case (for example
+   * "npm")
+   */
+  public Collection<String> getHints();
+
+  /**
+   * Parse a single version.
+   *
+   * @param version A version string in this scheme's syntax
+   * @return The version, which compares against other versions of the same
+   * scheme using the scheme's own ordering
+   * @throws InvalidRangeException if the string is not a valid version in this
+   *                               scheme
+   */
+  public IVersion parseVersion(String version) throws InvalidRangeException;
+}
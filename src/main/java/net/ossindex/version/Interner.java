@@ -0,0 +1,178 @@
+package net.ossindex.version;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A canonicalizing map with weak values: interning an object returns the first
+ * equivalent object that was interned, as long as that object is still in use
+ * somewhere. Once the canonical object is no longer referenced it may be garbage
+ * collected, and its entry is dropped the next time the interner is used.
+ *
+ * Unlike a WeakHashMap the objects are never used as keys, so the interner does
+ * not keep anything alive.
+ *
+ * Equivalence defaults to equals/hashCode. Subclasses may override equivalent
+ * and hash for a stricter notion of "the same".
+ *
+ * All methods are thread safe, and interning takes no lock of its own: the
+ * entries are held in a ConcurrentHashMap.
+ *
+ * @author Ken Duck
+ */
+public class Interner<T>
+{
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+  /**
+   * Each entry maps to itself, so that the canonical instance can be found from
+   * an equivalent key
+   */
+  private final ConcurrentMap<Ref, Ref> map = new ConcurrentHashMap<Ref, Ref>(INITIAL_CAPACITY);
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Get the canonical instance of the value.
+   *
+   * @return An equivalent object which was interned earlier, or the value itself
+   * if there was none (in which case the value becomes the canonical instance).
+   */
+  public T intern(T value)
+  {
+    expungeStaleEntries();
+    int hash = hash(value);
+    Ref existing = map.get(new Ref(value, hash, null));
+    Ref ref = null;
+    while (true) {
+      if (existing != null) {
+        T canonical = existing.get();
+        if (canonical != null) {
+          hits.incrementAndGet();
+          return canonical;
+        }
+        // Collected since it was found, so it can go now
+        map.remove(existing, existing);
+      }
+      if (ref == null) {
+        ref = new Ref(value, hash, queue);
+      }
+      existing = map.putIfAbsent(ref, ref);
+      if (existing == null) {
+        misses.incrementAndGet();
+        return value;
+      }
+    }
+  }
+
+  /**
+   * @return The number of canonical instances which are still alive
+   */
+  public int size()
+  {
+    expungeStaleEntries();
+    return map.size();
+  }
+
+  public long getHits()
+  {
+    return hits.get();
+  }
+
+  public long getMisses()
+  {
+    return misses.get();
+  }
+
+  public void clear()
+  {
+    map.clear();
+    while (queue.poll() != null) {
+      // Drop any stale references, the whole map is gone
+    }
+  }
+
+  /**
+   * Returns true if the two objects may be used interchangeably.
+   */
+  protected boolean equivalent(T canonical, T value)
+  {
+    return canonical.equals(value);
+  }
+
+  /**
+   * Must be consistent with equivalent.
+   */
+  protected int hash(T value)
+  {
+    return value.hashCode();
+  }
+
+  /**
+   * Remove the entries whose values have been garbage collected.
+   */
+  private void expungeStaleEntries()
+  {
+    Object ref;
+    while ((ref = queue.poll()) != null) {
+      map.remove(ref);
+    }
+  }
+
+  /**
+   * Both key and value of an entry. A cleared reference is only equal to
+   * itself, so it is never found again and stays in the map only until it comes
+   * off the queue.
+   */
+  private final class Ref
+      extends WeakReference<T>
+  {
+    private final int hash;
+
+    Ref(T value, int hash, ReferenceQueue<T> queue)
+    {
+      super(value, queue);
+      this.hash = hash;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(Object o)
+    {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Interner.Ref)) {
+        return false;
+      }
+      Ref other = (Ref) o;
+      if (other.hash != hash) {
+        return false;
+      }
+      T value = get();
+      T canonical = other.get();
+      return value != null && canonical != null && equivalent(canonical, value);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package net.ossindex.version;
+
+/**
+ * Describes a string which did not parse cleanly, and what was done about it.
+ *
+ * Diagnostics are only created when somebody is listening for them (see
+ * VersionFactory.Builder.diagnosticSink and ParseResult.getDiagnostic), so
+ * reporting them costs nothing otherwise.
+ *
+ * @author Ken Duck
+ */
+public class ParseDiagnostic
+{
+  /**
+   * What the factory did with a string it could not cleanly parse.
+   */
+  public enum Fallback
+  {
+    /**
+     * The grammar recovered from syntax errors. The range is returned, with
+     * hasErrors() set.
+     */
+    BROKEN_RANGE,
+
+    /**
+     * Nothing could be made of the string, so it became a named version.
+     */
+    NAMED_VERSION,
+
+    /**
+     * The string was rejected with an InvalidRangeException.
+     */
+    REJECTED
+  }
+
+  private final String input;
+
+  private final String message;
+
+  private final int position;
+
+  private final Fallback fallback;
+
+  public ParseDiagnostic(String input, String message, int position, Fallback fallback)
+  {
+    this.input = input;
+    this.message = message;
+    this.position = position;
+    this.fallback = fallback;
+  }
+
+  public String getInput()
+  {
+    return input;
+  }
+
+  /**
+   * @return The first syntax error, or the reason the string was rejected
+   */
+  public String getMessage()
+  {
+    return message;
+  }
+
+  /**
+   * @return The offset in the input of the first syntax error, or -1 if it is
+   * not known
+   */
+  public int getPosition()
+  {
+    return position;
+  }
+
+  public Fallback getFallback()
+  {
+    return fallback;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder("Could not parse: ").append(input);
+    if (position >= 0) {
+      sb.append(" at ").append(position);
+    }
+    if (message != null) {
+      sb.append(": ").append(message);
+    }
+    return sb.append(" (").append(fallback).append(')').toString();
+  }
+}
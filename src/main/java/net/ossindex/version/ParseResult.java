@@ -0,0 +1,119 @@
+package net.ossindex.version;
+
+/**
+ * The outcome of parsing one string in a batch: either a range, or the
+ * exception that parsing it would have thrown.
+ *
+ * @author Ken Duck
+ */
+public class ParseResult
+{
+  private final int index;
+
+  private final String input;
+
+  private final IVersionRange range;
+
+  private final InvalidRangeException error;
+
+  private final ParseDiagnostic diagnostic;
+
+  ParseResult(int index, String input, IVersionRange range, InvalidRangeException error, ParseDiagnostic diagnostic)
+  {
+    this.index = index;
+    this.input = input;
+    this.range = range;
+    this.error = error;
+    this.diagnostic = diagnostic;
+  }
+
+  /**
+   * Parse the string, capturing any failure in the result rather than throwing it.
+   */
+  static ParseResult parse(VersionFactory factory, int index, String input)
+  {
+    Capture capture = new Capture();
+    try {
+      return new ParseResult(index, input, factory.getRange(input, capture), null, capture.diagnostic);
+    }
+    catch (InvalidRangeException e) {
+      return new ParseResult(index, input, null, e, capture.diagnostic);
+    }
+    catch (RuntimeException e) {
+      // Don't let one bad string lose the rest of the batch
+      ParseDiagnostic diagnostic = capture.diagnostic;
+      if (diagnostic == null) {
+        diagnostic = new ParseDiagnostic(input, e.toString(), -1, ParseDiagnostic.Fallback.REJECTED);
+      }
+      return new ParseResult(index, input, null, new InvalidRangeException(e), diagnostic);
+    }
+  }
+
+  /**
+   * Keeps the diagnostic for a single parse
+   */
+  private static class Capture
+      implements IDiagnosticSink
+  {
+    private ParseDiagnostic diagnostic;
+
+    @Override
+    public void report(ParseDiagnostic diagnostic)
+    {
+      this.diagnostic = diagnostic;
+    }
+  }
+
+  /**
+   * @return The position of the input in the batch
+   */
+  public int getIndex()
+  {
+    return index;
+  }
+
+  public String getInput()
+  {
+    return input;
+  }
+
+  /**
+   * @return The parsed range, or null if parsing failed
+   */
+  public IVersionRange getRange()
+  {
+    return range;
+  }
+
+  /**
+   * @return Why parsing failed, or null if it succeeded
+   */
+  public InvalidRangeException getError()
+  {
+    return error;
+  }
+
+  /**
+   * @return What went wrong parsing the input, or null if it parsed cleanly.
+   * Ranges served from a factory's cache have no diagnostic.
+   */
+  public ParseDiagnostic getDiagnostic()
+  {
+    return diagnostic;
+  }
+
+  public boolean isSuccess()
+  {
+    return error == null;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    return index + ": " + input + " -> " + (error == null ? range : error.getMessage());
+  }
+}
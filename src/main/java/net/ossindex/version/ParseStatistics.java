@@ -0,0 +1,193 @@
+package net.ossindex.version;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts, latency histograms and input lengths for each parse outcome, kept
+ * with lock free atomic counters.
+ *
+ *   ParseStatistics stats = new ParseStatistics();
+ *   VersionFactory factory = VersionFactory.builder().metrics(stats).build();
+ *   ...
+ *   System.out.println(stats);
+ *
+ * Latencies are kept in power of two buckets: bucket i counts the parses which
+ * took from 2^i up to 2^(i+1) nanoseconds (bucket 0 also holds anything
+ * faster).
+ *
+ * @author Ken Duck
+ */
+public class ParseStatistics
+    implements IParseMetrics
+{
+  public static final int BUCKETS = 64;
+
+  private static final Outcome[] OUTCOMES = Outcome.values();
+
+  private final AtomicLongArray counts = new AtomicLongArray(OUTCOMES.length);
+
+  private final AtomicLongArray nanos = new AtomicLongArray(OUTCOMES.length);
+
+  private final AtomicLongArray lengths = new AtomicLongArray(OUTCOMES.length);
+
+  private final AtomicLongArray histograms = new AtomicLongArray(OUTCOMES.length * BUCKETS);
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IParseMetrics#record(net.ossindex.version.IParseMetrics.Outcome, int, long)
+   */
+  @Override
+  public void record(Outcome outcome, int inputLength, long elapsedNanos)
+  {
+    int index = outcome.ordinal();
+    counts.incrementAndGet(index);
+    nanos.addAndGet(index, elapsedNanos);
+    lengths.addAndGet(index, inputLength);
+    histograms.incrementAndGet(index * BUCKETS + bucket(elapsedNanos));
+  }
+
+  private static int bucket(long elapsedNanos)
+  {
+    return elapsedNanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(elapsedNanos);
+  }
+
+  public long getCount(Outcome outcome)
+  {
+    return counts.get(outcome.ordinal());
+  }
+
+  /**
+   * @return The number of strings of every outcome
+   */
+  public long getTotalCount()
+  {
+    return sum(counts);
+  }
+
+  /**
+   * @return The total time spent on strings with this outcome
+   */
+  public long getTotalNanos(Outcome outcome)
+  {
+    return nanos.get(outcome.ordinal());
+  }
+
+  /**
+   * @return The mean time per string with this outcome, or 0 if there were none
+   */
+  public double getAverageNanos(Outcome outcome)
+  {
+    return average(nanos.get(outcome.ordinal()), counts.get(outcome.ordinal()));
+  }
+
+  /**
+   * @return The mean length of strings with this outcome, or 0 if there were none
+   */
+  public double getAverageInputLength(Outcome outcome)
+  {
+    return average(lengths.get(outcome.ordinal()), counts.get(outcome.ordinal()));
+  }
+
+  /**
+   * @return The mean length of every string, or 0 if there were none
+   */
+  public double getAverageInputLength()
+  {
+    return average(sum(lengths), sum(counts));
+  }
+
+  /**
+   * @return The fraction of strings answered from the cache, or 0 if there were
+   * none
+   */
+  public double getCacheHitRatio()
+  {
+    return average(getCount(Outcome.CACHE_HIT), getTotalCount());
+  }
+
+  /**
+   * @return A copy of the latency histogram for the outcome, BUCKETS long
+   */
+  public long[] getHistogram(Outcome outcome)
+  {
+    long[] histogram = new long[BUCKETS];
+    int base = outcome.ordinal() * BUCKETS;
+    for (int i = 0; i < BUCKETS; i++) {
+      histogram[i] = histograms.get(base + i);
+    }
+    return histogram;
+  }
+
+  /**
+   * Estimate a latency percentile for the outcome from its histogram.
+   *
+   * @param percentile From 0 to 100
+   * @return The upper bound of the bucket the percentile falls in, or 0 if
+   * there were no strings with this outcome
+   */
+  public long getPercentileNanos(Outcome outcome, double percentile)
+  {
+    long[] histogram = getHistogram(outcome);
+    long total = 0;
+    for (long count : histogram) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += histogram[i];
+      if (seen >= Math.max(rank, 1)) {
+        return i >= 62 ? Long.MAX_VALUE : (2L << i) - 1;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  public void reset()
+  {
+    for (int i = 0; i < OUTCOMES.length; i++) {
+      counts.set(i, 0);
+      nanos.set(i, 0);
+      lengths.set(i, 0);
+    }
+    for (int i = 0; i < histograms.length(); i++) {
+      histograms.set(i, 0);
+    }
+  }
+
+  private static long sum(AtomicLongArray array)
+  {
+    long total = 0;
+    for (int i = 0; i < array.length(); i++) {
+      total += array.get(i);
+    }
+    return total;
+  }
+
+  private static double average(long total, long count)
+  {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-14s %10s %12s %10s %10s%n", "outcome", "count", "avg ns", "p99 ns", "avg len"));
+    for (Outcome outcome : OUTCOMES) {
+      if (getCount(outcome) > 0) {
+        sb.append(String.format("%-14s %10d %12.0f %10d %10.1f%n", outcome, getCount(outcome),
+            getAverageNanos(outcome), getPercentileNanos(outcome, 99), getAverageInputLength(outcome)));
+      }
+    }
+    sb.append(String.format("cache hit ratio %.3f, average length %.1f", getCacheHitRatio(), getAverageInputLength()));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,169 @@
+package net.ossindex.version;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A bounded, concurrent cache of parsed ranges, keyed by the string that was parsed.
+ *
+ * Reads are lock free, and puts only ever wait for clear(). Once the cache is full the oldest entries are evicted first,
+ * which is cheap and works well for the "same few thousand strings over and over"
+ * access pattern we see in practice.
+ *
+ * Ranges are frozen before they are cached, since the same instance is handed out
+ * to every caller.
+ *
+ * @author Ken Duck
+ */
+public class RangeCache
+{
+  public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+  private final int maximumSize;
+
+  private final ConcurrentMap<String, IVersionRange> ranges = new ConcurrentHashMap<String, IVersionRange>();
+
+  /**
+   * Insertion order, used for eviction
+   */
+  private final Queue<String> order = new ConcurrentLinkedQueue<String>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * A put holds the read lock from adding its entry until the entry is queued
+   * and counted, so that clear (holding the write lock) never sees an entry
+   * which is only half added.
+   */
+  private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  public RangeCache() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  public RangeCache(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Get the cached range for the string, or null if there is none.
+   */
+  public IVersionRange get(String vstring) {
+    IVersionRange range = ranges.get(vstring);
+    if (range == null) {
+      misses.incrementAndGet();
+    }
+    else {
+      hits.incrementAndGet();
+    }
+    return range;
+  }
+
+  /**
+   * Cache the range. If another thread beat us to it then the range it cached is
+   * returned instead, so all callers end up sharing a single instance.
+   */
+  public IVersionRange put(String vstring, IVersionRange range) {
+    if (range instanceof IFreezableRange) {
+      ((IFreezableRange) range).freeze();
+    }
+    Lock lock = clearLock.readLock();
+    lock.lock();
+    try {
+      IVersionRange existing = ranges.putIfAbsent(vstring, range);
+      if (existing != null) {
+        return existing;
+      }
+      order.add(vstring);
+      if (size.incrementAndGet() > maximumSize) {
+        evict();
+      }
+      return range;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Remove the oldest entries until we are back within our bounds.
+   */
+  private void evict() {
+    while (size.get() > maximumSize) {
+      String oldest = order.poll();
+      if (oldest == null) {
+        return;
+      }
+      ranges.remove(oldest);
+      size.decrementAndGet();
+      evictions.incrementAndGet();
+    }
+  }
+
+  public void clear() {
+    Lock lock = clearLock.writeLock();
+    lock.lock();
+    try {
+      ranges.clear();
+      order.clear();
+      size.set(0);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Ratio of hits to total lookups, or 0 if there have been no lookups yet.
+   */
+  public double getHitRatio() {
+    long h = hits.get();
+    long total = h + misses.get();
+    if (total == 0) {
+      return 0;
+    }
+    return (double) h / total;
+  }
+
+  @Override
+  public String toString() {
+    return "RangeCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions="
+        + getEvictionCount() + "]";
+  }
+}
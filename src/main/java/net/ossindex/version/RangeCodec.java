@@ -0,0 +1,134 @@
+package net.ossindex.version;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.ossindex.version.impl.RangeNodeCodec;
+
+/**
+ * A compact binary form for parsed ranges and versions, so they can be stored and
+ * loaded again without going back through the parser.
+ *
+ * Every encoded range or version starts with a format version byte. Readers
+ * reject any format they do not know, so an old database fails loudly rather
+ * than decoding into nonsense.
+ *
+ * Ranges are written as a tree, each node starting with a tag byte, followed by
+ * a flags byte (errors, type, bounded) and the type string if there is one. The
+ * numbers in versions are written as variable length integers, so most versions
+ * take only a few bytes.
+ *
+ * Decoded ranges are identical to the ones that were written: the same classes,
+ * in the same order, with the same type and error flag. They are not frozen.
+ *
+ * The supported classes are SemanticVersion, ExtendedSemanticVersion and
+ * NamedVersion, and VersionRange, AndRange, OrRange and VersionSet. These are
+ * everything VersionFactory.getRange produces. Anything else throws an
+ * UnsupportedOperationException when written.
+ *
+ * @author Ken Duck
+ */
+public final class RangeCodec
+{
+  /**
+   * Increase this whenever the layout changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  private RangeCodec()
+  {
+  }
+
+  /**
+   * Write the range, preceded by the format version.
+   */
+  public static void writeRange(DataOutput out, IVersionRange range) throws IOException
+  {
+    out.writeByte(FORMAT_VERSION);
+    RangeNodeCodec.writeRange(out, range);
+  }
+
+  /**
+   * Read a range written by writeRange.
+   *
+   * @throws IOException if the data is not a range in a known format
+   */
+  public static IVersionRange readRange(DataInput in) throws IOException
+  {
+    checkFormat(in);
+    return RangeNodeCodec.readRange(in);
+  }
+
+  /**
+   * Write the version, preceded by the format version.
+   */
+  public static void writeVersion(DataOutput out, IVersion version) throws IOException
+  {
+    out.writeByte(FORMAT_VERSION);
+    RangeNodeCodec.writeVersion(out, version);
+  }
+
+  /**
+   * Read a version written by writeVersion.
+   *
+   * @throws IOException if the data is not a version in a known format
+   */
+  public static IVersion readVersion(DataInput in) throws IOException
+  {
+    checkFormat(in);
+    return RangeNodeCodec.readVersion(in);
+  }
+
+  /**
+   * Encode the range into a new buffer, ready to be read.
+   */
+  public static ByteBuffer encode(IVersionRange range)
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+    try {
+      writeRange(new DataOutputStream(bytes), range);
+    }
+    catch (IOException e) {
+      // Cannot happen writing to memory
+      throw new IllegalStateException(e);
+    }
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  /**
+   * Decode a range from the buffer, starting at its position. The position is
+   * left just after the range.
+   */
+  public static IVersionRange decode(ByteBuffer buffer) throws IOException
+  {
+    byte[] array;
+    int offset;
+    if (buffer.hasArray()) {
+      array = buffer.array();
+      offset = buffer.arrayOffset() + buffer.position();
+    }
+    else {
+      array = new byte[buffer.remaining()];
+      buffer.duplicate().get(array);
+      offset = 0;
+    }
+    ByteArrayInputStream bytes = new ByteArrayInputStream(array, offset, buffer.remaining());
+    IVersionRange range = readRange(new DataInputStream(bytes));
+    buffer.position(buffer.limit() - bytes.available());
+    return range;
+  }
+
+  private static void checkFormat(DataInput in) throws IOException
+  {
+    int format = in.readUnsignedByte();
+    if (format != FORMAT_VERSION) {
+      throw new IOException("Unsupported range format " + format + ", expected " + FORMAT_VERSION);
+    }
+  }
+}
@@ -0,0 +1,569 @@
+package net.ossindex.version;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ossindex.version.impl.ExtendedSemanticVersion;
+import net.ossindex.version.impl.Interval;
+import net.ossindex.version.impl.NormalizedRange;
+import net.ossindex.version.impl.SemanticVersion;
+
+/**
+ * A read only database of ranges, grouped by package, which is queried directly
+ * from a memory mapped file. No range objects are created to answer a query, so
+ * a very large set of advisories costs almost nothing on the heap.
+ *
+ * Each range is stored in its normalized form (see NormalizedRange): a list of
+ * disjoint intervals. Every bound is a fixed width key of five ints which sort
+ * the same way as the versions do:
+ *
+ * <pre>
+ *   major, minor, patch, pre-release, build
+ * </pre>
+ *
+ * The pre-release is replaced by its rank among all the pre-releases in the
+ * database, with releases sorting last. Pre-release strings are kept in a
+ * table sorted by SemanticVersion's own pre-release order, so a query version
+ * with a pre-release is ranked by a binary search of that table, after which
+ * every comparison is on ints.
+ *
+ * Named versions have no place in the order, so ranges which mention them
+ * cannot be written. Queries with anything other than a semantic version never
+ * match, as with NormalizedRange.
+ *
+ * Ranges are numbered in the order they were added to the writer, and queries
+ * report those numbers.
+ *
+ * An open database is thread safe.
+ *
+ * @author Ken Duck
+ */
+public final class RangeDatabase
+    implements Closeable
+{
+  private static final int MAGIC = 0x4F535652;
+
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_SIZE = 32;
+
+  private static final int PACKAGE_ENTRY_SIZE = 16;
+
+  private static final int PRE_RELEASE_ENTRY_SIZE = 8;
+
+  private static final int KEY_INTS = 5;
+
+  private static final int KEY_SIZE = KEY_INTS * 4;
+
+  private static final int INTERVAL_ENTRY_SIZE = 8 + 2 * KEY_SIZE;
+
+  /**
+   * Releases sort after every pre-release
+   */
+  private static final int RELEASE = Integer.MAX_VALUE;
+
+  private static final int LOWER_UNBOUNDED = 1;
+
+  private static final int LOWER_INCLUSIVE = 2;
+
+  private static final int UPPER_UNBOUNDED = 4;
+
+  private static final int UPPER_INCLUSIVE = 8;
+
+  private static final int[] NO_MATCHES = new int[0];
+
+  private static final Comparator<String> PRE_RELEASE_ORDER = new Comparator<String>()
+  {
+    @Override
+    public int compare(String s1, String s2)
+    {
+      return SemanticVersion.comparePreRelease(s1, s2);
+    }
+  };
+
+  private final RandomAccessFile file;
+
+  private final ByteBuffer buffer;
+
+  private final int packageCount;
+
+  private final int rangeCount;
+
+  private final int preReleaseCount;
+
+  private final int packageTable;
+
+  private final int preReleaseTable;
+
+  private final int intervalTable;
+
+  private final int stringArea;
+
+  private RangeDatabase(RandomAccessFile file, ByteBuffer buffer) throws IOException
+  {
+    this.file = file;
+    this.buffer = buffer;
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a range database");
+    }
+    int format = buffer.getInt(4);
+    if (format != FORMAT_VERSION) {
+      throw new IOException("Unsupported range database format " + format + ", expected " + FORMAT_VERSION);
+    }
+    packageCount = buffer.getInt(8);
+    rangeCount = buffer.getInt(12);
+    preReleaseCount = buffer.getInt(16);
+    int intervalCount = buffer.getInt(20);
+    int stringSize = buffer.getInt(24);
+
+    packageTable = HEADER_SIZE;
+    preReleaseTable = packageTable + packageCount * PACKAGE_ENTRY_SIZE;
+    intervalTable = preReleaseTable + preReleaseCount * PRE_RELEASE_ENTRY_SIZE;
+    stringArea = intervalTable + intervalCount * INTERVAL_ENTRY_SIZE;
+    if ((long) stringArea + stringSize != buffer.limit()) {
+      throw new IOException("Range database is truncated or corrupt");
+    }
+  }
+
+  /**
+   * Map a database written by a Writer.
+   */
+  public static RangeDatabase open(File path) throws IOException
+  {
+    RandomAccessFile file = new RandomAccessFile(path, "r");
+    try {
+      FileChannel channel = file.getChannel();
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Range database is too large to map: " + size);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return new RangeDatabase(file, buffer);
+    }
+    catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  public int getPackageCount()
+  {
+    return packageCount;
+  }
+
+  public int getRangeCount()
+  {
+    return rangeCount;
+  }
+
+  /**
+   * Returns true if any range for the package contains the version.
+   */
+  public boolean contains(String pkg, IVersion version)
+  {
+    return find(pkg, version, true).length > 0;
+  }
+
+  /**
+   * Find the ranges for the package which contain the version.
+   *
+   * @return The numbers of the matching ranges, in ascending order
+   */
+  public int[] find(String pkg, IVersion version)
+  {
+    return find(pkg, version, false);
+  }
+
+  /**
+   * The mapping is released when it is garbage collected, there is no way to
+   * unmap it sooner.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    file.close();
+  }
+
+  private int[] find(String pkg, IVersion version, boolean first)
+  {
+    int entry = findPackage(pkg);
+    if (entry < 0 || !(version instanceof SemanticVersion)) {
+      return NO_MATCHES;
+    }
+    int[] key = toKey((SemanticVersion) version);
+    int start = buffer.getInt(entry + 8);
+    int count = buffer.getInt(entry + 12);
+
+    int[] results = NO_MATCHES;
+    int size = 0;
+    int lastMatch = -1;
+    for (int i = start; i < start + count; i++) {
+      int offset = intervalTable + i * INTERVAL_ENTRY_SIZE;
+      int rangeId = buffer.getInt(offset);
+      if (rangeId == lastMatch || !contains(offset, key)) {
+        continue;
+      }
+      if (size == results.length) {
+        results = Arrays.copyOf(results, Math.max(4, size * 2));
+      }
+      results[size++] = rangeId;
+      lastMatch = rangeId;
+      if (first) {
+        break;
+      }
+    }
+    return size == results.length ? results : Arrays.copyOf(results, size);
+  }
+
+  private boolean contains(int offset, int[] key)
+  {
+    int flags = buffer.getInt(offset + 4);
+    if ((flags & LOWER_UNBOUNDED) == 0) {
+      int cmp = compare(key, offset + 8);
+      if (cmp < 0 || (cmp == 0 && (flags & LOWER_INCLUSIVE) == 0)) {
+        return false;
+      }
+    }
+    if ((flags & UPPER_UNBOUNDED) == 0) {
+      int cmp = compare(key, offset + 8 + KEY_SIZE);
+      if (cmp > 0 || (cmp == 0 && (flags & UPPER_INCLUSIVE) == 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int compare(int[] key, int offset)
+  {
+    for (int i = 0; i < KEY_INTS; i++) {
+      int bound = buffer.getInt(offset + i * 4);
+      if (key[i] != bound) {
+        return key[i] < bound ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private int[] toKey(SemanticVersion version)
+  {
+    int pre = RELEASE;
+    String preRelease = version.getPreRelease();
+    if (preRelease != null) {
+      pre = rankPreRelease(preRelease);
+    }
+    int build = version instanceof ExtendedSemanticVersion ? version.getBuild() : 0;
+    return new int[] { version.getMajor(), version.getMinor(), version.getPatch(), pre, build };
+  }
+
+  /**
+   * Rank the pre-release against the stored ones. A stored pre-release at index
+   * i ranks 2i + 1, anything between two stored ones ranks on the even number
+   * between them.
+   */
+  private int rankPreRelease(String preRelease)
+  {
+    int low = 0;
+    int high = preReleaseCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int entry = preReleaseTable + mid * PRE_RELEASE_ENTRY_SIZE;
+      int cmp = SemanticVersion.comparePreRelease(preRelease, readString(buffer.getInt(entry), buffer.getInt(entry + 4)));
+      if (cmp < 0) {
+        high = mid - 1;
+      }
+      else if (cmp > 0) {
+        low = mid + 1;
+      }
+      else {
+        return 2 * mid + 1;
+      }
+    }
+    return 2 * low;
+  }
+
+  /**
+   * Binary search the package table, comparing the UTF-8 bytes in place.
+   *
+   * @return The offset of the package's entry, or -1
+   */
+  private int findPackage(String pkg)
+  {
+    byte[] name = pkg.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = packageCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int entry = packageTable + mid * PACKAGE_ENTRY_SIZE;
+      int cmp = compareName(name, stringArea + buffer.getInt(entry), buffer.getInt(entry + 4));
+      if (cmp < 0) {
+        high = mid - 1;
+      }
+      else if (cmp > 0) {
+        low = mid + 1;
+      }
+      else {
+        return entry;
+      }
+    }
+    return -1;
+  }
+
+  private int compareName(byte[] name, int offset, int length)
+  {
+    int lim = Math.min(name.length, length);
+    for (int i = 0; i < lim; i++) {
+      int b1 = name[i] & 0xFF;
+      int b2 = buffer.get(offset + i) & 0xFF;
+      if (b1 != b2) {
+        return b1 - b2;
+      }
+    }
+    return name.length - length;
+  }
+
+  private String readString(int offset, int length)
+  {
+    byte[] bytes = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(stringArea + offset);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Collects ranges in memory and writes them out as a database.
+   */
+  public static class Writer
+  {
+    private final Map<String, List<Entry>> packages = new LinkedHashMap<String, List<Entry>>();
+
+    private int rangeCount;
+
+    /**
+     * Add a range for the package.
+     *
+     * @return The number the range will be known by in query results
+     * @throws UnsupportedOperationException if the range cannot be normalized,
+     *                                       or includes named versions
+     */
+    public int add(String pkg, IVersionRange range)
+    {
+      NormalizedRange normalized = NormalizedRange.of(range);
+      if (!normalized.getNamedVersions().isEmpty()) {
+        throw new UnsupportedOperationException("Named versions cannot be stored: " + range);
+      }
+      List<Entry> entries = packages.get(pkg);
+      if (entries == null) {
+        entries = new ArrayList<Entry>();
+        packages.put(pkg, entries);
+      }
+      int id = rangeCount++;
+      entries.add(new Entry(id, normalized.getIntervals()));
+      return id;
+    }
+
+    public void write(File path) throws IOException
+    {
+      // Packages are sorted by their UTF-8 bytes, so they can be searched in place
+      List<Package> sorted = new ArrayList<Package>();
+      for (Map.Entry<String, List<Entry>> e : packages.entrySet()) {
+        sorted.add(new Package(e.getKey().getBytes(StandardCharsets.UTF_8), e.getValue()));
+      }
+      Collections.sort(sorted, new Comparator<Package>()
+      {
+        @Override
+        public int compare(Package p1, Package p2)
+        {
+          byte[] b1 = p1.name;
+          byte[] b2 = p2.name;
+          int lim = Math.min(b1.length, b2.length);
+          for (int i = 0; i < lim; i++) {
+            int c1 = b1[i] & 0xFF;
+            int c2 = b2[i] & 0xFF;
+            if (c1 != c2) {
+              return c1 - c2;
+            }
+          }
+          return b1.length - b2.length;
+        }
+      });
+
+      // Sort the distinct pre-releases. Spellings which compare equal ("1" and
+      // "01") share a rank.
+      List<String> preReleases = new ArrayList<String>();
+      int intervalCount = 0;
+      for (List<Entry> entries : packages.values()) {
+        for (Entry entry : entries) {
+          for (Interval interval : entry.intervals) {
+            addPreRelease(preReleases, interval.getLower());
+            addPreRelease(preReleases, interval.getUpper());
+            intervalCount++;
+          }
+        }
+      }
+      Collections.sort(preReleases, PRE_RELEASE_ORDER);
+      List<String> distinct = new ArrayList<String>();
+      for (String pre : preReleases) {
+        if (distinct.isEmpty() || SemanticVersion.comparePreRelease(distinct.get(distinct.size() - 1), pre) != 0) {
+          distinct.add(pre);
+        }
+      }
+
+      List<byte[]> preBytes = new ArrayList<byte[]>();
+      long stringSize = 0;
+      for (Package pkg : sorted) {
+        stringSize += pkg.name.length;
+      }
+      for (String pre : distinct) {
+        byte[] bytes = pre.getBytes(StandardCharsets.UTF_8);
+        preBytes.add(bytes);
+        stringSize += bytes.length;
+      }
+      long size = HEADER_SIZE
+          + (long) sorted.size() * PACKAGE_ENTRY_SIZE
+          + (long) distinct.size() * PRE_RELEASE_ENTRY_SIZE
+          + (long) intervalCount * INTERVAL_ENTRY_SIZE
+          + stringSize;
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Range database would be too large: " + size);
+      }
+
+      ByteBuffer out = ByteBuffer.allocate((int) size);
+      out.putInt(MAGIC);
+      out.putInt(FORMAT_VERSION);
+      out.putInt(sorted.size());
+      out.putInt(rangeCount);
+      out.putInt(distinct.size());
+      out.putInt(intervalCount);
+      out.putInt((int) stringSize);
+      out.putInt(0);
+
+      int stringOffset = 0;
+      int interval = 0;
+      for (Package pkg : sorted) {
+        int count = 0;
+        for (Entry entry : pkg.entries) {
+          count += entry.intervals.size();
+        }
+        out.putInt(stringOffset);
+        out.putInt(pkg.name.length);
+        out.putInt(interval);
+        out.putInt(count);
+        stringOffset += pkg.name.length;
+        interval += count;
+      }
+      for (byte[] pre : preBytes) {
+        out.putInt(stringOffset);
+        out.putInt(pre.length);
+        stringOffset += pre.length;
+      }
+      for (Package pkg : sorted) {
+        for (Entry entry : pkg.entries) {
+          for (Interval i : entry.intervals) {
+            int flags = 0;
+            if (i.getLower() == null) {
+              flags |= LOWER_UNBOUNDED;
+            }
+            if (i.isLowerInclusive()) {
+              flags |= LOWER_INCLUSIVE;
+            }
+            if (i.getUpper() == null) {
+              flags |= UPPER_UNBOUNDED;
+            }
+            if (i.isUpperInclusive()) {
+              flags |= UPPER_INCLUSIVE;
+            }
+            out.putInt(entry.id);
+            out.putInt(flags);
+            putKey(out, i.getLower(), distinct);
+            putKey(out, i.getUpper(), distinct);
+          }
+        }
+      }
+      for (Package pkg : sorted) {
+        out.put(pkg.name);
+      }
+      for (byte[] pre : preBytes) {
+        out.put(pre);
+      }
+
+      out.flip();
+      RandomAccessFile file = new RandomAccessFile(path, "rw");
+      try {
+        file.setLength(0);
+        FileChannel channel = file.getChannel();
+        while (out.hasRemaining()) {
+          channel.write(out);
+        }
+      }
+      finally {
+        file.close();
+      }
+    }
+
+    private static void addPreRelease(List<String> preReleases, SemanticVersion version)
+    {
+      if (version != null && version.getPreRelease() != null) {
+        preReleases.add(version.getPreRelease());
+      }
+    }
+
+    private static void putKey(ByteBuffer out, SemanticVersion version, List<String> preReleases)
+    {
+      if (version == null) {
+        for (int i = 0; i < KEY_INTS; i++) {
+          out.putInt(0);
+        }
+        return;
+      }
+      int pre = RELEASE;
+      if (version.getPreRelease() != null) {
+        pre = 2 * Collections.binarySearch(preReleases, version.getPreRelease(), PRE_RELEASE_ORDER) + 1;
+      }
+      out.putInt(version.getMajor());
+      out.putInt(version.getMinor());
+      out.putInt(version.getPatch());
+      out.putInt(pre);
+      out.putInt(version instanceof ExtendedSemanticVersion ? version.getBuild() : 0);
+    }
+  }
+
+  private static final class Package
+  {
+    final byte[] name;
+
+    final List<Entry> entries;
+
+    Package(byte[] name, List<Entry> entries)
+    {
+      this.name = name;
+      this.entries = entries;
+    }
+  }
+
+  private static final class Entry
+  {
+    final int id;
+
+    final List<Interval> intervals;
+
+    Entry(int id, List<Interval> intervals)
+    {
+      this.id = id;
+      this.intervals = intervals;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package net.ossindex.version;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read a file with one range expression per line, parsing each line as it is
+ * reached.
+ *
+ * The file is memory mapped a window at a time, so a feed of any size can be
+ * read without loading it onto the heap. Nothing is read ahead of the caller:
+ * a line is only read and parsed when next() asks for it, so a slow consumer
+ * simply slows the reader down.
+ *
+ * Lines are split on '\n' (a trailing '\r' is dropped) and decoded as UTF-8.
+ * Blank lines are skipped. The index of each result is its zero based line
+ * number in the file.
+ *
+ * Lines which cannot be parsed are returned as failed results, exactly as with
+ * BulkParser. A problem reading the file itself is thrown as an
+ * IllegalStateException, since Iterator cannot throw IOException.
+ *
+ * A reader is not thread safe.
+ *
+ * @author Ken Duck
+ */
+public class RangeFileReader
+    implements Iterator<ParseResult>, Closeable
+{
+  /**
+   * Size of the mapped window. Lines longer than this make the window grow.
+   */
+  private static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+  private final VersionFactory factory;
+
+  private final File file;
+
+  private final RandomAccessFile raf;
+
+  private final FileChannel channel;
+
+  private final long size;
+
+  private int chunkSize;
+
+  private MappedByteBuffer buffer;
+
+  /**
+   * File offset of the start of the mapped window
+   */
+  private long bufferStart;
+
+  /**
+   * File offset of the start of the next line
+   */
+  private long position;
+
+  private int lineNumber = -1;
+
+  /**
+   * Reused for each line, so the only copy made is the String itself
+   */
+  private byte[] scratch = new byte[256];
+
+  /**
+   * The next non blank line, once hasNext has found it
+   */
+  private String pending;
+
+  public RangeFileReader(VersionFactory factory, File file) throws IOException
+  {
+    this(factory, file, DEFAULT_CHUNK_SIZE);
+  }
+
+  RangeFileReader(VersionFactory factory, File file, int chunkSize) throws IOException
+  {
+    this.factory = factory;
+    this.file = file;
+    this.chunkSize = chunkSize;
+    raf = new RandomAccessFile(file, "r");
+    try {
+      channel = raf.getChannel();
+      size = channel.size();
+      skipByteOrderMark();
+    }
+    catch (IOException | RuntimeException e) {
+      // Nobody else can close it
+      try {
+        raf.close();
+      }
+      catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.Iterator#hasNext()
+   */
+  @Override
+  public boolean hasNext()
+  {
+    if (pending != null) {
+      return true;
+    }
+    try {
+      String line;
+      while ((line = readLine()) != null) {
+        if (!line.trim().isEmpty()) {
+          pending = line;
+          return true;
+        }
+      }
+      return false;
+    }
+    catch (IOException e) {
+      throw new IllegalStateException("Could not read " + file, e);
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.Iterator#next()
+   */
+  @Override
+  public ParseResult next()
+  {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    String line = pending;
+    pending = null;
+    return ParseResult.parse(factory, lineNumber, line);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.util.Iterator#remove()
+   */
+  @Override
+  public void remove()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Close the file. The last mapped window is released when it is garbage
+   * collected; there is no way to unmap it sooner.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    buffer = null;
+    position = size;
+    pending = null;
+    raf.close();
+  }
+
+  /**
+   * Read the next line, remapping the window whenever a line runs past the end of
+   * it.
+   *
+   * @return The line without its terminator, or null at the end of the file
+   */
+  private String readLine() throws IOException
+  {
+    while (position < size) {
+      if (buffer == null || position < bufferStart || position >= bufferStart + buffer.limit()) {
+        map(position);
+      }
+      int start = (int) (position - bufferStart);
+      int limit = buffer.limit();
+      int end = start;
+      while (end < limit && buffer.get(end) != '\n') {
+        end++;
+      }
+
+      if (end == limit && bufferStart + limit < size) {
+        // The line continues past the window
+        if (start == 0) {
+          // It is longer than the whole window
+          if (chunkSize == Integer.MAX_VALUE) {
+            throw new IOException("Line " + (lineNumber + 2) + " is too long");
+          }
+          chunkSize = (int) Math.min(Integer.MAX_VALUE, chunkSize * 2L);
+        }
+        map(position);
+        continue;
+      }
+
+      int length = end - start;
+      if (length > 0 && buffer.get(end - 1) == '\r') {
+        length--;
+      }
+      position = bufferStart + end + 1;
+      lineNumber++;
+      return decode(start, length);
+    }
+    return null;
+  }
+
+  private String decode(int start, int length)
+  {
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    buffer.position(start);
+    buffer.get(scratch, 0, length);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private void map(long offset) throws IOException
+  {
+    bufferStart = offset;
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(chunkSize, size - offset));
+  }
+
+  private void skipByteOrderMark() throws IOException
+  {
+    if (size >= 3) {
+      map(0);
+      if ((buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF) {
+        position = 3;
+      }
+    }
+  }
+}
@@ -0,0 +1,435 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.ossindex.version.impl.Interval;
+import net.ossindex.version.impl.SemanticVersion;
+
+/**
+ * An index of many ranges, which answers "which of these ranges contain this
+ * version" without testing every range.
+ *
+ * Each range is broken down into intervals (see Interval.decompose). The
+ * intervals are kept in an interval tree: a treap ordered by lower bound,
+ * where every node also remembers the highest upper bound in its subtree.
+ * A lookup only visits subtrees which can possibly contain the version, so
+ * it costs O(log n) plus the work to report the matches, rather than O(n).
+ *
+ * Named versions (from version sets) are kept in a map by name. Ranges which
+ * cannot be broken down into intervals are tested one by one with contains(),
+ * so results always agree with IVersionRange.contains.
+ *
+ * Values may be added and removed at any time. Lookups may run concurrently
+ * with each other, and updates lock out lookups only for the duration of the
+ * update.
+ *
+ * @param <T> Whatever you want back from a lookup, for example an advisory id.
+ *
+ * @author Ken Duck
+ */
+public class RangeIndex<T>
+{
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Node<T> root;
+
+  private int intervalCount;
+
+  /**
+   * Everything added for a value, so it can be removed again
+   */
+  private final Map<T, Registration<T>> registrations = new HashMap<T, Registration<T>>();
+
+  private final Map<String, List<T>> namedPoints = new HashMap<String, List<T>>();
+
+  /**
+   * Ranges which could not be decomposed
+   */
+  private final Map<T, List<IVersionRange>> unindexed = new LinkedHashMap<T, List<IVersionRange>>();
+
+  private long sequence;
+
+  /**
+   * Add a range to the index. A value may be added with several ranges, in
+   * which case it matches any version in any of them.
+   */
+  public void add(IVersionRange range, T value)
+  {
+    if (range == null || value == null) {
+      throw new IllegalArgumentException("Range and value must not be null");
+    }
+    List<Interval> intervals = Interval.decompose(range);
+
+    lock.writeLock().lock();
+    try {
+      Registration<T> registration = registrations.get(value);
+      if (registration == null) {
+        registration = new Registration<T>();
+        registrations.put(value, registration);
+      }
+
+      if (intervals == null) {
+        List<IVersionRange> ranges = unindexed.get(value);
+        if (ranges == null) {
+          ranges = new ArrayList<IVersionRange>();
+          unindexed.put(value, ranges);
+        }
+        ranges.add(range);
+        return;
+      }
+
+      for (Interval interval : intervals) {
+        if (interval.isNamedPoint()) {
+          List<T> values = namedPoints.get(interval.getName());
+          if (values == null) {
+            values = new ArrayList<T>(1);
+            namedPoints.put(interval.getName(), values);
+          }
+          values.add(value);
+          registration.names.add(interval.getName());
+        }
+        else {
+          Node<T> node = new Node<T>(interval, value, sequence++, ThreadLocalRandom.current().nextInt());
+          root = insert(root, node);
+          registration.nodes.add(node);
+          intervalCount++;
+        }
+      }
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove the value and all of its ranges from the index.
+   *
+   * @return True if the value was in the index
+   */
+  public boolean remove(T value)
+  {
+    lock.writeLock().lock();
+    try {
+      Registration<T> registration = registrations.remove(value);
+      if (registration == null) {
+        return false;
+      }
+      for (Node<T> node : registration.nodes) {
+        root = delete(root, node);
+        intervalCount--;
+      }
+      for (String name : registration.names) {
+        List<T> values = namedPoints.get(name);
+        values.remove(value);
+        if (values.isEmpty()) {
+          namedPoints.remove(name);
+        }
+      }
+      unindexed.remove(value);
+      return true;
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Find the values whose ranges contain the version.
+   *
+   * @return The matching values, each reported once.
+   */
+  public Set<T> find(IVersion version)
+  {
+    Set<T> results = new LinkedHashSet<T>();
+    lock.readLock().lock();
+    try {
+      if (version instanceof SemanticVersion) {
+        stab(root, (SemanticVersion) version, results);
+      }
+      List<T> named = namedPoints.get(version.toString());
+      if (named != null) {
+        results.addAll(named);
+      }
+      for (Map.Entry<T, List<IVersionRange>> entry : unindexed.entrySet()) {
+        for (IVersionRange range : entry.getValue()) {
+          if (range.contains(version)) {
+            results.add(entry.getKey());
+            break;
+          }
+        }
+      }
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+    return results;
+  }
+
+  /**
+   * @return The number of values in the index
+   */
+  public int size()
+  {
+    lock.readLock().lock();
+    try {
+      return registrations.size();
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return The number of intervals in the tree, which is useful for tuning
+   */
+  public int getIntervalCount()
+  {
+    lock.readLock().lock();
+    try {
+      return intervalCount;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public Set<T> values()
+  {
+    lock.readLock().lock();
+    try {
+      return Collections.unmodifiableSet(new LinkedHashSet<T>(registrations.keySet()));
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void clear()
+  {
+    lock.writeLock().lock();
+    try {
+      root = null;
+      intervalCount = 0;
+      registrations.clear();
+      namedPoints.clear();
+      unindexed.clear();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Collect every interval in the subtree which contains the version.
+   */
+  private static <T> void stab(Node<T> node, SemanticVersion version, Set<T> results)
+  {
+    while (node != null) {
+      // Nothing in this subtree reaches as high as the version
+      if (!node.maxUnbounded) {
+        int cmp = version.compareTo(node.maxUpper);
+        if (cmp > 0 || (cmp == 0 && !node.maxUpperInclusive)) {
+          return;
+        }
+      }
+      stab(node.left, version, results);
+
+      // Everything to the right starts at or after this node
+      if (!node.interval.isAboveLower(version)) {
+        return;
+      }
+      if (node.interval.isBelowUpper(version)) {
+        results.add(node.value);
+      }
+      node = node.right;
+    }
+  }
+
+  /**
+   * Order nodes by lower bound. Ties are broken by inclusivity (so that lookups
+   * can stop at the first exclusive bound equal to the version) and then by
+   * insertion order, so every node has a unique position.
+   */
+  private static int compareNodes(Node<?> n1, Node<?> n2)
+  {
+    SemanticVersion l1 = n1.interval.getLower();
+    SemanticVersion l2 = n2.interval.getLower();
+    if (l1 == null || l2 == null) {
+      if (l1 != l2) {
+        return l1 == null ? -1 : 1;
+      }
+    }
+    else {
+      int cmp = l1.compareTo(l2);
+      if (cmp != 0) {
+        return cmp;
+      }
+      boolean i1 = n1.interval.isLowerInclusive();
+      boolean i2 = n2.interval.isLowerInclusive();
+      if (i1 != i2) {
+        return i1 ? -1 : 1;
+      }
+    }
+    return n1.sequence < n2.sequence ? -1 : (n1.sequence == n2.sequence ? 0 : 1);
+  }
+
+  private static <T> Node<T> insert(Node<T> root, Node<T> node)
+  {
+    if (root == null) {
+      node.update();
+      return node;
+    }
+    if (compareNodes(node, root) < 0) {
+      root.left = insert(root.left, node);
+      if (root.left.priority > root.priority) {
+        root = rotateRight(root);
+      }
+    }
+    else {
+      root.right = insert(root.right, node);
+      if (root.right.priority > root.priority) {
+        root = rotateLeft(root);
+      }
+    }
+    root.update();
+    return root;
+  }
+
+  private static <T> Node<T> delete(Node<T> root, Node<T> node)
+  {
+    if (root == null) {
+      return null;
+    }
+    if (root == node) {
+      return merge(root.left, root.right);
+    }
+    if (compareNodes(node, root) < 0) {
+      root.left = delete(root.left, node);
+    }
+    else {
+      root.right = delete(root.right, node);
+    }
+    root.update();
+    return root;
+  }
+
+  /**
+   * Join two subtrees, where everything in left is before everything in right.
+   */
+  private static <T> Node<T> merge(Node<T> left, Node<T> right)
+  {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+    if (left.priority > right.priority) {
+      left.right = merge(left.right, right);
+      left.update();
+      return left;
+    }
+    right.left = merge(left, right.left);
+    right.update();
+    return right;
+  }
+
+  private static <T> Node<T> rotateRight(Node<T> node)
+  {
+    Node<T> left = node.left;
+    node.left = left.right;
+    left.right = node;
+    node.update();
+    left.update();
+    return left;
+  }
+
+  private static <T> Node<T> rotateLeft(Node<T> node)
+  {
+    Node<T> right = node.right;
+    node.right = right.left;
+    right.left = node;
+    node.update();
+    right.update();
+    return right;
+  }
+
+  private static final class Node<T>
+  {
+    final Interval interval;
+
+    final T value;
+
+    final long sequence;
+
+    final int priority;
+
+    Node<T> left;
+
+    Node<T> right;
+
+    /**
+     * The highest upper bound in this subtree
+     */
+    boolean maxUnbounded;
+
+    SemanticVersion maxUpper;
+
+    boolean maxUpperInclusive;
+
+    Node(Interval interval, T value, long sequence, int priority)
+    {
+      this.interval = interval;
+      this.value = value;
+      this.sequence = sequence;
+      this.priority = priority;
+    }
+
+    /**
+     * Recalculate the highest upper bound from our children
+     */
+    void update()
+    {
+      maxUpper = interval.getUpper();
+      maxUpperInclusive = interval.isUpperInclusive();
+      maxUnbounded = maxUpper == null;
+      include(left);
+      include(right);
+    }
+
+    private void include(Node<T> child)
+    {
+      if (child == null || maxUnbounded) {
+        return;
+      }
+      if (child.maxUnbounded) {
+        maxUnbounded = true;
+        maxUpper = null;
+        maxUpperInclusive = false;
+        return;
+      }
+      int cmp = child.maxUpper.compareTo(maxUpper);
+      if (cmp > 0 || (cmp == 0 && child.maxUpperInclusive)) {
+        maxUpper = child.maxUpper;
+        maxUpperInclusive = child.maxUpperInclusive;
+      }
+    }
+  }
+
+  private static final class Registration<T>
+  {
+    final List<Node<T>> nodes = new ArrayList<Node<T>>();
+
+    final List<String> names = new ArrayList<String>();
+  }
+}
@@ -0,0 +1,167 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.ossindex.version.impl.Interval;
+import net.ossindex.version.impl.NamedVersion;
+import net.ossindex.version.impl.NormalizedRange;
+import net.ossindex.version.impl.SemanticVersion;
+
+/**
+ * Check many versions against the same range at once.
+ *
+ * The range is normalized into a sorted list of disjoint intervals when the
+ * matcher is created (see NormalizedRange). A batch of versions is then
+ * sorted and checked in a single sweep over the intervals, rather than walking
+ * the range tree once for each version.
+ *
+ * Ranges which cannot be normalized are checked with contains(), so the results
+ * always agree with IVersionRange.contains.
+ *
+ * A matcher does not change once it is created, so it can be shared between
+ * threads.
+ *
+ * @author Ken Duck
+ */
+public class RangeMatcher
+{
+  private final IVersionRange range;
+
+  /**
+   * Null if the range could not be normalized
+   */
+  private final NormalizedRange normalized;
+
+  private final Interval[] intervals;
+
+  private final Set<String> names;
+
+  public RangeMatcher(IVersionRange range)
+  {
+    this.range = range;
+    NormalizedRange normalized;
+    try {
+      normalized = NormalizedRange.of(range);
+    }
+    catch (UnsupportedOperationException e) {
+      normalized = null;
+    }
+    this.normalized = normalized;
+    if (normalized == null) {
+      intervals = null;
+      names = Collections.emptySet();
+    }
+    else {
+      List<Interval> list = normalized.getIntervals();
+      intervals = list.toArray(new Interval[list.size()]);
+      names = new HashSet<String>();
+      for (NamedVersion version : normalized.getNamedVersions()) {
+        names.add(version.toString());
+      }
+    }
+  }
+
+  /**
+   * Convenience method for a one off batch.
+   */
+  public static BitSet containsAll(IVersionRange range, List<? extends IVersion> versions)
+  {
+    return new RangeMatcher(range).containsAll(versions);
+  }
+
+  public IVersionRange getRange()
+  {
+    return range;
+  }
+
+  /**
+   * Check each of the versions against the range.
+   *
+   * @return A bit set, where bit i is set if the range contains versions.get(i)
+   */
+  public BitSet containsAll(List<? extends IVersion> versions)
+  {
+    // Copy once, so a list without random access is not walked on every lookup
+    final IVersion[] array = versions.toArray(new IVersion[versions.size()]);
+    BitSet results = new BitSet(array.length);
+    if (intervals == null) {
+      for (int i = 0; i < array.length; i++) {
+        if (range.contains(array[i])) {
+          results.set(i);
+        }
+      }
+      return results;
+    }
+
+    // Semantic versions are swept in order, anything else can only match by name
+    List<Integer> order = new ArrayList<Integer>(array.length);
+    for (int i = 0; i < array.length; i++) {
+      IVersion version = array[i];
+      if (version instanceof SemanticVersion) {
+        order.add(i);
+      }
+      else if (!names.isEmpty() && names.contains(version.toString())) {
+        results.set(i);
+      }
+    }
+    Collections.sort(order, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer i1, Integer i2)
+      {
+        return array[i1].compareTo(array[i2]);
+      }
+    });
+
+    int next = 0;
+    for (int i : order) {
+      SemanticVersion version = (SemanticVersion) array[i];
+      // Skip the intervals which end before this version. Since the versions
+      // are sorted, later versions cannot be in them either.
+      while (next < intervals.length && !intervals[next].isBelowUpper(version)) {
+        next++;
+      }
+      if (next == intervals.length) {
+        // Any remaining semantic versions can only match by name
+        if (names.isEmpty()) {
+          break;
+        }
+      }
+      else if (intervals[next].isAboveLower(version)) {
+        results.set(i);
+        continue;
+      }
+      if (!names.isEmpty() && names.contains(version.toString())) {
+        results.set(i);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Check a single version, using a binary search over the intervals.
+   */
+  public boolean contains(IVersion version)
+  {
+    if (normalized == null) {
+      return range.contains(version);
+    }
+    return normalized.contains(version);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    return normalized == null ? range.toString() : normalized.toString();
+  }
+}
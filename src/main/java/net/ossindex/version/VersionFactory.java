@@ -26,28 +26,27 @@
  */
 package net.ossindex.version;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.EmptyStackException;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import net.ossindex.version.impl.AndRange;
+import net.ossindex.version.impl.FastRangeParser;
 import net.ossindex.version.impl.NamedVersion;
 import net.ossindex.version.impl.OrRange;
+import net.ossindex.version.impl.RangeInterner;
 import net.ossindex.version.impl.VersionErrorListener;
 import net.ossindex.version.impl.VersionListener;
+import net.ossindex.version.impl.VersionParsingEngine;
 import net.ossindex.version.impl.VersionRange;
+import net.ossindex.version.impl.VersionSchemes;
 import net.ossindex.version.impl.VersionSet;
-import net.ossindex.version.parser.VersionLexer;
 import net.ossindex.version.parser.VersionParser;
-import net.ossindex.version.parser.VersionParser.RangeContext;
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 /**
  * This factory provides an appropriate version implementation for
@@ -57,18 +56,86 @@ import org.antlr.v4.runtime.tree.ParseTreeWalker;
  */
 public class VersionFactory
 {
-  private static VersionFactory strictInstance;
-
-  private static VersionFactory instance;
+  /**
+   * Shared by every factory, so that identical ranges are only held once
+   */
+  private static final RangeInterner interner = new RangeInterner();
 
   private final boolean strict;
 
   /**
-   * Private. Use "getVersionFactory" instead.
+   * Parsed ranges, or null if caching is disabled
+   */
+  private final RangeCache cache;
+
+  private final boolean fastPath;
+
+  /**
+   * Where diagnostics go, or null if nobody is listening
+   */
+  private final IDiagnosticSink diagnosticSink;
+
+  private final DiagnosticCounts diagnosticCounts = new DiagnosticCounts();
+
+  /**
+   * Where measurements go, or null if they are not wanted
+   */
+  private final IParseMetrics metrics;
+
+  /**
+   * Version schemes by lower case hint
+   */
+  private final Map<String, IVersionScheme> schemes = new HashMap<String, IVersionScheme>();
+
+  /**
+   * Private. Use "getVersionFactory" or "builder" instead.
    */
-  private VersionFactory(boolean strict)
+  private VersionFactory(Builder builder)
+  {
+    this.strict = builder.strict;
+    this.cache = builder.cache;
+    this.fastPath = builder.fastPath;
+    this.diagnosticSink = builder.diagnosticSink;
+    this.metrics = builder.metrics;
+    for (IVersionScheme scheme : VersionSchemes.getDefaults()) {
+      addScheme(scheme);
+    }
+    // Added last, so they replace the defaults
+    for (IVersionScheme scheme : builder.schemes) {
+      addScheme(scheme);
+    }
+  }
+
+  private void addScheme(IVersionScheme scheme)
   {
-    this.strict = strict;
+    for (String hint : scheme.getHints()) {
+      schemes.put(hint.toLowerCase(Locale.ENGLISH), scheme);
+    }
+  }
+
+  /**
+   * The shared factories are created the first time they are asked for. The JVM
+   * guarantees each holder class is initialized exactly once, so the getters do
+   * not need to lock.
+   */
+  private static class DefaultHolder
+  {
+    static final VersionFactory INSTANCE = builder().build();
+  }
+
+  private static class StrictHolder
+  {
+    static final VersionFactory INSTANCE = builder().strict(true).build();
+  }
+
+  private static class CachingHolder
+  {
+    static final VersionFactory INSTANCE = builder().cache(new RangeCache()).build();
+  }
+
+  private static class CachingStrictHolder
+  {
+    static final VersionFactory INSTANCE = builder().strict(true).cache(new RangeCache()).build();
   }
 
   /**
@@ -77,24 +144,81 @@ public class VersionFactory
    *
    * @return The instance of the version factory
    */
-  public synchronized static VersionFactory getVersionFactory()
+  public static VersionFactory getVersionFactory()
   {
-    if (instance == null) {
-      instance = new VersionFactory(false);
-    }
-    return instance;
+    return DefaultHolder.INSTANCE;
   }
 
   /**
    * Get a strict version factory. Strict means no versions can fall through to a named
    * version. Every version needs to cleanly parse.
    */
-  public synchronized static VersionFactory getStrictVersionFactory()
+  public static VersionFactory getStrictVersionFactory()
   {
-    if (strictInstance == null) {
-      strictInstance = new VersionFactory(true);
-    }
-    return strictInstance;
+    return StrictHolder.INSTANCE;
+  }
+
+  /**
+   * Get a version factory that caches parsed ranges. Repeated strings will skip the
+   * parser entirely. The returned ranges are shared, and are therefore frozen.
+   */
+  public static VersionFactory getCachingVersionFactory()
+  {
+    return CachingHolder.INSTANCE;
+  }
+
+  /**
+   * Get a strict version factory that caches parsed ranges. Strings which cannot be
+   * parsed are not cached.
+   */
+  public static VersionFactory getCachingStrictVersionFactory()
+  {
+    return CachingStrictHolder.INSTANCE;
+  }
+
+  /**
+   * Configure a new, independent factory. For example:
+   *
+   * VersionFactory factory = VersionFactory.builder().strict(true).cacheSize(50000).build();
+   */
+  public static Builder builder()
+  {
+    return new Builder();
+  }
+
+  public boolean isStrict()
+  {
+    return strict;
+  }
+
+  /**
+   * Get the shared instance of a range. Identical ranges (and the ranges and
+   * versions within them) are only held in memory once, for as long as
+   * something is using them. The range passed in is frozen.
+   *
+   * The caching factories intern every range they parse.
+   */
+  public IVersionRange intern(IVersionRange range)
+  {
+    return interner.intern(range);
+  }
+
+  /**
+   * Get the shared instance of a version.
+   */
+  public IVersion intern(IVersion version)
+  {
+    return interner.intern(version);
+  }
+
+  /**
+   * Get the range cache used by this factory.
+   *
+   * @return The cache, or null if this factory does not cache
+   */
+  public RangeCache getCache()
+  {
+    return cache;
   }
 
   /**
@@ -116,6 +240,9 @@ public class VersionFactory
    * Get a version implementation. A hint may be provided to help
    * choose the best implementation.
    *
+   * The result is always one the ranges from getRange can match. Use
+   * getSchemeVersion to parse with the ecosystem's own rules instead.
+   *
    * @param hint    Hint of the version style
    * @param version A string version to be parsed
    * @return A version implementation
@@ -125,74 +252,225 @@ public class VersionFactory
     return getVersion(version);
   }
 
+  /**
+   * Get a version parsed by the scheme for its ecosystem.
+   *
+   * The hint names the ecosystem the version comes from ("npm", "maven",
+   * "pypi", "gem"), and the version is parsed by that ecosystem's scheme. With
+   * no hint, or a hint without a scheme, this is the same as getVersion(version).
+   * A version the scheme rejects falls back to getVersion(version) as well,
+   * unless the factory is strict.
+   *
+   * Versions from a scheme compare against versions of the same scheme only.
+   * Apart from npm's, they are not SemanticVersions, so the ranges from
+   * getRange never contain them.
+   *
+   * @param hint    Hint of the version style
+   * @param version A string version to be parsed
+   * @return A version implementation
+   */
+  public IVersion getSchemeVersion(String hint, String version) throws InvalidRangeException
+  {
+    IVersionScheme scheme = getScheme(hint);
+    if (scheme != null && version != null) {
+      try {
+        return scheme.parseVersion(version);
+      }
+      catch (InvalidRangeException e) {
+        if (strict) {
+          throw e;
+        }
+      }
+    }
+    return getVersion(version);
+  }
+
+  /**
+   * Get the version scheme used for a hint.
+   *
+   * @param hint Hint of the version style, in any case
+   * @return The scheme, or null if there is none for the hint
+   */
+  public IVersionScheme getScheme(String hint)
+  {
+    if (hint == null) {
+      return null;
+    }
+    return schemes.get(hint.toLowerCase(Locale.ENGLISH));
+  }
+
+
+  /**
+   * Get the running totals of strings which did not cleanly parse.
+   */
+  public DiagnosticCounts getDiagnosticCounts()
+  {
+    return diagnosticCounts;
+  }
 
   /**
    * Get a version range
    */
   public IVersionRange getRange(String vstring) throws InvalidRangeException
+  {
+    return getRange(vstring, null);
+  }
+
+  /**
+   * Get a version range, reporting any diagnostics to the extra sink as well as
+   * the factory's own.
+   */
+  IVersionRange getRange(String vstring, IDiagnosticSink sink) throws InvalidRangeException
+  {
+    // Only read the clock if somebody wants to know
+    long start = metrics != null ? System.nanoTime() : 0;
+    if (cache == null || vstring == null) {
+      return parseRange(vstring, sink, start);
+    }
+    IVersionRange range = cache.get(vstring);
+    if (range == null) {
+      range = cache.put(vstring, interner.intern(parseRange(vstring, sink, start)));
+    }
+    else {
+      record(IParseMetrics.Outcome.CACHE_HIT, vstring, start);
+    }
+    return range;
+  }
+
+  /**
+   * Parse the version range
+   */
+  private IVersionRange parseRange(String vstring, IDiagnosticSink sink, long start) throws InvalidRangeException
   {
     if (vstring == null || vstring.isEmpty()) {
       if (strict) {
-        throw new InvalidRangeException("Cannot have an empty version");
+        InvalidRangeException e = new InvalidRangeException("Cannot have an empty version");
+        report(sink, vstring, e, null, ParseDiagnostic.Fallback.REJECTED);
+        record(IParseMetrics.Outcome.REJECTED, vstring, start);
+        throw e;
       } else {
         IVersion version = new NamedVersion("");
+        record(IParseMetrics.Outcome.NAMED_FALLBACK, vstring, start);
         return new VersionSet(version);
       }
     }
+    VersionErrorListener errors = null;
+    Exception failure;
     try {
-      InputStream stream = new ByteArrayInputStream(vstring.getBytes(StandardCharsets.UTF_8));
-      ANTLRInputStream input = new ANTLRInputStream(stream);
-
-      VersionErrorListener errorListener = new VersionErrorListener();
-
-      VersionLexer lexer = new VersionLexer(input);
-      lexer.removeErrorListeners();
-      lexer.addErrorListener(errorListener);
-
-      CommonTokenStream tokens = new CommonTokenStream(lexer);
-
-      VersionParser parser = new VersionParser(tokens);
-
-      parser.addErrorListener(errorListener);
-
-      RangeContext context = parser.range();
-
-      ParseTreeWalker walker = new ParseTreeWalker();
-      VersionListener listener = new VersionListener(strict);
-      walker.walk(listener, context);
+      // Most strings are trivial, and do not need the full parser
+      if (fastPath) {
+        IVersionRange simpleRange = FastRangeParser.parse(vstring);
+        if (simpleRange != null) {
+          record(IParseMetrics.Outcome.FAST_PATH, vstring, start);
+          return simpleRange;
+        }
+      }
 
-      IVersionRange range = listener.getRange();
-      if (errorListener.hasErrors()) {
-        if (strict) {
-          throw new InvalidRangeException("Parse errors on " + vstring);
+      VersionParsingEngine engine = VersionParsingEngine.get();
+      errors = engine.getErrorListener();
+      try {
+        VersionListener listener = engine.build(vstring, strict);
+
+        IVersionRange range = listener.getRange();
+        if (errors.hasErrors()) {
+          if (strict) {
+            throw new InvalidRangeException("Parse errors on " + vstring);
+          }
+          report(sink, vstring, null, errors, ParseDiagnostic.Fallback.BROKEN_RANGE);
+          range.setHasErrors(true);
         }
-        range.setHasErrors(true);
+        if (metrics != null) {
+          record(getOutcome(listener.getRangeRule()), vstring, start);
+        }
+        return range;
       }
-      return range;
-    }
-    catch (EmptyStackException e) {
-      if (strict) {
-        throw new InvalidRangeException(e);
+      finally {
+        engine.release();
       }
-      System.err.println("ERROR: Could not parse: " + vstring);
     }
     catch (InvalidRangeRuntimeException e) {
       // These are always critical. They indicate a fundamental problem with the version range.
+      report(sink, vstring, e, errors, ParseDiagnostic.Fallback.REJECTED);
+      record(IParseMetrics.Outcome.REJECTED, vstring, start);
       throw new InvalidRangeException(e.getMessage(), e);
     }
     catch (Exception e) {
-      // Parse errors and wot not will come here
+      // Parse errors, empty stacks and wot not will come here
       if (strict) {
+        report(sink, vstring, e, errors, ParseDiagnostic.Fallback.REJECTED);
+        record(IParseMetrics.Outcome.REJECTED, vstring, start);
         throw new InvalidRangeException(e);
       }
-      System.err.println("ERROR: Could not parse: " + vstring);
+      failure = e;
     }
 
     // Fall back to a named version
-    IVersion version = new NamedVersion(vstring);
+    IVersion version;
+    try {
+      version = new NamedVersion(vstring);
+    }
+    catch (InvalidRangeException e) {
+      report(sink, vstring, e, errors, ParseDiagnostic.Fallback.REJECTED);
+      record(IParseMetrics.Outcome.REJECTED, vstring, start);
+      throw e;
+    }
+    report(sink, vstring, failure, errors, ParseDiagnostic.Fallback.NAMED_VERSION);
+    record(IParseMetrics.Outcome.NAMED_FALLBACK, vstring, start);
     return new VersionSet(version);
   }
 
+  private void record(IParseMetrics.Outcome outcome, String vstring, long start)
+  {
+    if (metrics != null) {
+      metrics.record(outcome, vstring == null ? 0 : vstring.length(), System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Map an alternative of the grammar's top level rule to its outcome.
+   */
+  private static IParseMetrics.Outcome getOutcome(int rangeRule)
+  {
+    switch (rangeRule) {
+      case VersionParser.RULE_maven_ranges:
+        return IParseMetrics.Outcome.MAVEN_RANGES;
+      case VersionParser.RULE_version_set:
+        return IParseMetrics.Outcome.VERSION_SET;
+      case VersionParser.RULE_union_range:
+        return IParseMetrics.Outcome.UNION_RANGE;
+      case VersionParser.RULE_range_type:
+        return IParseMetrics.Outcome.RANGE_TYPE;
+      default:
+        return IParseMetrics.Outcome.BROKEN_RANGE;
+    }
+  }
+
+  /**
+   * Count the problem, and only build a diagnostic if somebody wants it.
+   *
+   * @param e      The exception which stopped the parse, if any
+   * @param errors The grammar's errors, or null if the grammar was not reached
+   */
+  private void report(IDiagnosticSink sink, String vstring, Exception e, VersionErrorListener errors,
+                      ParseDiagnostic.Fallback fallback)
+  {
+    boolean syntaxErrors = errors != null && errors.hasErrors();
+    diagnosticCounts.count(fallback, syntaxErrors ? errors.getErrorCount() : 0);
+    if (diagnosticSink == null && sink == null) {
+      return;
+    }
+    // The first syntax error says more than whatever it eventually led to
+    String message = syntaxErrors ? errors.getFirstErrorMessage() : (e != null ? e.getMessage() : null);
+    int position = syntaxErrors ? errors.getFirstErrorPosition() : -1;
+    ParseDiagnostic diagnostic = new ParseDiagnostic(vstring, message, position, fallback);
+    if (diagnosticSink != null) {
+      diagnosticSink.report(diagnostic);
+    }
+    if (sink != null) {
+      sink.report(diagnostic);
+    }
+  }
+
   /**
    * Join this set of ranges together. This could result in a set, or in a
    * logical range.
@@ -322,4 +600,100 @@ public class VersionFactory
 
     return new OrRange(results);
   }
+
+  /**
+   * Options for a new version factory. The defaults match getVersionFactory().
+   */
+  public static class Builder
+  {
+    private boolean strict = false;
+
+    private RangeCache cache;
+
+    private boolean fastPath = true;
+
+    private IDiagnosticSink diagnosticSink;
+
+    private IParseMetrics metrics;
+
+    private final List<IVersionScheme> schemes = new ArrayList<IVersionScheme>();
+
+    private Builder()
+    {
+    }
+
+    /**
+     * Strict factories throw InvalidRangeException for anything that does not
+     * cleanly parse, instead of falling back to a named version.
+     */
+    public Builder strict(boolean strict)
+    {
+      this.strict = strict;
+      return this;
+    }
+
+    /**
+     * Cache parsed ranges in the given cache. Null disables caching.
+     */
+    public Builder cache(RangeCache cache)
+    {
+      this.cache = cache;
+      return this;
+    }
+
+    /**
+     * Cache up to this many parsed ranges, in a cache of the factory's own.
+     */
+    public Builder cacheSize(int maximumSize)
+    {
+      this.cache = new RangeCache(maximumSize);
+      return this;
+    }
+
+    /**
+     * Try the hand written parser for simple versions and ranges before the
+     * grammar. Only worth turning off to compare against the grammar.
+     */
+    public Builder fastPath(boolean fastPath)
+    {
+      this.fastPath = fastPath;
+      return this;
+    }
+
+    /**
+     * Send a diagnostic for every string which does not cleanly parse to the
+     * sink. By default there is no sink, and nothing is reported anywhere;
+     * getDiagnosticCounts() still counts them.
+     */
+    public Builder diagnosticSink(IDiagnosticSink diagnosticSink)
+    {
+      this.diagnosticSink = diagnosticSink;
+      return this;
+    }
+
+    /**
+     * Parse versions with this scheme when getSchemeVersion is given one of its hints.
+     * Replaces any built in scheme, or scheme added earlier, for the same hints.
+     */
+    public Builder scheme(IVersionScheme scheme)
+    {
+      schemes.add(scheme);
+      return this;
+    }
+
+    /**
+     * Record how every string was handled, and how long it took. By default
+     * nothing is measured.
+     */
+    public Builder metrics(IParseMetrics metrics)
+    {
+      this.metrics = metrics;
+      return this;
+    }
+
+    public VersionFactory build()
+    {
+      return new VersionFactory(this);
+    }
+  }
 }
@@ -0,0 +1,188 @@
+package net.ossindex.version;
+
+import java.io.ByteArrayOutputStream;
+
+import net.ossindex.version.impl.ExtendedSemanticVersion;
+import net.ossindex.version.impl.NamedVersion;
+import net.ossindex.version.impl.SemanticVersion;
+
+/**
+ * Encode versions as byte strings which sort, compared byte by byte as unsigned
+ * values, in the same order as the versions themselves. Keys can be compared
+ * without creating any objects, and stored directly in sorted files and
+ * indexes.
+ *
+ * Semantic and extended semantic versions are encoded as:
+ *
+ * <pre>
+ *   0x01 major minor patch (0x01 identifiers 0x00 | 0x02) build
+ * </pre>
+ *
+ * Numbers are variable length: a byte holding how many bytes follow, then the
+ * value big-endian without leading zeros, so shorter numbers are always
+ * smaller. A pre-release (0x01) sorts below a release (0x02). Each pre-release
+ * identifier is either 0x01 and a four byte integer, or 0x02 and its characters
+ * followed by 0x00, so numeric identifiers sort below alphanumeric ones, and a
+ * shorter list of identifiers below a longer one. The build is 0 for a plain
+ * semantic version, which is how compareTo treats it.
+ *
+ * Named versions are 0x02 followed by their characters, so they sort after
+ * every semantic version, and by name among themselves.
+ *
+ * Any other version (Aether, PEP 440, gem, ...) is 0x03, the simple name of its
+ * class and 0x00, then the characters of its string form. These sort after
+ * named versions, grouped by type, and by string within a type. That string
+ * order is not the type's own compareTo order ("1.10" sorts before "1.9"), and
+ * versions that compare equal but are written differently ("1.0" and "1.0.0"
+ * in Maven) get different keys. Such keys are fine for grouping and exact
+ * lookups, but convert to a semantic version first if order matters.
+ *
+ * Characters are written so that their order is kept: 0x00 to 0x7D become a
+ * single byte one higher, anything else becomes 0x7F and the two bytes of the
+ * char.
+ *
+ * The keys agree with compareTo between any two semantic versions, and
+ * between any two named versions. compareTo between the two kinds compares
+ * strings, which is not a consistent order ("1.9.0" &lt; "1.10.0" &lt; "1.1a" &lt;
+ * "1.9.0"), so no key can follow it; keys put named versions last instead. The
+ * same applies to pre-release identifiers which mix digits and letters but
+ * start with a digit, where compareTo compares strings and the keys follow
+ * semver precedence.
+ *
+ * @author Ken Duck
+ */
+public final class VersionKey
+{
+  private static final int SEMANTIC = 0x01;
+
+  private static final int NAMED = 0x02;
+
+  private static final int OTHER = 0x03;
+
+  private static final int PRE_RELEASE = 0x01;
+
+  private static final int RELEASE = 0x02;
+
+  private static final int NUMERIC_IDENTIFIER = 0x01;
+
+  private static final int ALPHANUMERIC_IDENTIFIER = 0x02;
+
+  private static final int END = 0x00;
+
+  private static final int WIDE_CHAR = 0x7F;
+
+  private VersionKey()
+  {
+  }
+
+  /**
+   * Get the sort key for a version. Keys for versions other than semantic and
+   * named versions only sort by string, see above.
+   */
+  public static byte[] encode(IVersion version)
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+    if (version instanceof SemanticVersion) {
+      SemanticVersion sversion = (SemanticVersion) version;
+      out.write(SEMANTIC);
+      writeNumber(out, sversion.getMajor());
+      writeNumber(out, sversion.getMinor());
+      writeNumber(out, sversion.getPatch());
+      String preRelease = sversion.getPreRelease();
+      if (preRelease != null) {
+        out.write(PRE_RELEASE);
+        writePreRelease(out, preRelease);
+      }
+      else {
+        out.write(RELEASE);
+      }
+      writeNumber(out, version instanceof ExtendedSemanticVersion ? version.getBuild() : 0);
+    }
+    else if (version instanceof NamedVersion) {
+      out.write(NAMED);
+      writeChars(out, version.toString(), 0, version.toString().length());
+    }
+    else {
+      String type = version.getClass().getSimpleName();
+      String text = version.toString();
+      out.write(OTHER);
+      writeChars(out, type, 0, type.length());
+      out.write(END);
+      writeChars(out, text, 0, text.length());
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Compare two keys as unsigned bytes, the shorter key first if one is a
+   * prefix of the other.
+   */
+  public static int compare(byte[] key1, byte[] key2)
+  {
+    int lim = Math.min(key1.length, key2.length);
+    for (int i = 0; i < lim; i++) {
+      int b1 = key1[i] & 0xFF;
+      int b2 = key2[i] & 0xFF;
+      if (b1 != b2) {
+        return b1 - b2;
+      }
+    }
+    return key1.length - key2.length;
+  }
+
+  private static void writePreRelease(ByteArrayOutputStream out, String preRelease)
+  {
+    int len = preRelease.length();
+    int start = 0;
+    while (start <= len) {
+      int end = preRelease.indexOf('.', start);
+      if (end < 0) {
+        end = len;
+      }
+      long value = SemanticVersion.parseIdentifier(preRelease, start, end);
+      if (value != SemanticVersion.NOT_AN_INT) {
+        // Flip the sign bit so negative values sort below positive ones
+        int bits = (int) value ^ Integer.MIN_VALUE;
+        out.write(NUMERIC_IDENTIFIER);
+        out.write(bits >>> 24);
+        out.write(bits >>> 16);
+        out.write(bits >>> 8);
+        out.write(bits);
+      }
+      else {
+        out.write(ALPHANUMERIC_IDENTIFIER);
+        writeChars(out, preRelease, start, end);
+        out.write(END);
+      }
+      start = end + 1;
+    }
+    out.write(END);
+  }
+
+  /**
+   * Write a non-negative number as its length in bytes followed by the bytes.
+   */
+  private static void writeNumber(ByteArrayOutputStream out, int value)
+  {
+    int bytes = (32 - Integer.numberOfLeadingZeros(value) + 7) / 8;
+    out.write(bytes);
+    for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+      out.write(value >>> shift);
+    }
+  }
+
+  private static void writeChars(ByteArrayOutputStream out, String s, int start, int end)
+  {
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (c < WIDE_CHAR - 1) {
+        out.write(c + 1);
+      }
+      else {
+        out.write(WIDE_CHAR);
+        out.write(c >>> 8);
+        out.write(c);
+      }
+    }
+  }
+}
@@ -1,11 +1,13 @@
 package net.ossindex.version.impl;
 
+import net.ossindex.version.IFreezableRange;
 import net.ossindex.version.IVersion;
 import net.ossindex.version.IVersionRange;
 
 public abstract class AbstractCommonRange
-    implements IVersionRange
+    implements IFreezableRange
 {
+  private volatile boolean frozen = false;
 
   @Override
   public int compareTo(IVersionRange yourRange) {
@@ -23,4 +25,50 @@ public abstract class AbstractCommonRange
   public IVersionRange invert() {
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Compile the range into its canonical form: sorted, non-overlapping intervals
+   * plus any named versions. The result contains exactly the same versions.
+   *
+   * @throws UnsupportedOperationException If the range cannot be normalized
+   */
+  public NormalizedRange normalize() {
+    return NormalizedRange.of(this);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IFreezableRange#freeze()
+   */
+  @Override
+  public void freeze() {
+    frozen = true;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IFreezableRange#isFrozen()
+   */
+  @Override
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Freeze the range, if it is one that can be frozen.
+   */
+  static void freeze(IVersionRange range) {
+    if (range instanceof IFreezableRange) {
+      ((IFreezableRange) range).freeze();
+    }
+  }
+
+  /**
+   * Called by mutators. Frozen ranges may be shared between threads, so must not change.
+   */
+  protected void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException("Cannot modify a frozen range: " + this);
+    }
+  }
 }
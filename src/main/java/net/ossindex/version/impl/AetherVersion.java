@@ -26,7 +26,9 @@
  */
 package net.ossindex.version.impl;
 
-import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Locale;
 
 import net.ossindex.version.IVersion;
 import org.eclipse.aether.util.version.GenericVersionScheme;
@@ -34,10 +36,12 @@ import org.eclipse.aether.version.InvalidVersionSpecificationException;
 import org.eclipse.aether.version.Version;
 import org.eclipse.aether.version.VersionScheme;
 
-/** Wrapper around the aether version.
+/** A Maven version, ordered the same way as Aether's generic version scheme.
  *
- * This uses terrible reflection kludges to get details. Not guaranteed to work
- * in the future.
+ * The version is split into items exactly as Aether's GenericVersion does it:
+ * numbers, known qualifiers (alpha, beta, milestone, rc/cr, snapshot, ga/final,
+ * sp) and other strings, with trailing zero items trimmed. The items are kept
+ * in plain arrays, so parsing and comparing do not need Aether at all.
  *
  * @author Ken Duck
  *
@@ -45,9 +49,36 @@ import org.eclipse.aether.version.VersionScheme;
 public class AetherVersion
     implements IVersion
 {
+  // Item kinds, ordered as in Aether. Kinds with the QUALIFIER bit set are not
+  // numbers.
+  private static final byte KIND_MIN = 0;
+
+  private static final byte KIND_QUALIFIER = 2;
+
+  private static final byte KIND_STRING = 3;
+
+  private static final byte KIND_INT = 4;
+
+  private static final byte KIND_BIGINT = 5;
+
+  private static final byte KIND_MAX = 8;
+
+  private static final int QUALIFIER_ALPHA = -5;
+
+  private static final int QUALIFIER_BETA = -4;
+
+  private static final int QUALIFIER_MILESTONE = -3;
+
+  private static final String[] QUALIFIER_NAMES = { "alpha", "beta", "milestone", "cr", "rc", "snapshot", "ga", "final", "sp" };
+
+  private static final int[] QUALIFIER_RANKS = { QUALIFIER_ALPHA, QUALIFIER_BETA, QUALIFIER_MILESTONE, -2, -2, -1, 0, 0, 1 };
+
+  private static final int NOT_A_QUALIFIER = Integer.MIN_VALUE;
+
+  private static final VersionScheme SCHEME = new GenericVersionScheme();
 
   /**
-   * We may be able to dig this information out
+   * The leading numbers of the version
    */
   int major = -1; // -1 means none have been set
 
@@ -55,94 +86,338 @@ public class AetherVersion
 
   int patch = -1;
 
+  private final String version;
+
+  private final byte[] kinds;
+
   /**
-   * Underlying implementation
+   * The value of int and qualifier items
    */
-  private Version version;
+  private final int[] values;
+
+  /**
+   * The value of string and big integer items, null if there are none
+   */
+  private final Object[] objects;
+
+  private final int hash;
 
   /**
    * Indicates whether we think this is a stable version or not
    */
   private boolean stable = true;
 
-  /** Parse the version. Try and pull detail information from the private fields.
+  /**
+   * The Aether version, created on demand.
+   */
+  private volatile Version versionImpl;
+
+  /** Parse the version.
    *
    * @param version
    * @throws InvalidVersionSpecificationException
    */
   public AetherVersion(String version) throws InvalidVersionSpecificationException
   {
-    VersionScheme scheme = new GenericVersionScheme();
-    this.version = scheme.parseVersion(version);
+    this.version = version;
 
-    try {
-      // Try to read through the private items of the class to retrieve
-      // interesting information
-      Field field = this.version.getClass().getDeclaredField("items");
-      Field iField = null;
-      try {
-        field.setAccessible(true);
-        Object[] items = (Object[]) field.get(this.version);
-        for (Object item : items) {
-          if (iField == null) {
-            iField = item.getClass().getDeclaredField("value");
-            iField.setAccessible(true);
+    String s = version.length() > 0 ? version : "0";
+    int n = s.length();
+    // Every item uses at least one character
+    byte[] kinds = new byte[n];
+    int[] values = new int[n];
+    Object[] objects = null;
+    int size = 0;
+
+    int index = 0;
+    while (index < n) {
+      int state = -2;
+      int start = index;
+      int end = n;
+      boolean terminatedByNumber = false;
+
+      for (; index < n; index++) {
+        char c = s.charAt(index);
+        if (c == '.' || c == '-' || c == '_') {
+          end = index;
+          index++;
+          break;
+        }
+        int digit = Character.digit(c, 10);
+        if (digit >= 0) {
+          if (state == -1) {
+            end = index;
+            terminatedByNumber = true;
+            break;
           }
-          Object itemValue = iField.get(item);
-          if (itemValue instanceof Integer) {
-            if (major < 0) {
-              major = (Integer) itemValue;
-            }
-            else if (minor < 0) {
-              minor = (Integer) itemValue;
-            }
-            else if (patch < 0) {
-              patch = (Integer) itemValue;
-            }
+          if (state == 0) {
+            // Strip leading zeros
+            start++;
           }
-          else {
-            if (major >= 0) {
-              String s = itemValue.toString();
-              // Some strings denote a stable build
-              if ("ga".equals(s)) {
-                ;
-              }
-              else if ("final".equals(s)) {
-                ;
-              }
-              else if ("sp".equals(s)) {
-                ;
-              }
-
-              // Otherwise this is an unstable build
-              else {
-                stable = false;
-              }
-            }
+          state = (state > 0 || digit > 0) ? 1 : 0;
+        }
+        else {
+          if (state >= 0) {
+            end = index;
+            break;
           }
+          state = -1;
         }
+      }
 
-        if (minor < 0) {
-          minor = 0;
+      if (end - start <= 0) {
+        kinds[size] = KIND_INT;
+        values[size] = 0;
+      }
+      else if (state >= 0) {
+        if (end - start < 10) {
+          int value = 0;
+          for (int i = start; i < end; i++) {
+            value = value * 10 + Character.digit(s.charAt(i), 10);
+          }
+          kinds[size] = KIND_INT;
+          values[size] = value;
         }
-        if (patch < 0) {
-          patch = 0;
+        else {
+          kinds[size] = KIND_BIGINT;
+          objects = set(objects, n, size, new BigInteger(s.substring(start, end)));
         }
       }
-      finally {
-        // Privatize the fields again
-        if (field != null) {
-          field.setAccessible(false);
+      else if (index >= n && isWord(s, start, end, "min")) {
+        kinds[size] = KIND_MIN;
+      }
+      else if (index >= n && isWord(s, start, end, "max")) {
+        kinds[size] = KIND_MAX;
+      }
+      else {
+        int qualifier = qualifier(s, start, end, terminatedByNumber);
+        if (qualifier != NOT_A_QUALIFIER) {
+          kinds[size] = KIND_QUALIFIER;
+          values[size] = qualifier;
         }
-        if (iField != null) {
-          iField.setAccessible(false);
+        else {
+          kinds[size] = KIND_STRING;
+          objects = set(objects, n, size, s.substring(start, end).toLowerCase(Locale.ENGLISH));
+        }
+      }
+      size++;
+    }
+
+    size = trimPadding(kinds, values, objects, size);
+    this.kinds = Arrays.copyOf(kinds, size);
+    this.values = Arrays.copyOf(values, size);
+    this.objects = objects == null ? null : Arrays.copyOf(objects, size);
+
+    int hash = 1;
+    for (int i = 0; i < size; i++) {
+      hash = 31 * hash + (this.objects != null && this.objects[i] != null ? this.objects[i].hashCode() : values[i]);
+      hash = 31 * hash + this.kinds[i];
+    }
+    this.hash = hash;
+
+    // The numbers before the first qualifier are the major, minor and patch
+    boolean leading = true;
+    for (int i = 0; i < size; i++) {
+      if (!isNumber(i)) {
+        leading = false;
+        if (this.kinds[i] != KIND_QUALIFIER || values[i] < 0) {
+          // ga, final and sp are stable, anything else is not
+          stable = false;
+        }
+      }
+      else if (leading && this.kinds[i] == KIND_INT) {
+        if (major < 0) {
+          major = values[i];
+        }
+        else if (minor < 0) {
+          minor = values[i];
+        }
+        else if (patch < 0) {
+          patch = values[i];
+        }
+      }
+    }
+    if (minor < 0) {
+      minor = 0;
+    }
+    if (patch < 0) {
+      patch = 0;
+    }
+  }
+
+  private static boolean isWord(String s, int start, int end, String word)
+  {
+    return end - start == word.length() && s.regionMatches(true, start, word, 0, word.length());
+  }
+
+  /**
+   * Look up a non-numeric token.
+   *
+   * @return The rank of a known qualifier, or NOT_A_QUALIFIER
+   */
+  private static int qualifier(String s, int start, int end, boolean terminatedByNumber)
+  {
+    if (terminatedByNumber && end - start == 1) {
+      switch (s.charAt(start)) {
+        case 'a':
+        case 'A':
+          return QUALIFIER_ALPHA;
+        case 'b':
+        case 'B':
+          return QUALIFIER_BETA;
+        case 'm':
+        case 'M':
+          return QUALIFIER_MILESTONE;
+      }
+    }
+    for (int i = 0; i < QUALIFIER_NAMES.length; i++) {
+      if (isWord(s, start, end, QUALIFIER_NAMES[i])) {
+        return QUALIFIER_RANKS[i];
+      }
+    }
+    return NOT_A_QUALIFIER;
+  }
+
+  private static Object[] set(Object[] objects, int capacity, int index, Object value)
+  {
+    if (objects == null) {
+      objects = new Object[capacity];
+    }
+    objects[index] = value;
+    return objects;
+  }
+
+  /**
+   * Remove trailing zero items ("0", "ga", "final") at the end of each run of
+   * numbers or of qualifiers, as Aether does.
+   *
+   * @return The new number of items
+   */
+  private static int trimPadding(byte[] kinds, int[] values, Object[] objects, int size)
+  {
+    Boolean number = null;
+    int end = size - 1;
+    for (int i = end; i > 0; i--) {
+      boolean isNumber = isNumber(kinds[i]);
+      if (number == null || number != isNumber) {
+        end = i;
+        number = isNumber;
+      }
+      if (end == i && (i == size - 1 || isNumber(kinds[i - 1]) == isNumber)
+          && comparePad(kinds[i], values[i]) == 0) {
+        // Remove item i
+        int tail = size - i - 1;
+        System.arraycopy(kinds, i + 1, kinds, i, tail);
+        System.arraycopy(values, i + 1, values, i, tail);
+        if (objects != null) {
+          System.arraycopy(objects, i + 1, objects, i, tail);
         }
+        size--;
+        end--;
       }
     }
-    catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
-      e.printStackTrace();
+    return size;
+  }
+
+  private static boolean isNumber(byte kind)
+  {
+    return (kind & KIND_QUALIFIER) == 0;
+  }
+
+  private boolean isNumber(int index)
+  {
+    return isNumber(kinds[index]);
+  }
+
+  /**
+   * Compare an item with the padding item (0 or "ga").
+   */
+  private static int comparePad(byte kind, int value)
+  {
+    switch (kind) {
+      case KIND_MIN:
+        return -1;
+      case KIND_MAX:
+      case KIND_BIGINT:
+      case KIND_STRING:
+        return 1;
+      default:
+        return value;
     }
+  }
+
+  private int compareItem(int index, AetherVersion that, int thatIndex)
+  {
+    int rel = kinds[index] - that.kinds[thatIndex];
+    if (rel != 0) {
+      return rel;
+    }
+    switch (kinds[index]) {
+      case KIND_BIGINT:
+        return ((BigInteger) objects[index]).compareTo((BigInteger) that.objects[thatIndex]);
+      case KIND_STRING:
+        return ((String) objects[index]).compareToIgnoreCase((String) that.objects[thatIndex]);
+      case KIND_INT:
+      case KIND_QUALIFIER:
+        int v1 = values[index];
+        int v2 = that.values[thatIndex];
+        return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+      default:
+        return 0;
+    }
+  }
 
+  /**
+   * Compare the remaining items with padding, stopping at the first item which
+   * is not of the given kind (when there is one).
+   */
+  private int comparePadding(int index, Boolean number)
+  {
+    int rel = 0;
+    for (int i = index; i < kinds.length; i++) {
+      if (number != null && number != isNumber(i)) {
+        break;
+      }
+      rel = comparePad(kinds[i], values[i]);
+      if (rel != 0) {
+        break;
+      }
+    }
+    return rel;
+  }
+
+  /**
+   * Compare using Aether's rules for generic versions.
+   */
+  private int compareAether(AetherVersion that)
+  {
+    boolean number = true;
+    for (int index = 0; ; index++) {
+      if (index >= kinds.length && index >= that.kinds.length) {
+        return 0;
+      }
+      else if (index >= kinds.length) {
+        return -that.comparePadding(index, null);
+      }
+      else if (index >= that.kinds.length) {
+        return comparePadding(index, null);
+      }
+
+      boolean thisNumber = isNumber(index);
+      if (thisNumber != that.isNumber(index)) {
+        if (number == thisNumber) {
+          return comparePadding(index, number);
+        }
+        else {
+          return -that.comparePadding(index, number);
+        }
+      }
+      int rel = compareItem(index, that, index);
+      if (rel != 0) {
+        return rel;
+      }
+      number = thisNumber;
+    }
   }
 
   /*
@@ -152,7 +427,34 @@ public class AetherVersion
   @Override
   public int compareTo(IVersion o)
   {
-    return 0;
+    if (o instanceof AetherVersion) {
+      return compareAether((AetherVersion) o);
+    }
+    // Fall back to simple string comparison
+    return version.compareTo(o.toString());
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    return o instanceof AetherVersion && compareAether((AetherVersion) o) == 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   *
+   * As with Aether, the hash is of the items. Versions which only compare equal
+   * because of padding ("" and "r01") may hash differently.
+   */
+  @Override
+  public int hashCode()
+  {
+    return hash;
   }
 
   /*
@@ -204,13 +506,24 @@ public class AetherVersion
     return stable;
   }
 
-  /** Get the underlying implementation
+  /** Get the equivalent Aether version. This is built on first use.
    *
    * @return
    */
   public Version getVersionImpl()
   {
-    return version;
+    Version impl = versionImpl;
+    if (impl == null) {
+      try {
+        impl = SCHEME.parseVersion(version);
+      }
+      catch (InvalidVersionSpecificationException e) {
+        // The generic scheme accepts any string
+        throw new IllegalStateException(e);
+      }
+      versionImpl = impl;
+    }
+    return impl;
   }
 
   /*
@@ -220,6 +533,6 @@ public class AetherVersion
   @Override
   public String toString()
   {
-    return version.toString();
+    return version;
   }
 }
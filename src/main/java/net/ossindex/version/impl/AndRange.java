@@ -42,9 +42,9 @@ public class AndRange
   /**
    *
    */
-  protected IVersionRange range1;
+  protected final IVersionRange range1;
 
-  protected IVersionRange range2;
+  protected final IVersionRange range2;
 
   private String type;
 
@@ -120,6 +120,34 @@ public class AndRange
     }
   }
 
+  /**
+   * Copy the parts of an existing range as they are, without checking or
+   * reordering them. Used when rebuilding a range whose order is already settled.
+   */
+  AndRange(AndRange range, IVersionRange range1, IVersionRange range2)
+  {
+    this(range1, range2, range.isBounded);
+  }
+
+  /**
+   * Build a range from parts which are known to be in the right order, such as
+   * when decoding a range which was built earlier.
+   */
+  AndRange(IVersionRange range1, IVersionRange range2, boolean isBounded)
+  {
+    this.range1 = range1;
+    this.range2 = range2;
+    this.isBounded = isBounded;
+  }
+
+  /**
+   * Returns true if this is a lower bound followed by an upper bound.
+   */
+  boolean isBounded()
+  {
+    return isBounded;
+  }
+
   /*
    * (non-Javadoc)
    * @see net.ossindex.version.IVersionRange#contains(net.ossindex.version.IVersion)
@@ -218,21 +246,28 @@ public class AndRange
     return this;
   }
 
+  /**
+   * If no type was set, use the type of our ranges. This is not remembered, so
+   * that reading a shared range never writes to it.
+   */
   public String getType() {
-    if (type == null) {
-      type = range1.getType();
+    if (type != null) {
+      return type;
     }
-    if (type == null) {
-      type = range2.getType();
+    String rangeType = range1.getType();
+    if (rangeType == null) {
+      rangeType = range2.getType();
     }
-    return type;
+    return rangeType;
   }
 
   public void setType(String type) {
+    checkNotFrozen();
     this.type = type;
   }
 
   public void setHasErrors(boolean b) {
+    checkNotFrozen();
     hasErrors = b;
   }
 
@@ -290,6 +325,16 @@ public class AndRange
   }
 
 
+  /**
+   * Freeze the contained ranges as well
+   */
+  @Override
+  public void freeze() {
+    freeze(range1);
+    freeze(range2);
+    super.freeze();
+  }
+
   public IVersionRange first() {
     return range1;
   }
@@ -297,4 +342,33 @@ public class AndRange
   public IVersionRange last() {
     return range2;
   }
+
+  /**
+   * Ranges are equal if both of their parts are equal, in the same order, and
+   * they agree on whether they are bounded (which changes getMaximum).
+   *
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof AndRange)) {
+      return false;
+    }
+    AndRange other = (AndRange) o;
+    return isBounded == other.isBounded && range1.equals(other.range1) && range2.equals(other.range2);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    return 31 * (31 * (isBounded ? 1 : 0) + range1.hashCode()) + range2.hashCode();
+  }
 }
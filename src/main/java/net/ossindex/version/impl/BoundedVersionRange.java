@@ -46,14 +46,14 @@ public class BoundedVersionRange
   /**
    * Used for both atomic and simple versions
    */
-  private IVersion minimum;
+  private final IVersion minimum;
 
-  private IVersion maximum;
+  private final IVersion maximum;
 
   /**
    * Remember the range for toString
    */
-  private String range;
+  private final String range;
 
   private boolean hasErrors = false;
 
@@ -64,6 +64,8 @@ public class BoundedVersionRange
   public BoundedVersionRange(SemanticVersion version)
   {
     this.minimum = version;
+    this.maximum = null;
+    this.range = null;
   }
 
   /** Inclusive range
@@ -182,10 +184,12 @@ public class BoundedVersionRange
   }
 
   public void setType(String type) {
+    checkNotFrozen();
     this.type = type;
   }
 
   public void setHasErrors(boolean b) {
+    checkNotFrozen();
     hasErrors = b;
   }
 
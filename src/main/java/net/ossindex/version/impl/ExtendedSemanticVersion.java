@@ -12,9 +12,9 @@ public class ExtendedSemanticVersion
     extends SemanticVersion
 {
   /**
-   * The trailing values are considered the tail
+   * The fourth digit
    */
-  private SemanticVersion tail;
+  private int build;
 
   private String postfix;
 
@@ -23,8 +23,8 @@ public class ExtendedSemanticVersion
    */
   protected ExtendedSemanticVersion(int major, int minor, int patch, int build)
   {
-    head = Version.forIntegers(major, minor, patch);
-    tail = new SemanticVersion(build);
+    setNormalVersion(major, minor, patch);
+    setBuild(build);
     significantDigits = 4;
   }
 
@@ -33,39 +33,35 @@ public class ExtendedSemanticVersion
    */
   protected ExtendedSemanticVersion(int major, int minor, int patch, int build, String postfix)
   {
-    head = Version.forIntegers(major, minor, patch);
-    tail = new SemanticVersion(build);
+    setNormalVersion(major, minor, patch);
+    setBuild(build);
     this.postfix = postfix;
     significantDigits = 4;
   }
 
-  @Override
-  public int getBuild() {
-    return tail.getMajor();
+  private void setBuild(int build)
+  {
+    if (build < 0) {
+      throw new IllegalArgumentException("Major, minor and patch versions MUST be non-negative integers.");
+    }
+    this.build = build;
   }
 
   @Override
-  public boolean isStable() {
-    return true;
+  public int getBuild() {
+    return build;
   }
 
-  /*
-   * (non-Javadoc)
-   * @see java.lang.Object#equals(java.lang.Object)
+  /**
+   * @return The text after the fourth digit, or null if there is none
    */
-  @Override
-  public boolean equals(Object o)
-  {
-    if (o instanceof ExtendedSemanticVersion) {
-      ExtendedSemanticVersion v = (ExtendedSemanticVersion) o;
-
-      if (!this.head.equals(v.head)) {
-        return false;
-      }
+  String getPostfix() {
+    return postfix;
+  }
 
-      return this.tail.equals(v.tail);
-    }
-    return false;
+  @Override
+  public boolean isStable() {
+    return true;
   }
 
   /*
@@ -75,29 +71,33 @@ public class ExtendedSemanticVersion
   @Override
   public int hashCode()
   {
-    if (head != null) {
-      return head.hashCode();
+    // A zero build is equal to the plain semantic version
+    if (build == 0) {
+      return super.hashCode();
     }
-    return super.hashCode();
+    return 31 * super.hashCode() + build;
   }
 
   @Override
   public int compareTo(IVersion other) {
     if (other instanceof ExtendedSemanticVersion) {
       ExtendedSemanticVersion sv = (ExtendedSemanticVersion) other;
-      int diff = this.head.compareTo(sv.head);
+      int diff = compareSemantic(sv);
       if (diff != 0) {
         return diff;
       }
-      return this.tail.compareTo(sv.tail);
+      if (build != sv.build) {
+        return build < sv.build ? -1 : 1;
+      }
+      return 0;
     }
     else if (other instanceof SemanticVersion) {
       SemanticVersion sv = (SemanticVersion) other;
-      int diff = this.head.compareTo(sv.head);
+      int diff = compareSemantic(sv);
       if (diff != 0) {
         return diff;
       }
-      if (tail.getMajor() == 0) {
+      if (build == 0) {
         return 0;
       }
       return 1;
@@ -112,132 +112,43 @@ public class ExtendedSemanticVersion
 
   /*
    * (non-Javadoc)
-   * @see java.lang.Object#toString()
+   * @see net.ossindex.version.impl.SemanticVersion#createString()
    */
   @Override
-  public String toString()
+  protected String createString()
   {
     // Currently we only support a single extra digit for extended semver,
     // we will have to support more soon.
+    StringBuilder sb = new StringBuilder();
+    appendSemanticString(sb);
+    sb.append('.').append(build);
     if (postfix != null) {
-      return head.toString() + "." + tail.getMajor() + "-" + postfix;
-    }
-    return head.toString() + "." + tail.getMajor();
-  }
-
-  public boolean lessThan(IVersion version) {
-    // Can the versions be compared?
-    if (!(version instanceof SemanticVersion)) {
-      return false;
-    }
-
-    if (head.lessThan(((SemanticVersion) version).head)) {
-      return true;
-    }
-
-    if (head.greaterThan(((SemanticVersion) version).head)) {
-      return false;
+      sb.append('-').append(postfix);
     }
-
-    if (version instanceof ExtendedSemanticVersion) {
-      return tail.lessThan(((ExtendedSemanticVersion) version).tail);
-    }
-
-    // FIXME: We don't compare postfix yet
-
-    return false;
+    return sb.toString();
   }
 
-  public boolean lessThanOrEqualTo(IVersion version) {
-    // Can the versions be compared?
-    if (!(version instanceof SemanticVersion)) {
-      return false;
-    }
-
-    // Less than automatically works
-    if (head.lessThan(((SemanticVersion) version).head)) {
-      return true;
-    }
-
-    if (head.greaterThan(((SemanticVersion) version).head)) {
-      return false;
-    }
-
-    if (version instanceof ExtendedSemanticVersion) {
-      return tail.lessThanOrEqualTo(((ExtendedSemanticVersion) version).tail);
-    }
-    else {
-      // Equals is still possible
-      if (tail.getMajor() == 0) {
-        return true;
-      }
-    }
-
-    // FIXME: We don't compare postfix yet
-    return false;
-  }
-
-  public boolean greaterThan(IVersion version) {
-    // Can the versions be compared?
-    if (!(version instanceof SemanticVersion)) {
-      return false;
-    }
-
-    if (head.greaterThan(((SemanticVersion) version).head)) {
-      return true;
-    }
-
-    if (head.lessThan(((SemanticVersion) version).head)) {
-      return false;
-    }
-
-    if (version instanceof ExtendedSemanticVersion) {
-      return tail.greaterThan(((ExtendedSemanticVersion) version).tail);
-    }
-
-    return true;
-  }
-
-  public boolean greaterThanOrEqualTo(IVersion version) {
-    // Can the versions be compared?
-    if (!(version instanceof SemanticVersion)) {
-      return false;
-    }
-
-    if (head.greaterThan(((SemanticVersion) version).head)) {
-      return true;
-    }
-
-    if (head.lessThan(((SemanticVersion) version).head)) {
-      return false;
-    }
-
-    if (version instanceof ExtendedSemanticVersion) {
-      return tail.greaterThanOrEqualTo(((ExtendedSemanticVersion) version).tail);
-    }
-    else {
-      if (tail.getMajor() >= 0) {
-        return true;
-      }
-    }
-    return false;
+  /**
+   * jsemver has no room for the build, so only the first three digits are
+   * represented.
+   */
+  @Override
+  protected Version createVersionImpl()
+  {
+    return Version.forIntegers(major, minor, patch);
   }
 
   @Override
   public SemanticVersion getNextVersion() {
-    int major = head.getMajorVersion();
-    int minor = head.getMinorVersion();
-    int patch = head.getPatchVersion();
-    int build = tail.getMajor();
     return new ExtendedSemanticVersion(major, minor, patch, build + 1);
   }
 
   @Override
   public SemanticVersion getNextParentVersion() {
-    int major = head.getMajorVersion();
-    int minor = head.getMinorVersion();
-    int patch = head.getPatchVersion();
-    int build = tail.getMajor();
+    int major = this.major;
+    int minor = this.minor;
+    int patch = this.patch;
+    int build = this.build;
 
     switch (significantDigits) {
       case 1:
@@ -0,0 +1,332 @@
+package net.ossindex.version.impl;
+
+import net.ossindex.version.IVersionRange;
+import net.ossindex.version.impl.VersionRange.Operator;
+
+/**
+ * Hand written scanner for the most common, trivial inputs:
+ *
+ *   1.2.3, 4.0, 1.2.3-beta, >=2.1.0, <3, ~> 1.9, ^1.2.3, >=1.2.0 <1.2.9
+ *
+ * These make up the vast majority of what we parse, and do not need the full
+ * ANTLR grammar. The scanner builds exactly the same objects the VersionListener
+ * would. If the input is anything other than one of these simple shapes (maven
+ * ranges, sets, unions, broken ranges, named versions, etc.) then null is returned
+ * and the caller should fall back to the real parser.
+ *
+ * Nothing is allocated until we know we have a match.
+ *
+ * @author Ken Duck
+ */
+public final class FastRangeParser
+{
+  private static final int MAX_DIGITS = 9;
+
+  private static final int LT = 1;
+
+  private static final int LE = 2;
+
+  private static final int GT = 3;
+
+  private static final int GE = 4;
+
+  private static final int PESSIMISTIC = 5;
+
+  private static final int CARET = 6;
+
+  private final String input;
+
+  private final int length;
+
+  private int pos;
+
+  // Components of the most recently scanned version
+  private int count;
+
+  private final int[] numbers = new int[4];
+
+  private boolean leadingZeroes;
+
+  private int identStart;
+
+  private int identEnd;
+
+  private FastRangeParser(String input) {
+    this.input = input;
+    this.length = input.length();
+  }
+
+  /**
+   * Parse the string if it is a simple version or range.
+   *
+   * @return The range, or null if the input needs to be handled by the full parser.
+   */
+  public static IVersionRange parse(String input) {
+    if (input == null || input.isEmpty()) {
+      return null;
+    }
+    return new FastRangeParser(input).parseRange();
+  }
+
+  private IVersionRange parseRange() {
+    skipWhitespace();
+    if (pos == length) {
+      return null;
+    }
+    char c = input.charAt(pos);
+    if (isDigit(c) || c == '=') {
+      if (c == '=') {
+        pos++;
+      }
+      if (!scanVersion(false)) {
+        return null;
+      }
+      skipWhitespace();
+      if (pos != length) {
+        return null;
+      }
+      SemanticVersion version = buildVersion();
+      return version == null ? null : new VersionSet(version);
+    }
+
+    int op1 = scanOperator();
+    if (op1 == 0 || !scanVersion(true)) {
+      return null;
+    }
+    // The pessimistic operator needs to know the significant digits of the version
+    if (op1 == PESSIMISTIC && (count < 2 || identStart >= 0)) {
+      return null;
+    }
+    SemanticVersion v1 = buildVersion();
+    if (v1 == null) {
+      return null;
+    }
+    int end = pos;
+    skipWhitespace();
+    if (pos == length) {
+      return buildRange(op1, v1);
+    }
+
+    // Possibly a second range, anded with the first
+    if (op1 == PESSIMISTIC || op1 == CARET) {
+      return null;
+    }
+    char sep = input.charAt(pos);
+    if (sep == ',' || sep == '&') {
+      pos++;
+      skipWhitespace();
+    }
+    else if (pos == end) {
+      // Ranges must be separated by something
+      return null;
+    }
+    int op2 = scanOperator();
+    if (op2 == 0 || op2 == PESSIMISTIC || op2 == CARET || !scanVersion(true)) {
+      return null;
+    }
+    SemanticVersion v2 = buildVersion();
+    if (v2 == null) {
+      return null;
+    }
+    skipWhitespace();
+    if (pos != length) {
+      return null;
+    }
+    return new AndRange(buildRange(op1, v1), buildRange(op2, v2));
+  }
+
+  /**
+   * Consume an operator and any whitespace following it.
+   */
+  private int scanOperator() {
+    if (pos + 1 >= length) {
+      return 0;
+    }
+    int op = 0;
+    char c = input.charAt(pos);
+    char next = input.charAt(pos + 1);
+    switch (c) {
+      case '<':
+        op = next == '=' ? LE : LT;
+        break;
+      case '>':
+        op = next == '=' ? GE : GT;
+        break;
+      case '~':
+        op = next == '>' ? PESSIMISTIC : 0;
+        break;
+      case '^':
+        op = CARET;
+        break;
+      default:
+        return 0;
+    }
+    if (op == LE || op == GE || op == PESSIMISTIC) {
+      pos += 2;
+    }
+    else {
+      pos++;
+    }
+    skipWhitespace();
+    return op;
+  }
+
+  /**
+   * Scan a numeric or postfix version, remembering where the pieces are.
+   *
+   * @param inRange If true the version may be followed by an operator separator
+   */
+  private boolean scanVersion(boolean inRange) {
+    count = 0;
+    leadingZeroes = false;
+    identStart = -1;
+    identEnd = -1;
+
+    while (count < 4) {
+      int n = scanNumber();
+      if (n < 0) {
+        return false;
+      }
+      numbers[count++] = n;
+      if (count < 4 && pos + 1 < length && input.charAt(pos) == '.' && isDigit(input.charAt(pos + 1))) {
+        pos++;
+        continue;
+      }
+      break;
+    }
+
+    if (pos == length) {
+      return true;
+    }
+
+    char c = input.charAt(pos);
+    if (c == '.' && pos + 1 == length) {
+      // Trailing dots are stripped
+      pos++;
+      return true;
+    }
+
+    // Optional separator followed by the identifier
+    int start = pos;
+    if (c == '.' || c == '-' || c == '_') {
+      start++;
+    }
+    if (start < length && isLetter(input.charAt(start))) {
+      if (count < 2) {
+        return false;
+      }
+      pos = start;
+      while (pos < length && isLetterOrDigit(input.charAt(pos))) {
+        pos++;
+      }
+      identStart = start;
+      identEnd = pos;
+      if (pos == length) {
+        return true;
+      }
+      c = input.charAt(pos);
+    }
+    return isWhitespace(c) || (inRange && (c == ',' || c == '&'));
+  }
+
+  /**
+   * @return The value of the number at the current position, or -1 if there is no
+   * number or it is too large to safely parse.
+   */
+  private int scanNumber() {
+    int start = pos;
+    int value = 0;
+    while (pos < length && isDigit(input.charAt(pos))) {
+      value = value * 10 + (input.charAt(pos) - '0');
+      pos++;
+    }
+    int digits = pos - start;
+    if (digits == 0 || digits > MAX_DIGITS) {
+      return -1;
+    }
+    if (digits > 1 && input.charAt(start) == '0') {
+      leadingZeroes = true;
+    }
+    return value;
+  }
+
+  /**
+   * Build the version, following the same rules as VersionListener.
+   */
+  private SemanticVersion buildVersion() {
+    if (identStart < 0) {
+      switch (count) {
+        case 1:
+          return new SemanticVersion(numbers[0]);
+        case 2:
+          return new SemanticVersion(numbers[0], numbers[1]);
+        case 3:
+          return new SemanticVersion(numbers[0], numbers[1], numbers[2]);
+        default:
+          return new ExtendedSemanticVersion(numbers[0], numbers[1], numbers[2], numbers[3]);
+      }
+    }
+
+    // Postfix versions are built from the original text, which means leading zeroes
+    // are significant. Release identifiers also have special handling. Leave these
+    // to the full parser.
+    if (leadingZeroes || isReleaseIdentifier()) {
+      return null;
+    }
+    String postfix = input.substring(identStart, identEnd);
+    switch (count) {
+      case 2:
+        return new SemanticVersion(numbers[0] + "." + numbers[1] + ".0-" + postfix);
+      case 3:
+        return new SemanticVersion(numbers[0] + "." + numbers[1] + "." + numbers[2] + "-" + postfix);
+      default:
+        return new ExtendedSemanticVersion(numbers[0], numbers[1], numbers[2], numbers[3], postfix);
+    }
+  }
+
+  private boolean isReleaseIdentifier() {
+    int len = identEnd - identStart;
+    return (len == 7 && input.regionMatches(true, identStart, "RELEASE", 0, len))
+        || (len == 5 && input.regionMatches(true, identStart, "FINAL", 0, len))
+        || (len == 2 && input.regionMatches(true, identStart, "GA", 0, len));
+  }
+
+  private IVersionRange buildRange(int op, SemanticVersion version) {
+    switch (op) {
+      case LT:
+        return new VersionRange(Operator.LT, version);
+      case LE:
+        return new VersionRange(Operator.LE, version);
+      case GT:
+        return new VersionRange(Operator.GT, version);
+      case GE:
+        return new VersionRange(Operator.GE, version);
+      case PESSIMISTIC:
+        return new AndRange(new VersionRange(Operator.GE, version), new VersionRange(Operator.LT, version.getNextParentVersion()));
+      default:
+        return new AndRange(new VersionRange(Operator.GE, version), new VersionRange(Operator.LT, version.getNextCaretVersion()));
+    }
+  }
+
+  private void skipWhitespace() {
+    while (pos < length && isWhitespace(input.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isLetterOrDigit(char c) {
+    return isLetter(c) || isDigit(c);
+  }
+}
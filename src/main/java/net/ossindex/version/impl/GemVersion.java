@@ -0,0 +1,264 @@
+package net.ossindex.version.impl;
+
+import java.util.regex.Pattern;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.InvalidRangeException;
+
+/**
+ * A RubyGems version, following Gem::Version.
+ *
+ * The version is split into numbers and runs of letters, with "-" read as
+ * ".pre.". Trailing zeros are dropped from the leading numbers and from the
+ * rest separately, so "1.0" equals "1" and "1.0.a" equals "1.a". Segments are
+ * compared in turn, a missing segment counting as 0 and letters sorting before
+ * any number, so "1.0.a" &lt; "1.0" &lt; "1.0.1".
+ *
+ * Any version containing a letter is a pre-release.
+ *
+ * @author Ken Duck
+ */
+public class GemVersion
+    implements IVersion
+{
+  private static final Pattern PATTERN = Pattern.compile("\\s*([0-9]+(\\.[0-9a-zA-Z]+)*(-[0-9A-Za-z-]+(\\.[0-9A-Za-z-]+)*)?)?\\s*");
+
+  /**
+   * Longest run of digits which always fits in a long
+   */
+  private static final int MAX_DIGITS = 18;
+
+  private final String version;
+
+  /**
+   * The canonical segments. Where strings[i] is null the segment is
+   * numbers[i], otherwise it is strings[i].
+   */
+  private final long[] numbers;
+
+  private final String[] strings;
+
+  private final boolean prerelease;
+
+  private final int hash;
+
+  public GemVersion(String version) throws InvalidRangeException
+  {
+    if (!PATTERN.matcher(version).matches()) {
+      throw new InvalidRangeException("Malformed version number string " + version);
+    }
+    this.version = version.trim();
+    String s = this.version.isEmpty() ? "0" : this.version.replace("-", ".pre.");
+
+    int n = s.length();
+    long[] numbers = new long[n];
+    String[] strings = new String[n];
+    int size = 0;
+    int numericSize = -1;
+    boolean prerelease = false;
+    int i = 0;
+    while (i < n) {
+      char c = s.charAt(i);
+      int start = i;
+      if (isDigit(c)) {
+        while (i < n && isDigit(s.charAt(i))) {
+          i++;
+        }
+        if (i - start > MAX_DIGITS) {
+          throw new InvalidRangeException("Number too large in version: " + version);
+        }
+        numbers[size++] = Long.parseLong(s.substring(start, i));
+      }
+      else if (isLetter(c)) {
+        while (i < n && isLetter(s.charAt(i))) {
+          i++;
+        }
+        if (numericSize < 0) {
+          // Drop trailing zeros from the leading numbers
+          numericSize = trimZeros(numbers, strings, 0, size);
+          size = numericSize;
+        }
+        strings[size++] = s.substring(start, i);
+        prerelease = true;
+      }
+      else {
+        i++;
+      }
+    }
+    if (numericSize < 0) {
+      size = trimZeros(numbers, strings, 0, size);
+    }
+    else {
+      size = trimZeros(numbers, strings, numericSize, size);
+    }
+
+    this.numbers = new long[size];
+    this.strings = new String[size];
+    System.arraycopy(numbers, 0, this.numbers, 0, size);
+    System.arraycopy(strings, 0, this.strings, 0, size);
+    this.prerelease = prerelease;
+
+    int h = 17;
+    for (int j = 0; j < size; j++) {
+      h = 31 * h + (strings[j] != null ? strings[j].hashCode() : Long.valueOf(numbers[j]).hashCode());
+    }
+    hash = h;
+  }
+
+  /**
+   * @return The new end of the segments, once numeric zeros at the end of
+   * [start, end) are dropped
+   */
+  private static int trimZeros(long[] numbers, String[] strings, int start, int end)
+  {
+    while (end > start && strings[end - 1] == null && numbers[end - 1] == 0) {
+      end--;
+    }
+    return end;
+  }
+
+  private static boolean isDigit(char c)
+  {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isLetter(char c)
+  {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Comparable#compareTo(java.lang.Object)
+   */
+  @Override
+  public int compareTo(IVersion o)
+  {
+    if (o instanceof GemVersion) {
+      return compareGem((GemVersion) o);
+    }
+    // Fall back to simple string comparison
+    return version.compareTo(o.toString());
+  }
+
+  private int compareGem(GemVersion other)
+  {
+    int lim = Math.max(numbers.length, other.numbers.length);
+    for (int i = 0; i < lim; i++) {
+      String s1 = i < strings.length ? strings[i] : null;
+      String s2 = i < other.strings.length ? other.strings[i] : null;
+      if (s1 != null || s2 != null) {
+        if (s1 == null || s2 == null) {
+          // Letters sort before numbers
+          return s1 != null ? -1 : 1;
+        }
+        int result = s1.compareTo(s2);
+        if (result != 0) {
+          return result < 0 ? -1 : 1;
+        }
+      }
+      else {
+        long n1 = i < numbers.length ? numbers[i] : 0;
+        long n2 = i < other.numbers.length ? other.numbers[i] : 0;
+        if (n1 != n2) {
+          return n1 < n2 ? -1 : 1;
+        }
+      }
+    }
+    return 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    return o instanceof GemVersion && compareGem((GemVersion) o) == 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    return hash;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getMajor()
+   */
+  @Override
+  public int getMajor()
+  {
+    return getNumber(0);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getMinor()
+   */
+  @Override
+  public int getMinor()
+  {
+    return getNumber(1);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getPatch()
+   */
+  @Override
+  public int getPatch()
+  {
+    return getNumber(2);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getBuild()
+   */
+  @Override
+  public int getBuild()
+  {
+    return getNumber(3);
+  }
+
+  /**
+   * @return The leading number at the index, or 0 if the leading numbers stop
+   * before it
+   */
+  private int getNumber(int index)
+  {
+    for (int i = 0; i <= index; i++) {
+      if (i >= numbers.length || strings[i] != null) {
+        return 0;
+      }
+    }
+    return (int) Math.min(numbers[index], Integer.MAX_VALUE);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#isStable()
+   */
+  @Override
+  public boolean isStable()
+  {
+    return !prerelease;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    return version;
+  }
+}
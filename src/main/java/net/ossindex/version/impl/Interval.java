@@ -0,0 +1,320 @@
+package net.ossindex.version.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionRange;
+
+/**
+ * A contiguous run of semantic versions between two bounds, each of which may be
+ * inclusive or exclusive. A null bound is unbounded. A single version is an
+ * interval whose bounds are the same and inclusive.
+ *
+ * Ranges are decomposed into a union of intervals using the exact operators of
+ * their VersionRanges (rather than getMinimum/getMaximum, which approximate
+ * exclusive bounds with the next/previous version). This means an interval
+ * contains a version exactly when the range it came from does.
+ *
+ * Named versions cannot be ordered against semantic versions, so they are
+ * kept as "named points" which only match a version with the same string.
+ *
+ * @author Ken Duck
+ */
+public final class Interval
+{
+  private final SemanticVersion lower;
+
+  private final boolean lowerInclusive;
+
+  private final SemanticVersion upper;
+
+  private final boolean upperInclusive;
+
+  /**
+   * Non-null for a named point, in which case the bounds are unused.
+   */
+  private final NamedVersion named;
+
+  private final String name;
+
+  public Interval(SemanticVersion lower, boolean lowerInclusive, SemanticVersion upper, boolean upperInclusive)
+  {
+    this.lower = lower;
+    this.lowerInclusive = lower != null && lowerInclusive;
+    this.upper = upper;
+    this.upperInclusive = upper != null && upperInclusive;
+    this.named = null;
+    this.name = null;
+  }
+
+  private Interval(NamedVersion named)
+  {
+    this.lower = null;
+    this.lowerInclusive = false;
+    this.upper = null;
+    this.upperInclusive = false;
+    this.named = named;
+    this.name = named.toString();
+  }
+
+  public static Interval point(SemanticVersion version)
+  {
+    return new Interval(version, true, version, true);
+  }
+
+  public static Interval namedPoint(NamedVersion version)
+  {
+    return new Interval(version);
+  }
+
+  /**
+   * @return The lower bound, or null if there is none
+   */
+  public SemanticVersion getLower()
+  {
+    return lower;
+  }
+
+  public boolean isLowerInclusive()
+  {
+    return lowerInclusive;
+  }
+
+  /**
+   * @return The upper bound, or null if there is none
+   */
+  public SemanticVersion getUpper()
+  {
+    return upper;
+  }
+
+  public boolean isUpperInclusive()
+  {
+    return upperInclusive;
+  }
+
+  public boolean isNamedPoint()
+  {
+    return name != null;
+  }
+
+  /**
+   * @return The name of a named point, or null
+   */
+  public String getName()
+  {
+    return name;
+  }
+
+  /**
+   * @return The version of a named point, or null
+   */
+  public NamedVersion getNamedVersion()
+  {
+    return named;
+  }
+
+  public boolean contains(IVersion version)
+  {
+    if (name != null) {
+      return name.equals(version.toString());
+    }
+    if (!(version instanceof SemanticVersion)) {
+      return false;
+    }
+    return isAboveLower((SemanticVersion) version) && isBelowUpper((SemanticVersion) version);
+  }
+
+  public boolean isAboveLower(SemanticVersion version)
+  {
+    if (lower == null) {
+      return true;
+    }
+    int cmp = version.compareTo(lower);
+    return cmp > 0 || (cmp == 0 && lowerInclusive);
+  }
+
+  public boolean isBelowUpper(SemanticVersion version)
+  {
+    if (upper == null) {
+      return true;
+    }
+    int cmp = version.compareTo(upper);
+    return cmp < 0 || (cmp == 0 && upperInclusive);
+  }
+
+  /**
+   * @return The overlap between the two intervals, or null if they do not overlap.
+   */
+  public Interval intersect(Interval other)
+  {
+    if (name != null || other.name != null) {
+      if (name != null && name.equals(other.name)) {
+        return this;
+      }
+      return null;
+    }
+
+    SemanticVersion newLower = lower;
+    boolean newLowerInclusive = lowerInclusive;
+    if (other.lower != null) {
+      int cmp = lower == null ? -1 : lower.compareTo(other.lower);
+      if (cmp < 0) {
+        newLower = other.lower;
+        newLowerInclusive = other.lowerInclusive;
+      }
+      else if (cmp == 0) {
+        newLowerInclusive = lowerInclusive && other.lowerInclusive;
+      }
+    }
+
+    SemanticVersion newUpper = upper;
+    boolean newUpperInclusive = upperInclusive;
+    if (other.upper != null) {
+      int cmp = upper == null ? 1 : upper.compareTo(other.upper);
+      if (cmp > 0) {
+        newUpper = other.upper;
+        newUpperInclusive = other.upperInclusive;
+      }
+      else if (cmp == 0) {
+        newUpperInclusive = upperInclusive && other.upperInclusive;
+      }
+    }
+
+    if (newLower != null && newUpper != null) {
+      int cmp = newLower.compareTo(newUpper);
+      if (cmp > 0 || (cmp == 0 && !(newLowerInclusive && newUpperInclusive))) {
+        return null;
+      }
+    }
+    return new Interval(newLower, newLowerInclusive, newUpper, newUpperInclusive);
+  }
+
+  /**
+   * Break the range down into a union of intervals.
+   *
+   * @return The intervals, or null if the range contains something we cannot
+   * represent (for example a BoundedVersionRange, or versions which are neither
+   * semantic nor named). Callers should fall back to IVersionRange.contains.
+   */
+  public static List<Interval> decompose(IVersionRange range)
+  {
+    if (range instanceof VersionRange) {
+      VersionRange vrange = (VersionRange) range;
+      SemanticVersion version = vrange.getVersion();
+      VersionRange.Operator operator = vrange.getOperator();
+      if (operator.isUnbounded()) {
+        return Collections.singletonList(new Interval(version, operator.isInclusive(), null, false));
+      }
+      return Collections.singletonList(new Interval(null, false, version, operator.isInclusive()));
+    }
+    if (range instanceof VersionSet) {
+      List<Interval> results = new ArrayList<Interval>();
+      for (IVersion version : ((VersionSet) range).getVersions()) {
+        if (version instanceof SemanticVersion) {
+          results.add(point((SemanticVersion) version));
+        }
+        else if (version instanceof NamedVersion) {
+          results.add(namedPoint((NamedVersion) version));
+        }
+        else {
+          return null;
+        }
+      }
+      return results;
+    }
+    if (range instanceof AndRange) {
+      List<Interval> left = decompose(((AndRange) range).first());
+      List<Interval> right = decompose(((AndRange) range).last());
+      if (left == null || right == null) {
+        return null;
+      }
+      List<Interval> results = new ArrayList<Interval>();
+      for (Interval i1 : left) {
+        for (Interval i2 : right) {
+          Interval overlap = i1.intersect(i2);
+          if (overlap != null) {
+            results.add(overlap);
+          }
+        }
+      }
+      return results;
+    }
+    if (range instanceof OrRange) {
+      List<Interval> results = new ArrayList<Interval>();
+      for (IVersionRange child : ((OrRange) range).getRanges()) {
+        List<Interval> intervals = decompose(child);
+        if (intervals == null) {
+          return null;
+        }
+        results.addAll(intervals);
+      }
+      return results;
+    }
+    return null;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Interval)) {
+      return false;
+    }
+    Interval other = (Interval) o;
+    if (name != null || other.name != null) {
+      return name != null && name.equals(other.name);
+    }
+    return lowerInclusive == other.lowerInclusive
+        && upperInclusive == other.upperInclusive
+        && (lower == null ? other.lower == null : lower.equals(other.lower))
+        && (upper == null ? other.upper == null : upper.equals(other.upper));
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    if (name != null) {
+      return name.hashCode();
+    }
+    int result = lower == null ? 0 : lower.hashCode();
+    result = 31 * result + (lowerInclusive ? 1 : 0);
+    result = 31 * result + (upper == null ? 0 : upper.hashCode());
+    return 31 * result + (upperInclusive ? 1 : 0);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    if (name != null) {
+      return "[" + name + "]";
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append(lowerInclusive ? '[' : '(');
+    if (lower != null) {
+      sb.append(lower);
+    }
+    sb.append(',');
+    if (upper != null) {
+      sb.append(upper);
+    }
+    sb.append(upperInclusive ? ']' : ')');
+    return sb.toString();
+  }
+}
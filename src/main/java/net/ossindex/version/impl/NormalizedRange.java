@@ -0,0 +1,612 @@
+package net.ossindex.version.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionRange;
+
+/**
+ * The canonical form of a range: a sorted array of intervals which neither
+ * overlap nor touch, plus a sorted array of named versions.
+ *
+ * Any range built from VersionRange, VersionSet, AndRange and OrRange can be
+ * normalized, however deeply nested. Once normalized, contains is a binary
+ * search, and intersects, contains(range), union, intersection and invert are
+ * linear merges of the interval arrays, rather than walks over a tree of range
+ * objects.
+ *
+ * Two ranges which contain the same versions have equal normalized forms.
+ *
+ * Named versions cannot be ordered against semantic versions, so they are kept
+ * as a separate set which only matches a version with the same name. For the
+ * same reason a range with named versions cannot be inverted.
+ *
+ * Normalized ranges are created frozen.
+ *
+ * @author Ken Duck
+ */
+public class NormalizedRange
+    extends AbstractCommonRange
+{
+  private static final Interval[] NO_INTERVALS = new Interval[0];
+
+  private static final String[] NO_NAMES = new String[0];
+
+  private static final NamedVersion[] NO_NAMED_VERSIONS = new NamedVersion[0];
+
+  private static final Comparator<Interval> BY_LOWER = new Comparator<Interval>()
+  {
+    @Override
+    public int compare(Interval i1, Interval i2)
+    {
+      SemanticVersion l1 = i1.getLower();
+      SemanticVersion l2 = i2.getLower();
+      if (l1 == null || l2 == null) {
+        return l1 == l2 ? 0 : (l1 == null ? -1 : 1);
+      }
+      int cmp = l1.compareTo(l2);
+      if (cmp == 0 && i1.isLowerInclusive() != i2.isLowerInclusive()) {
+        return i1.isLowerInclusive() ? -1 : 1;
+      }
+      return cmp;
+    }
+  };
+
+  /**
+   * Sorted, and no two intervals overlap or touch
+   */
+  private final Interval[] intervals;
+
+  /**
+   * Sorted and unique
+   */
+  private final String[] names;
+
+  /**
+   * The named versions, in the same order as their names
+   */
+  private final NamedVersion[] namedVersions;
+
+  private final String type;
+
+  private final boolean hasErrors;
+
+  private NormalizedRange(Interval[] intervals, Collection<NamedVersion> named, String type, boolean hasErrors)
+  {
+    this.intervals = intervals;
+    if (named.isEmpty()) {
+      this.names = NO_NAMES;
+      this.namedVersions = NO_NAMED_VERSIONS;
+    }
+    else {
+      this.names = new String[named.size()];
+      this.namedVersions = named.toArray(new NamedVersion[named.size()]);
+      for (int i = 0; i < namedVersions.length; i++) {
+        names[i] = namedVersions[i].toString();
+      }
+    }
+    this.type = type;
+    this.hasErrors = hasErrors;
+    super.freeze();
+  }
+
+  /**
+   * Normalize any range.
+   *
+   * @throws UnsupportedOperationException If the range contains something which
+   * cannot be represented as intervals (for example a BoundedVersionRange)
+   */
+  public static NormalizedRange of(IVersionRange range)
+  {
+    if (range instanceof NormalizedRange) {
+      return (NormalizedRange) range;
+    }
+    List<Interval> decomposed = Interval.decompose(range);
+    if (decomposed == null) {
+      throw new UnsupportedOperationException("Cannot normalize range: " + range);
+    }
+    List<Interval> semantic = new ArrayList<Interval>(decomposed.size());
+    Map<String, NamedVersion> named = new TreeMap<String, NamedVersion>();
+    for (Interval interval : decomposed) {
+      if (interval.isNamedPoint()) {
+        named.put(interval.getName(), interval.getNamedVersion());
+      }
+      else {
+        semantic.add(interval);
+      }
+    }
+    return new NormalizedRange(merge(semantic), named.values(), range.getType(), range.hasErrors());
+  }
+
+  /**
+   * @return The intervals in ascending order
+   */
+  public List<Interval> getIntervals()
+  {
+    return Collections.unmodifiableList(Arrays.asList(intervals));
+  }
+
+  /**
+   * @return The named versions in the range, in ascending order
+   */
+  public List<NamedVersion> getNamedVersions()
+  {
+    return Collections.unmodifiableList(Arrays.asList(namedVersions));
+  }
+
+  public boolean isEmpty()
+  {
+    return intervals.length == 0 && names.length == 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersionRange#contains(net.ossindex.version.IVersion)
+   */
+  @Override
+  public boolean contains(IVersion version)
+  {
+    if (version instanceof SemanticVersion) {
+      if (find((SemanticVersion) version) >= 0) {
+        return true;
+      }
+    }
+    return names.length > 0 && Arrays.binarySearch(names, version.toString()) >= 0;
+  }
+
+  /**
+   * Binary search for the interval containing the version.
+   *
+   * @return The index of the interval, or -1
+   */
+  private int find(SemanticVersion version)
+  {
+    int low = 0;
+    int high = intervals.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Interval interval = intervals[mid];
+      if (!interval.isAboveLower(version)) {
+        high = mid - 1;
+      }
+      else if (!interval.isBelowUpper(version)) {
+        low = mid + 1;
+      }
+      else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersionRange#intersects(net.ossindex.version.IVersionRange)
+   */
+  @Override
+  public boolean intersects(IVersionRange yourRange)
+  {
+    NormalizedRange other = of(yourRange);
+    int i = 0;
+    int j = 0;
+    while (i < intervals.length && j < other.intervals.length) {
+      if (intervals[i].intersect(other.intervals[j]) != null) {
+        return true;
+      }
+      if (compareUpper(intervals[i], other.intervals[j]) <= 0) {
+        i++;
+      }
+      else {
+        j++;
+      }
+    }
+    for (String name : other.names) {
+      if (Arrays.binarySearch(names, name) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * True if every version in the other range is also in this range.
+   *
+   * @see net.ossindex.version.IVersionRange#contains(net.ossindex.version.IVersionRange)
+   */
+  @Override
+  public boolean contains(IVersionRange yourRange)
+  {
+    NormalizedRange other = of(yourRange);
+    int i = 0;
+    for (Interval interval : other.intervals) {
+      // Since our intervals do not touch, any interval of theirs can only be
+      // inside the first of ours which does not end before it starts.
+      while (i < intervals.length && !reaches(intervals[i], interval)) {
+        i++;
+      }
+      if (i == intervals.length || !interval.equals(intervals[i].intersect(interval))) {
+        return false;
+      }
+    }
+    for (String name : other.names) {
+      if (Arrays.binarySearch(names, name) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return A range containing the versions in either range
+   */
+  public NormalizedRange union(IVersionRange yourRange)
+  {
+    NormalizedRange other = of(yourRange);
+    List<Interval> all = new ArrayList<Interval>(intervals.length + other.intervals.length);
+    Collections.addAll(all, intervals);
+    Collections.addAll(all, other.intervals);
+    Map<String, NamedVersion> named = new TreeMap<String, NamedVersion>();
+    for (NamedVersion version : namedVersions) {
+      named.put(version.toString(), version);
+    }
+    for (NamedVersion version : other.namedVersions) {
+      named.put(version.toString(), version);
+    }
+    return new NormalizedRange(merge(all), named.values(), type, hasErrors);
+  }
+
+  /**
+   * @return A range containing the versions in both ranges
+   */
+  public NormalizedRange intersection(IVersionRange yourRange)
+  {
+    NormalizedRange other = of(yourRange);
+    List<Interval> results = new ArrayList<Interval>();
+    int i = 0;
+    int j = 0;
+    while (i < intervals.length && j < other.intervals.length) {
+      Interval overlap = intervals[i].intersect(other.intervals[j]);
+      if (overlap != null) {
+        results.add(overlap);
+      }
+      if (compareUpper(intervals[i], other.intervals[j]) <= 0) {
+        i++;
+      }
+      else {
+        j++;
+      }
+    }
+    List<NamedVersion> named = new ArrayList<NamedVersion>();
+    for (NamedVersion version : namedVersions) {
+      if (Arrays.binarySearch(other.names, version.toString()) >= 0) {
+        named.add(version);
+      }
+    }
+    return new NormalizedRange(results.toArray(new Interval[results.size()]), named, type, hasErrors);
+  }
+
+  /**
+   * @throws UnsupportedOperationException If the range contains named versions,
+   * since there is no way to express "every version except these names".
+   * @see net.ossindex.version.impl.AbstractCommonRange#invert()
+   */
+  @Override
+  public NormalizedRange invert()
+  {
+    if (names.length > 0) {
+      throw new UnsupportedOperationException("Cannot invert named versions: " + this);
+    }
+    List<Interval> results = new ArrayList<Interval>(intervals.length + 1);
+    SemanticVersion lower = null;
+    boolean lowerInclusive = false;
+    boolean unboundedBelow = true;
+    for (Interval interval : intervals) {
+      if (interval.getLower() != null) {
+        results.add(new Interval(unboundedBelow ? null : lower, lowerInclusive, interval.getLower(),
+            !interval.isLowerInclusive()));
+      }
+      unboundedBelow = false;
+      lower = interval.getUpper();
+      lowerInclusive = !interval.isUpperInclusive();
+      if (lower == null) {
+        return new NormalizedRange(results.toArray(new Interval[results.size()]), Collections.<NamedVersion>emptyList(), type, hasErrors);
+      }
+    }
+    results.add(new Interval(unboundedBelow ? null : lower, lowerInclusive, null, false));
+    return new NormalizedRange(results.toArray(new Interval[results.size()]), Collections.<NamedVersion>emptyList(), type, hasErrors);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.impl.AbstractCommonRange#normalize()
+   */
+  @Override
+  public NormalizedRange normalize()
+  {
+    return this;
+  }
+
+  /**
+   * True if the range is a set of individual versions
+   *
+   * @see net.ossindex.version.IVersionRange#isDiscrete()
+   */
+  @Override
+  public boolean isDiscrete()
+  {
+    for (Interval interval : intervals) {
+      if (interval.getLower() == null || interval.getUpper() == null
+          || interval.getLower().compareTo(interval.getUpper()) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersionRange#isSimple()
+   */
+  @Override
+  public boolean isSimple()
+  {
+    return intervals.length == 1 && names.length == 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersionRange#getMinimum()
+   */
+  @Override
+  public IVersion getMinimum()
+  {
+    if (intervals.length == 0) {
+      return namedVersions.length == 0 ? null : namedVersions[0];
+    }
+    SemanticVersion lower = intervals[0].getLower();
+    return lower == null ? new SemanticVersion(0) : lower;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersionRange#getMaximum()
+   */
+  @Override
+  public IVersion getMaximum()
+  {
+    if (intervals.length == 0) {
+      return namedVersions.length == 0 ? null : namedVersions[namedVersions.length - 1];
+    }
+    Interval last = intervals[intervals.length - 1];
+    if (last.getUpper() == null) {
+      return null;
+    }
+    return last.isUpperInclusive() ? last.getUpper() : last.getUpper().getPrevVersion();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersionRange#getSimplifiedRange()
+   */
+  @Override
+  public IVersionRange getSimplifiedRange()
+  {
+    return this;
+  }
+
+  @Override
+  public String getType()
+  {
+    return type;
+  }
+
+  @Override
+  public void setType(String type)
+  {
+    checkNotFrozen();
+  }
+
+  @Override
+  public void setHasErrors(boolean b)
+  {
+    checkNotFrozen();
+  }
+
+  @Override
+  public boolean hasErrors()
+  {
+    return hasErrors;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof NormalizedRange)) {
+      return false;
+    }
+    NormalizedRange other = (NormalizedRange) o;
+    return Arrays.equals(intervals, other.intervals) && Arrays.equals(names, other.names);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    return 31 * Arrays.hashCode(intervals) + Arrays.hashCode(names);
+  }
+
+  /**
+   * Intervals are written with operators and joined with "|". An empty range is
+   * an empty string.
+   *
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for (Interval interval : intervals) {
+      if (sb.length() > 0) {
+        sb.append(" | ");
+      }
+      SemanticVersion lower = interval.getLower();
+      SemanticVersion upper = interval.getUpper();
+      if (lower != null && upper != null && lower.compareTo(upper) == 0) {
+        sb.append(lower);
+        continue;
+      }
+      if (lower == null && upper == null) {
+        sb.append('*');
+        continue;
+      }
+      if (lower != null) {
+        sb.append(interval.isLowerInclusive() ? ">=" : ">").append(lower);
+      }
+      if (upper != null) {
+        if (lower != null) {
+          sb.append(' ');
+        }
+        sb.append(interval.isUpperInclusive() ? "<=" : "<").append(upper);
+      }
+    }
+    for (String name : names) {
+      if (sb.length() > 0) {
+        sb.append(" | ");
+      }
+      sb.append(name);
+    }
+    return sb.toString();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersionRange#toMavenString()
+   */
+  @Override
+  public String toMavenString()
+  {
+    if (names.length > 0) {
+      throw new UnsupportedOperationException("Cannot get maven string for named versions");
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Interval interval : intervals) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      SemanticVersion lower = interval.getLower();
+      SemanticVersion upper = interval.getUpper();
+      if (lower != null && upper != null && lower.compareTo(upper) == 0) {
+        sb.append('[').append(lower).append(']');
+        continue;
+      }
+      sb.append(interval.isLowerInclusive() ? '[' : '(');
+      if (lower != null) {
+        sb.append(lower);
+      }
+      sb.append(',');
+      if (upper != null) {
+        sb.append(upper);
+      }
+      sb.append(interval.isUpperInclusive() ? ']' : ')');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Sort the intervals and join any which overlap or touch.
+   */
+  private static Interval[] merge(List<Interval> intervals)
+  {
+    if (intervals.isEmpty()) {
+      return NO_INTERVALS;
+    }
+    Collections.sort(intervals, BY_LOWER);
+    List<Interval> results = new ArrayList<Interval>(intervals.size());
+    Interval current = null;
+    for (Interval interval : intervals) {
+      if (current == null) {
+        current = interval;
+      }
+      else if (touches(current, interval)) {
+        current = join(current, interval);
+      }
+      else {
+        results.add(current);
+        current = interval;
+      }
+    }
+    results.add(current);
+    return results.toArray(new Interval[results.size()]);
+  }
+
+  /**
+   * True if the next interval (which starts no earlier than current) overlaps or
+   * touches the current one, so that together they form a single interval.
+   */
+  private static boolean touches(Interval current, Interval next)
+  {
+    if (current.getUpper() == null || next.getLower() == null) {
+      return true;
+    }
+    int cmp = next.getLower().compareTo(current.getUpper());
+    return cmp < 0 || (cmp == 0 && (next.isLowerInclusive() || current.isUpperInclusive()));
+  }
+
+  /**
+   * Join two touching intervals, where current starts no later than next.
+   */
+  private static Interval join(Interval current, Interval next)
+  {
+    if (compareUpper(next, current) <= 0) {
+      return current;
+    }
+    return new Interval(current.getLower(), current.isLowerInclusive(), next.getUpper(), next.isUpperInclusive());
+  }
+
+  /**
+   * True if the first interval does not end before the second one starts.
+   */
+  private static boolean reaches(Interval interval, Interval other)
+  {
+    if (interval.getUpper() == null || other.getLower() == null) {
+      return true;
+    }
+    int cmp = interval.getUpper().compareTo(other.getLower());
+    return cmp > 0 || (cmp == 0 && interval.isUpperInclusive() && other.isLowerInclusive());
+  }
+
+  /**
+   * Compare the upper bounds of two intervals, where no bound is the highest and
+   * an inclusive bound is higher than an exclusive bound on the same version.
+   */
+  private static int compareUpper(Interval i1, Interval i2)
+  {
+    SemanticVersion u1 = i1.getUpper();
+    SemanticVersion u2 = i2.getUpper();
+    if (u1 == null || u2 == null) {
+      return u1 == u2 ? 0 : (u1 == null ? 1 : -1);
+    }
+    int cmp = u1.compareTo(u2);
+    if (cmp == 0 && i1.isUpperInclusive() != i2.isUpperInclusive()) {
+      return i1.isUpperInclusive() ? 1 : -1;
+    }
+    return cmp;
+  }
+}
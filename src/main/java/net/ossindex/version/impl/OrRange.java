@@ -26,6 +26,8 @@
  */
 package net.ossindex.version.impl;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
@@ -41,7 +43,7 @@ import net.ossindex.version.IVersionRange;
 public class OrRange
     extends AbstractCommonRange
 {
-  private SortedSet<IVersionRange> ranges = new TreeSet<IVersionRange>();
+  private final SortedSet<IVersionRange> ranges = new TreeSet<IVersionRange>();
 
   private String type;
 
@@ -170,23 +172,30 @@ public class OrRange
     return this;
   }
 
+  /**
+   * If no type was set, use the type of the first of our ranges which has one.
+   * This is not remembered, so that reading a shared range never writes to it.
+   */
   public String getType() {
-    if (type == null) {
-      for (IVersionRange range : ranges) {
-        type = range.getType();
-        if (type != null) {
-          break;
-        }
+    if (type != null) {
+      return type;
+    }
+    for (IVersionRange range : ranges) {
+      String rangeType = range.getType();
+      if (rangeType != null) {
+        return rangeType;
       }
     }
-    return type;
+    return null;
   }
 
   public void setType(String type) {
+    checkNotFrozen();
     this.type = type;
   }
 
   public void setHasErrors(boolean b) {
+    checkNotFrozen();
     hasErrors = b;
   }
 
@@ -240,6 +249,7 @@ public class OrRange
   }
 
   public OrRange add(IVersionRange range) {
+    checkNotFrozen();
     ranges.add(range);
     return this;
   }
@@ -256,13 +266,32 @@ public class OrRange
       return new AndRange(irange1, irange2);
     }
 
-    throw new UnsupportedOperationException();
+    // Any number of ranges can be inverted in normalized form
+    return normalize().invert();
+  }
+
+  /**
+   * Freeze the contained ranges as well
+   */
+  @Override
+  public void freeze() {
+    for (IVersionRange range : ranges) {
+      freeze(range);
+    }
+    super.freeze();
   }
 
   public int size() {
     return ranges.size();
   }
 
+  /**
+   * @return The ORed ranges, in order. The collection cannot be modified.
+   */
+  public Collection<IVersionRange> getRanges() {
+    return Collections.unmodifiableSortedSet(ranges);
+  }
+
   public IVersionRange first() {
     return ranges.first();
   }
@@ -270,4 +299,46 @@ public class OrRange
   public IVersionRange last() {
     return ranges.last();
   }
+
+  /**
+   * Ranges are equal if they contain equal ranges, in the same order.
+   *
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof OrRange)) {
+      return false;
+    }
+    OrRange other = (OrRange) o;
+    if (ranges.size() != other.ranges.size()) {
+      return false;
+    }
+    // The sets are ordered by minimum, not by equality, so compare them in order
+    Iterator<IVersionRange> it = other.ranges.iterator();
+    for (IVersionRange range : ranges) {
+      if (!range.equals(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    int hash = 37;
+    for (IVersionRange range : ranges) {
+      hash = 31 * hash + range.hashCode();
+    }
+    return hash;
+  }
 }
@@ -0,0 +1,414 @@
+package net.ossindex.version.impl;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.InvalidRangeException;
+
+/**
+ * A Python version, as defined by PEP 440.
+ *
+ * Parsing accepts the same spellings as pip: "1.0-alpha.1", "1.0a1" and
+ * "v1.0.a1" are the same version. The version prints in its normalized form.
+ *
+ * Versions are ordered by epoch, release (ignoring trailing zeros), pre-release
+ * (a &lt; b &lt; rc), post release, dev release and finally local label. A dev
+ * release sorts before every pre-release of the same release, and a version
+ * without a local label sorts before any version with one.
+ *
+ * @author Ken Duck
+ */
+public class Pep440Version
+    implements IVersion
+{
+  private static final Pattern PATTERN = Pattern.compile(
+      "\\s*v?"
+          + "(?:([0-9]+)!)?"
+          + "([0-9]+(?:\\.[0-9]+)*)"
+          + "(?:[-_.]?(alpha|a|beta|b|preview|pre|c|rc)[-_.]?([0-9]+)?)?"
+          + "(?:-([0-9]+)|[-_.]?(post|rev|r)[-_.]?([0-9]+)?)?"
+          + "(?:[-_.]?(dev)[-_.]?([0-9]+)?)?"
+          + "(?:\\+([a-z0-9]+(?:[-_.][a-z0-9]+)*))?"
+          + "\\s*",
+      Pattern.CASE_INSENSITIVE);
+
+  private static final int NONE = -1;
+
+  private static final String[] PRE_RELEASE_NAMES = { "a", "b", "rc" };
+
+  private final int epoch;
+
+  /**
+   * The release numbers, as written
+   */
+  private final int[] release;
+
+  /**
+   * The number of release numbers left once trailing zeros are dropped
+   */
+  private final int significant;
+
+  /**
+   * Index into PRE_RELEASE_NAMES, or NONE
+   */
+  private final int preRelease;
+
+  private final int preReleaseNumber;
+
+  private final int post;
+
+  private final int dev;
+
+  /**
+   * The parts of the local label in lower case, or null if there is none
+   */
+  private final String[] local;
+
+  private final int hash;
+
+  public Pep440Version(String version) throws InvalidRangeException
+  {
+    Matcher m = PATTERN.matcher(version);
+    if (!m.matches()) {
+      throw new InvalidRangeException("Not a PEP 440 version: " + version);
+    }
+    epoch = m.group(1) != null ? parseInt(m.group(1), version) : 0;
+
+    String[] parts = m.group(2).split("\\.");
+    release = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      release[i] = parseInt(parts[i], version);
+    }
+    int count = release.length;
+    while (count > 0 && release[count - 1] == 0) {
+      count--;
+    }
+    significant = count;
+
+    String pre = m.group(3);
+    if (pre != null) {
+      preRelease = preReleaseIndex(pre.toLowerCase(Locale.ENGLISH));
+      preReleaseNumber = m.group(4) != null ? parseInt(m.group(4), version) : 0;
+    }
+    else {
+      preRelease = NONE;
+      preReleaseNumber = 0;
+    }
+
+    if (m.group(5) != null) {
+      post = parseInt(m.group(5), version);
+    }
+    else if (m.group(6) != null) {
+      post = m.group(7) != null ? parseInt(m.group(7), version) : 0;
+    }
+    else {
+      post = NONE;
+    }
+
+    if (m.group(8) != null) {
+      dev = m.group(9) != null ? parseInt(m.group(9), version) : 0;
+    }
+    else {
+      dev = NONE;
+    }
+
+    local = m.group(10) != null ? m.group(10).toLowerCase(Locale.ENGLISH).split("[-_.]") : null;
+
+    hash = computeHash();
+  }
+
+  private static int preReleaseIndex(String name)
+  {
+    switch (name) {
+      case "a":
+      case "alpha":
+        return 0;
+      case "b":
+      case "beta":
+        return 1;
+      default:
+        // c, pre, preview and rc are all release candidates
+        return 2;
+    }
+  }
+
+  private static int parseInt(String digits, String version) throws InvalidRangeException
+  {
+    long value = 0;
+    for (int i = 0; i < digits.length(); i++) {
+      value = value * 10 + (digits.charAt(i) - '0');
+      if (value > Integer.MAX_VALUE) {
+        throw new InvalidRangeException("Number too large in version: " + version);
+      }
+    }
+    return (int) value;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Comparable#compareTo(java.lang.Object)
+   */
+  @Override
+  public int compareTo(IVersion o)
+  {
+    if (o instanceof Pep440Version) {
+      return comparePep440((Pep440Version) o);
+    }
+    // Fall back to simple string comparison
+    return toString().compareTo(o.toString());
+  }
+
+  private int comparePep440(Pep440Version other)
+  {
+    if (epoch != other.epoch) {
+      return epoch < other.epoch ? -1 : 1;
+    }
+    int lim = Math.max(significant, other.significant);
+    for (int i = 0; i < lim; i++) {
+      int n1 = i < significant ? release[i] : 0;
+      int n2 = i < other.significant ? other.release[i] : 0;
+      if (n1 != n2) {
+        return n1 < n2 ? -1 : 1;
+      }
+    }
+    int result = compareLong(preReleaseKey(), other.preReleaseKey());
+    if (result != 0) {
+      return result;
+    }
+    if (post != other.post) {
+      return post < other.post ? -1 : 1;
+    }
+    // No dev release sorts after any dev release
+    result = compareLong(dev == NONE ? Long.MAX_VALUE : dev, other.dev == NONE ? Long.MAX_VALUE : other.dev);
+    if (result != 0) {
+      return result;
+    }
+    return compareLocal(local, other.local);
+  }
+
+  /**
+   * A dev release of the release itself ("1.0.dev1") sorts before all of its
+   * pre-releases, and a release sorts after them.
+   */
+  private long preReleaseKey()
+  {
+    if (preRelease == NONE) {
+      return post == NONE && dev != NONE ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+    return ((long) preRelease << 32) | preReleaseNumber;
+  }
+
+  private static int compareLong(long l1, long l2)
+  {
+    return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+  }
+
+  /**
+   * Numeric parts sort after alphanumeric ones, and numerically among
+   * themselves.
+   */
+  private static int compareLocal(String[] local1, String[] local2)
+  {
+    if (local1 == null || local2 == null) {
+      return local1 == null ? (local2 == null ? 0 : -1) : 1;
+    }
+    int lim = Math.min(local1.length, local2.length);
+    for (int i = 0; i < lim; i++) {
+      String s1 = local1[i];
+      String s2 = local2[i];
+      boolean numeric1 = isNumeric(s1);
+      boolean numeric2 = isNumeric(s2);
+      int result;
+      if (numeric1 && numeric2) {
+        result = compareDigits(s1, s2);
+      }
+      else if (numeric1 || numeric2) {
+        result = numeric1 ? 1 : -1;
+      }
+      else {
+        result = s1.compareTo(s2);
+      }
+      if (result != 0) {
+        return result;
+      }
+    }
+    return local1.length - local2.length;
+  }
+
+  private static boolean isNumeric(String s)
+  {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compare two strings of digits of any length by value.
+   */
+  private static int compareDigits(String s1, String s2)
+  {
+    s1 = stripZeros(s1);
+    s2 = stripZeros(s2);
+    if (s1.length() != s2.length()) {
+      return s1.length() - s2.length();
+    }
+    return s1.compareTo(s2);
+  }
+
+  private static String stripZeros(String digits)
+  {
+    int start = 0;
+    while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+      start++;
+    }
+    return digits.substring(start);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    return o instanceof Pep440Version && comparePep440((Pep440Version) o) == 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    return hash;
+  }
+
+  /**
+   * Hash exactly what comparePep440 looks at, so equal versions hash alike.
+   */
+  private int computeHash()
+  {
+    int h = 17;
+    h = 31 * h + epoch;
+    for (int i = 0; i < significant; i++) {
+      h = 31 * h + release[i];
+    }
+    h = 31 * h + Long.valueOf(preReleaseKey()).hashCode();
+    h = 31 * h + post;
+    h = 31 * h + dev;
+    if (local != null) {
+      for (String part : local) {
+        h = 31 * h + (isNumeric(part) ? stripZeros(part) : part).hashCode();
+      }
+    }
+    return h;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getMajor()
+   */
+  @Override
+  public int getMajor()
+  {
+    return getRelease(0);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getMinor()
+   */
+  @Override
+  public int getMinor()
+  {
+    return getRelease(1);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getPatch()
+   */
+  @Override
+  public int getPatch()
+  {
+    return getRelease(2);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see net.ossindex.version.IVersion#getBuild()
+   */
+  @Override
+  public int getBuild()
+  {
+    return getRelease(3);
+  }
+
+  private int getRelease(int index)
+  {
+    return index < release.length ? release[index] : 0;
+  }
+
+  /**
+   * Pre-releases and dev releases are not stable. Post releases are.
+   */
+  @Override
+  public boolean isStable()
+  {
+    return preRelease == NONE && dev == NONE;
+  }
+
+  /**
+   * @return The release numbers, as written
+   */
+  public int[] getRelease()
+  {
+    return Arrays.copyOf(release, release.length);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    if (epoch != 0) {
+      sb.append(epoch).append('!');
+    }
+    for (int i = 0; i < release.length; i++) {
+      if (i > 0) {
+        sb.append('.');
+      }
+      sb.append(release[i]);
+    }
+    if (preRelease != NONE) {
+      sb.append(PRE_RELEASE_NAMES[preRelease]).append(preReleaseNumber);
+    }
+    if (post != NONE) {
+      sb.append(".post").append(post);
+    }
+    if (dev != NONE) {
+      sb.append(".dev").append(dev);
+    }
+    if (local != null) {
+      sb.append('+');
+      for (int i = 0; i < local.length; i++) {
+        if (i > 0) {
+          sb.append('.');
+        }
+        sb.append(local[i]);
+      }
+    }
+    return sb.toString();
+  }
+}
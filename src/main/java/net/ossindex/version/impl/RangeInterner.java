@@ -0,0 +1,160 @@
+package net.ossindex.version.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionRange;
+import net.ossindex.version.Interner;
+
+/**
+ * Share a single instance between identical ranges and versions.
+ *
+ * Ranges are interned from the bottom up: versions first, then the ranges built
+ * from them. So "&gt;=1.0.0 &lt;2.0.0" and "&gt;=1.0.0 &lt;3.0.0" share the same
+ * "&gt;=1.0.0" range and its version, as well as every other use of them.
+ *
+ * Two objects are only considered identical if they are the same class, are
+ * equal, and print the same way. Equality alone is not enough: 1.2.3 and 1.2.3.0
+ * are equal versions, but a caller who parsed "1.2.3.0" should not get back a
+ * version that prints "1.2.3". Ranges must also have the same type and error
+ * flag.
+ *
+ * Interned ranges are frozen, since they are shared.
+ *
+ * @author Ken Duck
+ */
+public class RangeInterner
+{
+  private final Interner<IVersion> versions = new Interner<IVersion>()
+  {
+    @Override
+    protected boolean equivalent(IVersion canonical, IVersion value)
+    {
+      return canonical.getClass() == value.getClass() && canonical.toString().equals(value.toString());
+    }
+
+    @Override
+    protected int hash(IVersion value)
+    {
+      return 31 * value.getClass().hashCode() + value.toString().hashCode();
+    }
+  };
+
+  private final Interner<IVersionRange> ranges = new Interner<IVersionRange>()
+  {
+    @Override
+    protected boolean equivalent(IVersionRange canonical, IVersionRange value)
+    {
+      if (canonical.getClass() != value.getClass() || !canonical.equals(value)) {
+        return false;
+      }
+      if (canonical.hasErrors() != value.hasErrors()) {
+        return false;
+      }
+      String type = canonical.getType();
+      if (type == null ? value.getType() != null : !type.equals(value.getType())) {
+        return false;
+      }
+      return canonical.toString().equals(value.toString());
+    }
+  };
+
+  /**
+   * Get the shared instance of the version.
+   */
+  public IVersion intern(IVersion version)
+  {
+    if (version == null) {
+      return null;
+    }
+    return versions.intern(version);
+  }
+
+  /**
+   * Get the shared instance of the range. The range passed in is frozen, and
+   * either it or an identical range is returned.
+   */
+  public IVersionRange intern(IVersionRange range)
+  {
+    if (range == null) {
+      return null;
+    }
+    IVersionRange shared = internParts(range);
+    // Freeze before it can be seen by anybody else
+    AbstractCommonRange.freeze(shared);
+    AbstractCommonRange.freeze(range);
+    return ranges.intern(shared);
+  }
+
+  /**
+   * @return The number of distinct versions which are still in use
+   */
+  public int getVersionCount()
+  {
+    return versions.size();
+  }
+
+  /**
+   * @return The number of distinct ranges which are still in use
+   */
+  public int getRangeCount()
+  {
+    return ranges.size();
+  }
+
+  /**
+   * Replace the parts of the range with their interned instances.
+   *
+   * @return The range itself if all of the parts were already interned, otherwise
+   * a copy built from the interned parts.
+   */
+  private IVersionRange internParts(IVersionRange range)
+  {
+    if (range instanceof VersionRange) {
+      VersionRange vrange = (VersionRange) range;
+      IVersion version = intern(vrange.getVersion());
+      if (version == vrange.getVersion()) {
+        return range;
+      }
+      return copyFlags(range, new VersionRange(vrange.getOperator(), (SemanticVersion) version));
+    }
+    if (range instanceof VersionSet) {
+      boolean changed = false;
+      VersionSet copy = new VersionSet();
+      for (IVersion version : ((VersionSet) range).getVersions()) {
+        IVersion shared = intern(version);
+        changed |= shared != version;
+        copy.add(shared);
+      }
+      return changed ? copyFlags(range, copy) : range;
+    }
+    if (range instanceof AndRange) {
+      AndRange arange = (AndRange) range;
+      IVersionRange range1 = intern(arange.first());
+      IVersionRange range2 = intern(arange.last());
+      if (range1 == arange.first() && range2 == arange.last()) {
+        return range;
+      }
+      return copyFlags(range, new AndRange(arange, range1, range2));
+    }
+    if (range instanceof OrRange) {
+      boolean changed = false;
+      List<IVersionRange> parts = new ArrayList<IVersionRange>();
+      for (IVersionRange part : ((OrRange) range).getRanges()) {
+        IVersionRange shared = intern(part);
+        changed |= shared != part;
+        parts.add(shared);
+      }
+      return changed ? copyFlags(range, new OrRange(parts)) : range;
+    }
+    return range;
+  }
+
+  private static IVersionRange copyFlags(IVersionRange from, IVersionRange to)
+  {
+    to.setType(from.getType());
+    to.setHasErrors(from.hasErrors());
+    return to;
+  }
+}
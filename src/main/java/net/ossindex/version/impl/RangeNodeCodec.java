@@ -0,0 +1,276 @@
+package net.ossindex.version.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionRange;
+import net.ossindex.version.InvalidRangeException;
+
+/**
+ * Writes and reads the body of an encoded range or version for
+ * net.ossindex.version.RangeCodec, which adds the format version. The layout
+ * is described there.
+ *
+ * @author Ken Duck
+ */
+public final class RangeNodeCodec
+{
+  private static final int SEMANTIC_VERSION = 1;
+
+  private static final int EXTENDED_SEMANTIC_VERSION = 2;
+
+  private static final int NAMED_VERSION = 3;
+
+  private static final int VERSION_RANGE = 16;
+
+  private static final int AND_RANGE = 17;
+
+  private static final int OR_RANGE = 18;
+
+  private static final int VERSION_SET = 19;
+
+  private static final int HAS_ERRORS = 1;
+
+  private static final int HAS_TYPE = 2;
+
+  private static final int IS_BOUNDED = 4;
+
+  // Flags for the optional strings in a semantic version
+  private static final int HAS_PRE_RELEASE = 1;
+
+  private static final int HAS_BUILD_METADATA = 2;
+
+  private static final VersionRange.Operator[] OPERATORS = VersionRange.Operator.values();
+
+  private RangeNodeCodec()
+  {
+  }
+
+  /**
+   * Write the range, with no format version.
+   */
+  public static void writeRange(DataOutput out, IVersionRange range) throws IOException
+  {
+    int flags = 0;
+    if (range.hasErrors()) {
+      flags |= HAS_ERRORS;
+    }
+    String type = range.getType();
+    if (type != null) {
+      flags |= HAS_TYPE;
+    }
+
+    if (range instanceof VersionRange) {
+      VersionRange vrange = (VersionRange) range;
+      writeHeader(out, VERSION_RANGE, flags, type);
+      out.writeByte(vrange.getOperator().ordinal());
+      writeVersion(out, vrange.getVersion());
+    }
+    else if (range instanceof AndRange) {
+      AndRange arange = (AndRange) range;
+      if (arange.isBounded()) {
+        flags |= IS_BOUNDED;
+      }
+      writeHeader(out, AND_RANGE, flags, type);
+      writeRange(out, arange.first());
+      writeRange(out, arange.last());
+    }
+    else if (range instanceof OrRange) {
+      Collection<IVersionRange> ranges = ((OrRange) range).getRanges();
+      writeHeader(out, OR_RANGE, flags, type);
+      writeVarInt(out, ranges.size());
+      for (IVersionRange child : ranges) {
+        writeRange(out, child);
+      }
+    }
+    else if (range instanceof VersionSet) {
+      Collection<IVersion> versions = ((VersionSet) range).getVersions();
+      writeHeader(out, VERSION_SET, flags, type);
+      writeVarInt(out, versions.size());
+      for (IVersion version : versions) {
+        writeVersion(out, version);
+      }
+    }
+    else {
+      throw new UnsupportedOperationException("Cannot encode " + range.getClass().getSimpleName() + ": " + range);
+    }
+  }
+
+  private static void writeHeader(DataOutput out, int tag, int flags, String type) throws IOException
+  {
+    out.writeByte(tag);
+    out.writeByte(flags);
+    if (type != null) {
+      out.writeUTF(type);
+    }
+  }
+
+  /**
+   * Read a range written by writeRange.
+   */
+  public static IVersionRange readRange(DataInput in) throws IOException
+  {
+    int tag = in.readUnsignedByte();
+    int flags = in.readUnsignedByte();
+    String type = (flags & HAS_TYPE) != 0 ? in.readUTF() : null;
+
+    IVersionRange range;
+    switch (tag) {
+      case VERSION_RANGE: {
+        int operator = in.readUnsignedByte();
+        if (operator >= OPERATORS.length) {
+          throw new IOException("Unknown operator " + operator);
+        }
+        IVersion version = readVersion(in);
+        if (!(version instanceof SemanticVersion)) {
+          throw new IOException("Simple range must have a semantic version: " + version);
+        }
+        range = new VersionRange(OPERATORS[operator], (SemanticVersion) version);
+        break;
+      }
+      case AND_RANGE: {
+        IVersionRange range1 = readRange(in);
+        IVersionRange range2 = readRange(in);
+        range = new AndRange(range1, range2, (flags & IS_BOUNDED) != 0);
+        break;
+      }
+      case OR_RANGE: {
+        int size = readVarInt(in);
+        List<IVersionRange> ranges = new ArrayList<IVersionRange>(size);
+        for (int i = 0; i < size; i++) {
+          ranges.add(readRange(in));
+        }
+        range = new OrRange(ranges);
+        break;
+      }
+      case VERSION_SET: {
+        int size = readVarInt(in);
+        VersionSet set = new VersionSet();
+        for (int i = 0; i < size; i++) {
+          set.add(readVersion(in));
+        }
+        range = set;
+        break;
+      }
+      default:
+        throw new IOException("Unknown range tag " + tag);
+    }
+    range.setType(type);
+    range.setHasErrors((flags & HAS_ERRORS) != 0);
+    return range;
+  }
+
+  /**
+   * Write the version, with no format version.
+   */
+  public static void writeVersion(DataOutput out, IVersion version) throws IOException
+  {
+    if (version instanceof ExtendedSemanticVersion) {
+      ExtendedSemanticVersion eversion = (ExtendedSemanticVersion) version;
+      String postfix = eversion.getPostfix();
+      out.writeByte(EXTENDED_SEMANTIC_VERSION);
+      out.writeByte(postfix != null ? HAS_PRE_RELEASE : 0);
+      writeVarInt(out, eversion.getMajor());
+      writeVarInt(out, eversion.getMinor());
+      writeVarInt(out, eversion.getPatch());
+      writeVarInt(out, eversion.getBuild());
+      if (postfix != null) {
+        out.writeUTF(postfix);
+      }
+    }
+    else if (version instanceof SemanticVersion) {
+      SemanticVersion sversion = (SemanticVersion) version;
+      String preRelease = sversion.getPreRelease();
+      String buildMetadata = sversion.getBuildMetadata();
+      int flags = (preRelease != null ? HAS_PRE_RELEASE : 0) | (buildMetadata != null ? HAS_BUILD_METADATA : 0);
+      out.writeByte(SEMANTIC_VERSION);
+      out.writeByte(flags);
+      writeVarInt(out, sversion.getMajor());
+      writeVarInt(out, sversion.getMinor());
+      writeVarInt(out, sversion.getPatch());
+      // -1 means unknown, so shift everything up by one
+      writeVarInt(out, sversion.significantDigits + 1);
+      if (preRelease != null) {
+        out.writeUTF(preRelease);
+      }
+      if (buildMetadata != null) {
+        out.writeUTF(buildMetadata);
+      }
+    }
+    else if (version instanceof NamedVersion) {
+      out.writeByte(NAMED_VERSION);
+      out.writeUTF(version.toString());
+    }
+    else {
+      throw new UnsupportedOperationException("Cannot encode " + version.getClass().getSimpleName() + ": " + version);
+    }
+  }
+
+  /**
+   * Read a version written by writeVersion.
+   */
+  public static IVersion readVersion(DataInput in) throws IOException
+  {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case SEMANTIC_VERSION: {
+        int flags = in.readUnsignedByte();
+        int major = readVarInt(in);
+        int minor = readVarInt(in);
+        int patch = readVarInt(in);
+        int significantDigits = readVarInt(in) - 1;
+        String preRelease = (flags & HAS_PRE_RELEASE) != 0 ? in.readUTF() : null;
+        String buildMetadata = (flags & HAS_BUILD_METADATA) != 0 ? in.readUTF() : null;
+        return new SemanticVersion(major, minor, patch, preRelease, buildMetadata, significantDigits);
+      }
+      case EXTENDED_SEMANTIC_VERSION: {
+        int flags = in.readUnsignedByte();
+        int major = readVarInt(in);
+        int minor = readVarInt(in);
+        int patch = readVarInt(in);
+        int build = readVarInt(in);
+        String postfix = (flags & HAS_PRE_RELEASE) != 0 ? in.readUTF() : null;
+        return new ExtendedSemanticVersion(major, minor, patch, build, postfix);
+      }
+      case NAMED_VERSION:
+        try {
+          return new NamedVersion(in.readUTF());
+        }
+        catch (InvalidRangeException e) {
+          throw new IOException("Corrupt named version", e);
+        }
+      default:
+        throw new IOException("Unknown version tag " + tag);
+    }
+  }
+
+  /**
+   * Write a non-negative integer seven bits at a time, low bits first.
+   */
+  private static void writeVarInt(DataOutput out, int value) throws IOException
+  {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInput in) throws IOException
+  {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length integer");
+  }
+}
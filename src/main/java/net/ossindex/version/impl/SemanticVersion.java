@@ -33,10 +33,19 @@ import org.slf4j.LoggerFactory;
 
 /** Useful docs here: https://github.com/zafarkhaja/jsemver
  *
- * Wrapper around jsemver semantic version parsing code.
+ * Semantic version, parsed by the jsemver library.
  *
  * Semantic versioning is described here: http://semver.org/
  *
+ * Versions are compared far more often than they are created, so the parsed
+ * version is unpacked into primitive fields and compared directly. Comparing
+ * two release versions is three integer comparisons. The jsemver instance is
+ * only rebuilt if somebody asks for it with getVersionImpl().
+ *
+ * Ordering exactly follows jsemver: build metadata is ignored, a pre-release
+ * is lower than the release, and pre-release identifiers are compared
+ * numerically if they are both integers and lexically otherwise.
+ *
  * @author Ken Duck
  *
  */
@@ -45,7 +54,22 @@ public class SemanticVersion
 {
   private static final Logger LOG = LoggerFactory.getLogger(SemanticVersion.class);
 
-  protected Version head;
+  protected int major;
+
+  protected int minor;
+
+  protected int patch;
+
+  /**
+   * Dot separated pre-release identifiers, or null for a release
+   */
+  protected String preRelease;
+
+  /**
+   * Dot separated build metadata, or null if there is none. This is not used
+   * for ordering.
+   */
+  protected String buildMetadata;
 
   /**
    * Remember the number of significant digits when created. This is important
@@ -53,6 +77,19 @@ public class SemanticVersion
    */
   protected int significantDigits = -1;
 
+  /**
+   * The jsemver version, created on demand.
+   */
+  private volatile Version versionImpl;
+
+  /**
+   * The string form, created on demand. Versions are compared with other kinds
+   * of version by their strings, so this saves building the string again for
+   * every comparison. Strings are immutable, so a racy read at worst builds an
+   * identical string twice.
+   */
+  private String string;
+
   /** Use an external library for parsing.
    *
    * @param buf Version we are trying to parse
@@ -67,28 +104,52 @@ public class SemanticVersion
 
   public SemanticVersion(int major)
   {
-    head = Version.forIntegers(major);
+    this(major, 0, 0);
     significantDigits = 1;
   }
 
   public SemanticVersion(int major, int minor)
   {
-    head = Version.forIntegers(major, minor);
+    this(major, minor, 0);
     significantDigits = 2;
   }
 
   public SemanticVersion(int major, int minor, int patch)
   {
-    head = Version.forIntegers(major, minor, patch);
+    setNormalVersion(major, minor, patch);
     significantDigits = 3;
   }
 
+  /**
+   * Restore a version exactly as it was created, without parsing anything.
+   */
+  SemanticVersion(int major, int minor, int patch, String preRelease, String buildMetadata, int significantDigits)
+  {
+    setNormalVersion(major, minor, patch);
+    this.preRelease = preRelease;
+    this.buildMetadata = buildMetadata;
+    this.significantDigits = significantDigits;
+  }
 
   // Used by subclasses only
   protected SemanticVersion()
   {
   }
 
+  /**
+   * Set the numeric part of the version, following the same rules as jsemver.
+   */
+  protected void setNormalVersion(int major, int minor, int patch)
+  {
+    if (major < 0 || minor < 0 || patch < 0) {
+      throw new IllegalArgumentException("Major, minor and patch versions MUST be non-negative integers.");
+    }
+    this.major = major;
+    this.minor = minor;
+    this.patch = patch;
+    string = null;
+  }
+
   /** Set the version
    *
    * @param buf Version we are trying to parse
@@ -102,7 +163,16 @@ public class SemanticVersion
     while (buf.endsWith(".")) {
       buf = buf.substring(0, buf.length() - 1);
     }
-    head = Version.valueOf(buf);
+    Version version = Version.valueOf(buf);
+    major = version.getMajorVersion();
+    minor = version.getMinorVersion();
+    patch = version.getPatchVersion();
+    String pre = version.getPreReleaseVersion();
+    preRelease = pre.isEmpty() ? null : pre;
+    String build = version.getBuildMetadata();
+    buildMetadata = build.isEmpty() ? null : build;
+    versionImpl = null;
+    string = null;
 
     significantDigits = -1;
   }
@@ -114,10 +184,7 @@ public class SemanticVersion
   @Override
   public int getMajor()
   {
-    if (head == null) {
-      return 0;
-    }
-    return head.getMajorVersion();
+    return major;
   }
 
   /*
@@ -127,10 +194,7 @@ public class SemanticVersion
   @Override
   public int getMinor()
   {
-    if (head == null) {
-      return 0;
-    }
-    return head.getMinorVersion();
+    return minor;
   }
 
   /*
@@ -140,10 +204,7 @@ public class SemanticVersion
   @Override
   public int getPatch()
   {
-    if (head == null) {
-      return 0;
-    }
-    return head.getPatchVersion();
+    return patch;
   }
 
   /*
@@ -155,6 +216,22 @@ public class SemanticVersion
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * @return The pre-release identifiers, or null if this is a release.
+   */
+  public String getPreRelease()
+  {
+    return preRelease;
+  }
+
+  /**
+   * @return The build metadata, or null if there is none.
+   */
+  public String getBuildMetadata()
+  {
+    return buildMetadata;
+  }
+
   /*
    * (non-Javadoc)
    * @see java.lang.Object#equals(java.lang.Object)
@@ -162,14 +239,11 @@ public class SemanticVersion
   @Override
   public boolean equals(Object o)
   {
+    if (o == this) {
+      return true;
+    }
     if (o instanceof SemanticVersion) {
-      SemanticVersion v = (SemanticVersion) o;
-      if (this.head != null) {
-        return this.head.equals(v.head);
-      }
-      else {
-        return super.equals(v);
-      }
+      return compareTo((SemanticVersion) o) == 0;
     }
     return false;
   }
@@ -181,10 +255,14 @@ public class SemanticVersion
   @Override
   public int hashCode()
   {
-    if (head != null) {
-      return head.hashCode();
+    int hash = 17;
+    hash = 31 * hash + major;
+    hash = 31 * hash + minor;
+    hash = 31 * hash + patch;
+    if (preRelease != null) {
+      hash = 31 * hash + hashPreRelease(preRelease);
     }
-    return super.hashCode();
+    return hash;
   }
 
   /*
@@ -194,10 +272,13 @@ public class SemanticVersion
   @Override
   public int compareTo(IVersion other)
   {
+    if (other instanceof ExtendedSemanticVersion) {
+      // The extended version knows how to handle the build number
+      return -other.compareTo(this);
+    }
     if (other instanceof SemanticVersion) {
-      SemanticVersion sv = (SemanticVersion) other;
       // If neither is named, then compare them as semantic values
-      return this.head.compareTo(sv.head);
+      return compareSemantic((SemanticVersion) other);
     }
     else {
       // Fall back to simple string comparison
@@ -205,6 +286,159 @@ public class SemanticVersion
     }
   }
 
+  /**
+   * Compare the major, minor, patch and pre-release of the two versions.
+   */
+  protected final int compareSemantic(SemanticVersion other)
+  {
+    if (major != other.major) {
+      return major < other.major ? -1 : 1;
+    }
+    if (minor != other.minor) {
+      return minor < other.minor ? -1 : 1;
+    }
+    if (patch != other.patch) {
+      return patch < other.patch ? -1 : 1;
+    }
+    String myPre = preRelease;
+    String yourPre = other.preRelease;
+    if (myPre == null) {
+      return yourPre == null ? 0 : 1;
+    }
+    if (yourPre == null) {
+      return -1;
+    }
+    return comparePreRelease(myPre, yourPre);
+  }
+
+  /**
+   * Compare two dot separated lists of pre-release identifiers without splitting
+   * them up. Identifiers which are both integers are compared numerically, others
+   * lexically. If all common identifiers match then the shorter list is lower.
+   */
+  public static int comparePreRelease(String pre1, String pre2)
+  {
+    int len1 = pre1.length();
+    int len2 = pre2.length();
+    int start1 = 0;
+    int start2 = 0;
+    while (true) {
+      int end1 = pre1.indexOf('.', start1);
+      if (end1 < 0) {
+        end1 = len1;
+      }
+      int end2 = pre2.indexOf('.', start2);
+      if (end2 < 0) {
+        end2 = len2;
+      }
+      int result = compareIdentifiers(pre1, start1, end1, pre2, start2, end2);
+      if (result != 0) {
+        return result;
+      }
+      boolean more1 = end1 < len1;
+      boolean more2 = end2 < len2;
+      if (!more1 || !more2) {
+        if (more1 == more2) {
+          return 0;
+        }
+        return more1 ? 1 : -1;
+      }
+      start1 = end1 + 1;
+      start2 = end2 + 1;
+    }
+  }
+
+  private static int compareIdentifiers(String s1, int start1, int end1, String s2, int start2, int end2)
+  {
+    long value1 = parseIdentifier(s1, start1, end1);
+    if (value1 != NOT_AN_INT) {
+      long value2 = parseIdentifier(s2, start2, end2);
+      if (value2 != NOT_AN_INT) {
+        // Same arithmetic as jsemver, so we get the same order even on overflow
+        return (int) value1 - (int) value2;
+      }
+    }
+    int len1 = end1 - start1;
+    int len2 = end2 - start2;
+    int lim = Math.min(len1, len2);
+    for (int i = 0; i < lim; i++) {
+      char c1 = s1.charAt(start1 + i);
+      char c2 = s2.charAt(start2 + i);
+      if (c1 != c2) {
+        return c1 - c2;
+      }
+    }
+    return len1 - len2;
+  }
+
+  public static final long NOT_AN_INT = Long.MIN_VALUE;
+
+  /**
+   * Parse the identifier the same way Integer.parseInt would.
+   *
+   * @return The value, or NOT_AN_INT if Integer.parseInt would fail
+   */
+  public static long parseIdentifier(String s, int start, int end)
+  {
+    if (start >= end) {
+      return NOT_AN_INT;
+    }
+    boolean negative = false;
+    int i = start;
+    char first = s.charAt(i);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+      if (i == end) {
+        return NOT_AN_INT;
+      }
+    }
+    long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+    long value = 0;
+    for (; i < end; i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return NOT_AN_INT;
+      }
+      value = value * 10 + (c - '0');
+      if (value > limit) {
+        return NOT_AN_INT;
+      }
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Hash the pre-release consistently with comparePreRelease, so that
+   * identifiers which compare equal ("1" and "01") hash equal.
+   */
+  private static int hashPreRelease(String pre)
+  {
+    int hash = 1;
+    int len = pre.length();
+    int start = 0;
+    while (start <= len) {
+      int end = pre.indexOf('.', start);
+      if (end < 0) {
+        end = len;
+      }
+      long value = parseIdentifier(pre, start, end);
+      int identHash;
+      if (value != NOT_AN_INT) {
+        identHash = (int) value;
+      }
+      else {
+        identHash = 0;
+        for (int i = start; i < end; i++) {
+          identHash = 31 * identHash + pre.charAt(i);
+        }
+      }
+      hash = 31 * hash + identHash;
+      start = end + 1;
+    }
+    return hash;
+  }
+
   /*
    * (non-Javadoc)
    * @see java.lang.Object#toString()
@@ -212,7 +446,33 @@ public class SemanticVersion
   @Override
   public String toString()
   {
-    return head.toString();
+    String s = string;
+    if (s == null) {
+      s = createString();
+      string = s;
+    }
+    return s;
+  }
+
+  protected String createString()
+  {
+    StringBuilder sb = new StringBuilder();
+    appendSemanticString(sb);
+    return sb.toString();
+  }
+
+  /**
+   * Append the version in the same format jsemver would use.
+   */
+  protected void appendSemanticString(StringBuilder sb)
+  {
+    sb.append(major).append('.').append(minor).append('.').append(patch);
+    if (preRelease != null) {
+      sb.append('-').append(preRelease);
+    }
+    if (buildMetadata != null) {
+      sb.append('+').append(buildMetadata);
+    }
   }
 
   /** Returns true if this represents a stable release. We take this to mean
@@ -225,13 +485,30 @@ public class SemanticVersion
     return true;
   }
 
-  /** Get the SemVer instance.
+  /** Get the SemVer instance. This is built on first use.
    *
    * @return
    */
   public Version getVersionImpl()
   {
-    return head;
+    Version version = versionImpl;
+    if (version == null) {
+      version = createVersionImpl();
+      versionImpl = version;
+    }
+    return version;
+  }
+
+  protected Version createVersionImpl()
+  {
+    Version version = Version.forIntegers(major, minor, patch);
+    if (preRelease != null) {
+      version = version.setPreReleaseVersion(preRelease);
+    }
+    if (buildMetadata != null) {
+      version = version.setBuildMetadata(buildMetadata);
+    }
+    return version;
   }
 
   public boolean lessThan(IVersion version) {
@@ -240,7 +517,7 @@ public class SemanticVersion
       return false;
     }
 
-    return head.lessThan(((SemanticVersion) version).head);
+    return compareTo(version) < 0;
   }
 
   public boolean lessThanOrEqualTo(IVersion version) {
@@ -249,7 +526,7 @@ public class SemanticVersion
       return false;
     }
 
-    return head.lessThanOrEqualTo(((SemanticVersion) version).head);
+    return compareTo(version) <= 0;
   }
 
   public boolean greaterThan(IVersion version) {
@@ -258,7 +535,7 @@ public class SemanticVersion
       return false;
     }
 
-    return head.greaterThan(((SemanticVersion) version).head);
+    return compareTo(version) > 0;
   }
 
   public boolean greaterThanOrEqualTo(IVersion version) {
@@ -267,7 +544,7 @@ public class SemanticVersion
       return false;
     }
 
-    return head.greaterThanOrEqualTo(((SemanticVersion) version).head);
+    return compareTo(version) >= 0;
   }
 
   /**
@@ -276,9 +553,9 @@ public class SemanticVersion
    *   1.2.3 becomes 1.2.4
    */
   public SemanticVersion getNextVersion() {
-    int major = head.getMajorVersion();
-    int minor = head.getMinorVersion();
-    int patch = head.getPatchVersion();
+    int major = this.major;
+    int minor = this.minor;
+    int patch = this.patch;
     return new SemanticVersion(major, minor, patch + 1);
   }
 
@@ -291,9 +568,9 @@ public class SemanticVersion
    * for the lower minor version could be.
    */
   public SemanticVersion getPrevVersion() {
-    int major = head.getMajorVersion();
-    int minor = head.getMinorVersion();
-    int patch = head.getPatchVersion();
+    int major = this.major;
+    int minor = this.minor;
+    int patch = this.patch;
     if (patch > 0) {
       return new SemanticVersion(major, minor, patch - 1);
     }
@@ -312,9 +589,9 @@ public class SemanticVersion
    *   1.2.3 becomes 1.3.0
    */
   public SemanticVersion getNextParentVersion() {
-    int major = head.getMajorVersion();
-    int minor = head.getMinorVersion();
-    int patch = head.getPatchVersion();
+    int major = this.major;
+    int minor = this.minor;
+    int patch = this.patch;
 
     switch (significantDigits) {
       case 1:
@@ -339,9 +616,9 @@ public class SemanticVersion
    * https://docs.npmjs.com/misc/semver
    */
   public SemanticVersion getNextCaretVersion() {
-    int major = head.getMajorVersion();
-    int minor = head.getMinorVersion();
-    int patch = head.getPatchVersion();
+    int major = this.major;
+    int minor = this.minor;
+    int patch = this.patch;
 
     if (major != 0) {
       return new SemanticVersion(++major, 0, 0);
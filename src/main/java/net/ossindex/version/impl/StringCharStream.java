@@ -0,0 +1,124 @@
+package net.ossindex.version.impl;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A CharStream which reads directly from a String. Unlike ANTLRInputStream
+ * there is no copy of the input into a char buffer (nor any encoding and decoding
+ * of bytes), and the stream can be pointed at a new string so the same instance
+ * may be used for many parses.
+ *
+ * @author Ken Duck
+ */
+public final class StringCharStream
+    implements CharStream
+{
+  private String data = "";
+
+  private int n;
+
+  private int p;
+
+  public StringCharStream() {
+  }
+
+  public StringCharStream(String data) {
+    reset(data);
+  }
+
+  /**
+   * Point the stream at a new string, rewinding to the start.
+   */
+  public void reset(String data) {
+    this.data = data;
+    this.n = data.length();
+    this.p = 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.antlr.v4.runtime.IntStream#consume()
+   */
+  @Override
+  public void consume() {
+    if (p >= n) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    p++;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.antlr.v4.runtime.IntStream#LA(int)
+   */
+  @Override
+  public int LA(int i) {
+    if (i == 0) {
+      return 0; // undefined
+    }
+    if (i < 0) {
+      i++; // LA(-1) is the character before p
+      if (p + i - 1 < 0) {
+        return IntStream.EOF;
+      }
+    }
+    int index = p + i - 1;
+    if (index >= n) {
+      return IntStream.EOF;
+    }
+    return data.charAt(index);
+  }
+
+  /**
+   * Mark and release do nothing, we have the entire string.
+   */
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {
+  }
+
+  @Override
+  public int index() {
+    return p;
+  }
+
+  @Override
+  public void seek(int index) {
+    p = Math.min(Math.max(index, 0), n);
+  }
+
+  @Override
+  public int size() {
+    return n;
+  }
+
+  @Override
+  public String getSourceName() {
+    return IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.antlr.v4.runtime.CharStream#getText(org.antlr.v4.runtime.misc.Interval)
+   */
+  @Override
+  public String getText(Interval interval) {
+    int start = interval.a;
+    int stop = Math.min(interval.b, n - 1);
+    if (start >= n || stop < start) {
+      return "";
+    }
+    return data.substring(start, stop + 1);
+  }
+
+  @Override
+  public String toString() {
+    return data;
+  }
+}
@@ -1,13 +1,23 @@
 package net.ossindex.version.impl;
 
-import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
 
+/**
+ * Counts syntax errors, and remembers where the first one was. Nothing is
+ * printed.
+ */
 public class VersionErrorListener
-    extends ConsoleErrorListener
+    extends BaseErrorListener
 {
-  public int errors = 0;
+  private int errors = 0;
+
+  private int firstPosition = -1;
+
+  private String firstMessage;
 
   public void syntaxError(Recognizer<?, ?> recognizer,
                           Object offendingSymbol,
@@ -16,10 +26,28 @@ public class VersionErrorListener
                           String msg,
                           RecognitionException e)
   {
-    super.syntaxError(recognizer, offendingSymbol, line, charPositionInLine, msg, e);
+    if (errors == 0) {
+      // Whitespace may include newlines, so the column is not always the offset
+      firstPosition = offset(recognizer, offendingSymbol, charPositionInLine);
+      firstMessage = msg;
+    }
     errors++;
   }
 
+  /**
+   * @return The offset in the input of the offending token (for the parser) or
+   * of the token being matched (for the lexer)
+   */
+  private static int offset(Recognizer<?, ?> recognizer, Object offendingSymbol, int charPositionInLine) {
+    if (offendingSymbol instanceof Token) {
+      return ((Token) offendingSymbol).getStartIndex();
+    }
+    if (recognizer instanceof Lexer) {
+      return ((Lexer) recognizer)._tokenStartCharIndex;
+    }
+    return charPositionInLine;
+  }
+
   public int getErrorCount() {
     return errors;
   }
@@ -27,4 +55,28 @@ public class VersionErrorListener
   public boolean hasErrors() {
     return errors > 0;
   }
+
+  /**
+   * @return The offset of the first error in the input, or -1 if there were no
+   * errors
+   */
+  public int getFirstErrorPosition() {
+    return firstPosition;
+  }
+
+  /**
+   * @return The message of the first error, or null if there were no errors
+   */
+  public String getFirstErrorMessage() {
+    return firstMessage;
+  }
+
+  /**
+   * Clear the error count so the listener can be used for another parse.
+   */
+  public void reset() {
+    errors = 0;
+    firstPosition = -1;
+    firstMessage = null;
+  }
 }
@@ -26,7 +26,8 @@
  */
 package net.ossindex.version.impl;
 
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +37,10 @@ import net.ossindex.version.InvalidRangeException;
 import net.ossindex.version.InvalidRangeRuntimeException;
 import net.ossindex.version.parser.VersionBaseListener;
 import net.ossindex.version.parser.VersionParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 /**
  * Listener for the version parser.
@@ -43,6 +48,12 @@ import net.ossindex.version.parser.VersionParser;
  * This converts all the various versions and ranges we can find to
  * semantic versions and ranges.
  *
+ * The listener only looks at the labelled tokens and rules of each context
+ * (ctx.major, ctx.op and so on) and at the terminals it is shown, never at
+ * the children of a context (other than to look for error recovery, which
+ * only happens when there is a tree). It therefore works both when walking a
+ * parse tree and as a parse listener on a parser which is not building a tree.
+ *
  * @author Ken Duck
  */
 public class VersionListener
@@ -54,10 +65,29 @@ public class VersionListener
 
   private final boolean strict;
 
-  private Stack<Object> stack = new Stack<Object>();
+  private final Deque<Object> stack = new ArrayDeque<Object>();
 
   private IVersionRange range;
 
+  /**
+   * Which alternative of the top level range rule matched
+   */
+  private int rangeRule = -1;
+
+  /**
+   * Text of the identifier or named version being matched, built up from its
+   * terminals
+   */
+  private final StringBuilder text = new StringBuilder();
+
+  private boolean capturing;
+
+  /**
+   * The normalized text of the last identifier, waiting for its postfix
+   * version
+   */
+  private String postfix;
+
   public VersionListener() {
     this.strict = false;
   }
@@ -71,61 +101,107 @@ public class VersionListener
     return range;
   }
 
+  /**
+   * @return The rule index (VersionParser.RULE_maven_ranges and so on) of the
+   * alternative the top level range rule matched, or -1 if none was entered
+   */
+  public int getRangeRule()
+  {
+    return rangeRule;
+  }
+
   @Override
-  public void exitNumeric_version(VersionParser.Numeric_versionContext ctx)
+  public void enterEveryRule(ParserRuleContext ctx)
   {
-    IVersion version = null;
+    if (rangeRule < 0 && ctx.getParent() instanceof VersionParser.RangeContext) {
+      rangeRule = ctx.getRuleIndex();
+    }
+  }
 
-    int count = ctx.getChildCount();
-    switch (count) {
-      case 1:
-      case 2: {
-        String token = ctx.getChild(0).getText();
-        int major = Integer.parseInt(token);
-        version = new SemanticVersion(major);
-        break;
-      }
-      case 3:
-      case 4: {
-        int major = Integer.parseInt(ctx.getChild(0).getText());
-        int minor = Integer.parseInt(ctx.getChild(2).getText());
-        version = new SemanticVersion(major, minor);
-        break;
-      }
-      case 5:
-      case 6: {
-        int major = Integer.parseInt(ctx.getChild(0).getText());
-        int minor = Integer.parseInt(ctx.getChild(2).getText());
-        try {
-          int patch = Integer.parseInt(ctx.getChild(4).getText());
-          version = new SemanticVersion(major, minor, patch);
-        }
-        catch (NumberFormatException e) {
-          // This can happen if the number is a long. In this case we will force it to be an identifier as a reassonable
-          // work-around.
-          version = new SemanticVersion(major + "." + minor + ".0-" + ctx.getChild(4).getText());
-        }
-        break;
+  @Override
+  public void visitTerminal(TerminalNode node)
+  {
+    if (capturing) {
+      text.append(node.getText());
+    }
+  }
+
+  @Override
+  public void visitErrorNode(ErrorNode node)
+  {
+    if (capturing) {
+      text.append(node.getText());
+    }
+  }
+
+  /**
+   * Start collecting the text of the current rule.
+   */
+  private void capture()
+  {
+    text.setLength(0);
+    capturing = true;
+  }
+
+  /**
+   * @return The text of the rule since capture() was called
+   */
+  private String captured()
+  {
+    capturing = false;
+    return text.toString();
+  }
+
+  @Override
+  public void exitNumeric_version(VersionParser.Numeric_versionContext ctx)
+  {
+    IVersion version;
+
+    if (hasErrorNodes(ctx)) {
+      // A version with a gap in it is not one we can trust. Refuse it as if the
+      // number could not be read, and the string falls back to a named version.
+      throw new NumberFormatException("Syntax error in version: " + ctx.getText());
+    }
+    int major = Integer.parseInt(ctx.major.getText());
+    if (ctx.minor == null) {
+      version = new SemanticVersion(major);
+    }
+    else if (ctx.patch == null) {
+      int minor = Integer.parseInt(ctx.minor.getText());
+      version = new SemanticVersion(major, minor);
+    }
+    else if (ctx.build == null) {
+      int minor = Integer.parseInt(ctx.minor.getText());
+      try {
+        int patch = Integer.parseInt(ctx.patch.getText());
+        version = new SemanticVersion(major, minor, patch);
       }
-      case 7:
-      case 8: {
-        int major = Integer.parseInt(ctx.getChild(0).getText());
-        int minor = Integer.parseInt(ctx.getChild(2).getText());
-        int patch = Integer.parseInt(ctx.getChild(4).getText());
-        int build = Integer.parseInt(ctx.getChild(6).getText());
-        version = new ExtendedSemanticVersion(major, minor, patch, build);
-        break;
+      catch (NumberFormatException e) {
+        // This can happen if the number is a long. In this case we will force it to be an identifier as a reassonable
+        // work-around.
+        version = new SemanticVersion(major + "." + minor + ".0-" + ctx.patch.getText());
       }
     }
+    else {
+      int minor = Integer.parseInt(ctx.minor.getText());
+      int patch = Integer.parseInt(ctx.patch.getText());
+      int build = Integer.parseInt(ctx.build.getText());
+      version = new ExtendedSemanticVersion(major, minor, patch, build);
+    }
     stack.push(version);
   }
 
+  @Override
+  public void enterIdentifier(VersionParser.IdentifierContext ctx) {
+    capture();
+  }
+
   /**
    * Normalize the postfix to something that semantic version can handle
    */
   @Override
   public void exitIdentifier(VersionParser.IdentifierContext ctx) {
-    String postfix = ctx.getText();
+    String postfix = captured();
     // A numeric postfix cannot have leading zeroes
     // FIXME: Check to see if an alphanumeric postfix with leading zeroes counts
     Matcher m = numericHasLeadingZeroes.matcher(postfix);
@@ -136,7 +212,7 @@ public class VersionListener
     while (!postfix.isEmpty() && !startsWithDigitLetterOrHyphen.matcher(postfix).find()) {
       postfix = postfix.substring(1);
     }
-    stack.push(postfix);
+    this.postfix = postfix;
   }
 
   /**
@@ -145,108 +221,74 @@ public class VersionListener
   @Override
   public void exitPostfix_version(VersionParser.Postfix_versionContext ctx)
   {
-    SemanticVersion version = null;
-
-    int count = ctx.getChildCount();
-    Object o = stack.pop();
-    if (!(o instanceof String)) {
-      throw new InvalidRangeRuntimeException("Expected string, got " + o.getClass().getSimpleName() + " (" + o + ")");
-    }
-    String postfix = (String) o;
-    switch (count) {
-      case 4: {
-        //1.2.3alpha
-        switch (postfix.toUpperCase()) {
-          case "RELEASE":
-          case "FINAL":
-          case "GA":
-            version = new SemanticVersion(
-                ctx.getChild(0).getText() + "."
-                    + ctx.getChild(2).getText());
-            break;
-          default:
-            version = new SemanticVersion(
-                ctx.getChild(0).getText() + "."
-                    + ctx.getChild(2).getText() + "."
-                    + "0" + "-"
-                    + postfix);
-            break;
-        }
-        break;
-      }
-      case 5:
-        version = new SemanticVersion(
-            ctx.getChild(0).getText() + "."
-                + ctx.getChild(2).getText() + "."
-                + "0" + "-"
-                + postfix);
-        break;
-      case 6: {
-        //1.2.3alpha
-        switch (postfix.toUpperCase()) {
-          case "RELEASE":
-          case "FINAL":
-          case "GA":
-            version = new SemanticVersion(
-                ctx.getChild(0).getText() + "."
-                    + ctx.getChild(2).getText() + "."
-                    + ctx.getChild(4).getText());
-            break;
-          default:
-            version = new SemanticVersion(
-                ctx.getChild(0).getText() + "."
-                    + ctx.getChild(2).getText() + "."
-                    + ctx.getChild(4).getText() + "-"
-                    + postfix);
-            break;
-        }
-        break;
+    String postfix = this.postfix;
+    if (postfix == null) {
+      throw new InvalidRangeRuntimeException("Expected a postfix after " + ctx.major.getText());
+    }
+    this.postfix = null;
+
+    String major = ctx.major.getText();
+    String minor = ctx.minor.getText();
+    SemanticVersion version;
+    if (ctx.build != null) {
+      // 0.2.4.23-1-deb7u1
+      version = new ExtendedSemanticVersion(Integer.parseInt(major), Integer.parseInt(minor),
+          Integer.parseInt(ctx.patch.getText()), Integer.parseInt(ctx.build.getText()), postfix);
+    }
+    else if (ctx.patch != null) {
+      //1.2.3alpha
+      //1.2.3-alpha
+      //1.2.3.alpha
+      if (isRelease(postfix)) {
+        version = new SemanticVersion(major + "." + minor + "." + ctx.patch.getText());
       }
-      case 7: {
-        //1.2.3-alpha
-        //1.2.3.alpha
-        switch (postfix.toUpperCase()) {
-          case "RELEASE":
-          case "FINAL":
-          case "GA":
-            version = new SemanticVersion(
-                ctx.getChild(0).getText() + "."
-                    + ctx.getChild(2).getText() + "."
-                    + ctx.getChild(4).getText());
-            break;
-          default:
-            version = new SemanticVersion(
-                ctx.getChild(0).getText() + "."
-                    + ctx.getChild(2).getText() + "."
-                    + ctx.getChild(4).getText() + "-"
-                    + postfix);
-            break;
-        }
-        break;
-      }
-      case 8:
-      case 9: {
-        // 0.2.4.23-1-deb7u1
-        int major = Integer.parseInt(ctx.getChild(0).getText());
-        int minor = Integer.parseInt(ctx.getChild(2).getText());
-        int patch = Integer.parseInt(ctx.getChild(4).getText());
-        int build = Integer.parseInt(ctx.getChild(6).getText());
-        version = new ExtendedSemanticVersion(major, minor, patch, build, postfix);
-        break;
+      else {
+        version = new SemanticVersion(major + "." + minor + "." + ctx.patch.getText() + "-" + postfix);
       }
     }
+    else if (ctx.separator == null && isRelease(postfix)) {
+      //1.2RELEASE
+      version = new SemanticVersion(major + "." + minor);
+    }
+    else {
+      //1.2alpha
+      //1.2-alpha
+      version = new SemanticVersion(major + "." + minor + "." + "0" + "-" + postfix);
+    }
     stack.push(version);
   }
 
+  /**
+   * @return true if the postfix just marks a release, and is not part of the
+   * version
+   */
+  private static boolean isRelease(String postfix)
+  {
+    switch (postfix.toUpperCase()) {
+      case "RELEASE":
+      case "FINAL":
+      case "GA":
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * Get a named version.
    */
+  @Override
+  public void enterNamed_version(VersionParser.Named_versionContext ctx)
+  {
+    capture();
+  }
+
   @Override
   public void exitNamed_version(VersionParser.Named_versionContext ctx)
   {
     IVersion version = null;
     try {
-      version = new NamedVersion(ctx.getText());
+      version = new NamedVersion(captured());
     }
     catch (InvalidRangeException e) {
       throw new InvalidRangeRuntimeException(e.getMessage(), e);
@@ -278,7 +320,7 @@ public class VersionListener
    */
   @Override
   public void exitSemantic_range(VersionParser.Semantic_rangeContext ctx) {
-    String operator = ctx.getChild(0).getText();
+    String operator = ctx.op.getText();
     Object o = stack.pop();
     if (o instanceof SemanticVersion) {
       switch (operator) {
@@ -306,7 +348,7 @@ public class VersionListener
   @Override
   public void exitSimple_range(VersionParser.Simple_rangeContext ctx)
   {
-    String operator = ctx.getChild(0).getText();
+    String operator = ctx.op.getText();
     Object o = stack.pop();
     if (o instanceof SemanticVersion) {
       //range = new SemanticVersionRange((SemanticVersion)o);
@@ -363,33 +405,14 @@ public class VersionListener
   @Override
   public void exitLogical_range(VersionParser.Logical_rangeContext ctx)
   {
-    // Two tokens is automatically an 'and'
-    if (ctx.getChildCount() == 2) {
-      Object o1 = stack.pop();
-      Object o2 = stack.pop();
-      stack.push(new AndRange((IVersionRange) o2, (IVersionRange) o1));
-    }
-    // Three tokens may be and OR or OR a bracketed version
-    else if (ctx.getChildCount() == 3) {
-      String first = ctx.getChild(0).getText();
-      if ("(".equals(first)) {
-        // bracketed token, do nothing
-      }
-      else {
-        Object o1 = stack.pop();
-        Object o2 = stack.pop();
-
-        String operator = ctx.getChild(1).getText();
-
-        switch (operator) {
-          case "&":
-          case ",":
-            stack.push(new AndRange((IVersionRange) o2, (IVersionRange) o1));
-            break;
-        }
-      }
+    // A bracketed range is already on the stack
+    if (ctx.open != null) {
+      return;
     }
-    // Everything else is a fall through
+    // Two ranges, whether joined by '&', ',' or nothing at all, is an 'and'
+    Object o1 = stack.pop();
+    Object o2 = stack.pop();
+    stack.push(new AndRange((IVersionRange) o2, (IVersionRange) o1));
   }
 
   /*
@@ -434,7 +457,7 @@ public class VersionListener
    */
   @Override
   public void exitMaven_ranges(VersionParser.Maven_rangesContext ctx) {
-    if (ctx.getChildCount() == 3) {
+    if (ctx.comma != null) {
       IVersionRange r1 = (IVersionRange) stack.pop();
       IVersionRange r2 = (IVersionRange) stack.pop();
       stack.push(new OrRange(r2, r1));
@@ -452,7 +475,32 @@ public class VersionListener
    */
   @Override
   public void exitMaven_range(VersionParser.Maven_rangeContext ctx) {
+    if (hasErrorNodes(ctx)) {
+      exitRecoveredMaven_range(ctx);
+      return;
+    }
 
+    if (ctx.comma == null) {
+      // This could be a version set, or possibly an empty set
+      VersionSet set = new VersionSet();
+      if (ctx.lower != null && !isDash(ctx.lower)) {
+        SemanticVersion v1 = (SemanticVersion) stack.pop();
+        set.add(v1);
+      }
+      stack.push(set);
+      return;
+    }
+
+    // Otherwise it is a range. The upper version is on the top of the stack.
+    SemanticVersion v2 = ctx.upper != null ? (SemanticVersion) stack.pop() : null;
+    SemanticVersion v1 = ctx.lower != null ? (SemanticVersion) stack.pop() : null;
+    pushMavenRange(ctx.open.getText(), v1, v2, ctx.close.getText());
+  }
+
+  /**
+   * A maven range with error nodes in it, read by position
+   */
+  private void exitRecoveredMaven_range(VersionParser.Maven_rangeContext ctx) {
     // This could be a version set
     if (ctx.getChildCount() == 3) {
       VersionSet set = new VersionSet();
@@ -500,7 +548,10 @@ public class VersionListener
       v1 = v2;
       v2 = tmp;
     }
+    pushMavenRange(open, v1, v2, close);
+  }
 
+  private void pushMavenRange(String open, SemanticVersion v1, SemanticVersion v2, String close) {
     // Figure out what the range endpoints are
     IVersionRange r1 = null;
     if (v1 != null) {
@@ -544,6 +595,31 @@ public class VersionListener
     }
   }
 
+  /**
+   * Error recovery on the LL pass can leave error nodes among the children of
+   * a context, which the labels skip over. Where that matters the children are
+   * read by position instead, as they always were, so that broken strings give
+   * the same results as before.
+   */
+  private static boolean hasErrorNodes(ParserRuleContext ctx)
+  {
+    for (int i = 0; i < ctx.getChildCount(); i++) {
+      if (ctx.getChild(i) instanceof ErrorNode) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the version is nothing but a '-', as in "[-]"
+   */
+  private static boolean isDash(VersionParser.VersionContext ctx)
+  {
+    Token start = ctx.getStart();
+    return start == ctx.getStop() && "-".equals(start.getText());
+  }
+
   /**
    * In strict mode we will want to disallow broken ranges
    */
@@ -0,0 +1,282 @@
+package net.ossindex.version.impl;
+
+import net.ossindex.version.parser.VersionLexer;
+import net.ossindex.version.parser.VersionParser;
+import net.ossindex.version.parser.VersionParser.RangeContext;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNDeserializer;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.RuleStopState;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+/**
+ * Holds a lexer, token stream and parser which are reused from one parse to the
+ * next, instead of building (and throwing away) the whole ANTLR pipeline for every
+ * string. One engine is kept per thread, since none of the ANTLR objects are
+ * thread safe.
+ *
+ * The expensive part of ANTLR, the DFA built up by adaptive prediction, lives in
+ * the static _decisionToDFA and _sharedContextCache fields of the generated lexer
+ * and parser. It is therefore already shared by every engine on every thread, and
+ * warms up once per JVM rather than once per thread.
+ *
+ * Usage:
+ *
+ *   VersionParsingEngine engine = VersionParsingEngine.get();
+ *   VersionListener listener = engine.build(vstring, strict);
+ *   ... listener.getRange() ...
+ *   engine.getErrorListener().hasErrors();
+ *
+ * build() avoids the parse tree wherever it can. parse() returns the tree
+ * itself, which is only valid until the next call to parse on the same thread.
+ *
+ * Each string is first parsed with SLL prediction, which is much cheaper than
+ * full LL, and gives up at the first error. Only if that fails is the string
+ * parsed again with full LL prediction and the usual error recovery. A
+ * successful SLL parse is the same parse LL would have produced, and anything
+ * that fails is treated exactly as before, so the results (including syntax
+ * errors) do not change.
+ *
+ * The SLL pass never builds a broken_range. SLL prediction does not know which
+ * rule it was called from, so it has to allow for anything that may follow a
+ * rule anywhere in the grammar, and broken_range lets any token at all follow a
+ * version. That alone made SLL give up on most strings that end in a named
+ * version or a postfix. The SLL pass therefore uses its own copy of the ATN in
+ * which nothing returns into broken_range, and any string that needs a broken
+ * range is left to the LL pass, which parses it exactly as before.
+ *
+ * In build() the SLL pass does not build a parse tree at all: the
+ * VersionListener is attached as a parse listener and builds the range as the
+ * rules are matched. A tree is only built (and walked) on the LL pass, where
+ * error recovery may leave it looking different from the rules matched.
+ *
+ * @author Ken Duck
+ */
+public final class VersionParsingEngine
+{
+  private static final ThreadLocal<VersionParsingEngine> engines = new ThreadLocal<VersionParsingEngine>()
+  {
+    @Override
+    protected VersionParsingEngine initialValue() {
+      return new VersionParsingEngine();
+    }
+  };
+
+  /**
+   * The parser's ATN, less the follow links into broken_range
+   */
+  private static final ATN SLL_ATN = withoutBrokenRange();
+
+  private static final DFA[] SLL_DFA = createDFA(SLL_ATN);
+
+  private static final PredictionContextCache SLL_CONTEXT_CACHE = new PredictionContextCache();
+
+  private final StringCharStream input = new StringCharStream();
+
+  private final VersionErrorListener errorListener = new VersionErrorListener();
+
+  private final VersionLexer lexer;
+
+  private final ReusableTokenStream tokens;
+
+  private final VersionParser parser;
+
+  private final BailErrorStrategy bail = new BailErrorStrategy();
+
+  private final DefaultErrorStrategy recover = new DefaultErrorStrategy();
+
+  private final ParserATNSimulator sll;
+
+  private final ParserATNSimulator ll;
+
+  /**
+   * How many strings this engine has had to parse a second time with full LL
+   */
+  private long fallbacks;
+
+  /**
+   * True while a parse result is being used. Guards against re-entrant use on
+   * the same thread, which would clobber the tree being walked.
+   */
+  private boolean busy;
+
+  private VersionParsingEngine() {
+    lexer = new VersionLexer(input);
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(errorListener);
+
+    tokens = new ReusableTokenStream(lexer);
+
+    parser = new VersionParser(tokens);
+    parser.removeErrorListeners();
+    parser.addErrorListener(errorListener);
+
+    sll = new ParserATNSimulator(parser, SLL_ATN, SLL_DFA, SLL_CONTEXT_CACHE);
+    sll.setPredictionMode(PredictionMode.SLL);
+    ll = parser.getInterpreter();
+    ll.setPredictionMode(PredictionMode.LL);
+  }
+
+  /**
+   * Copy the parser's ATN, dropping every transition from the end of a rule back
+   * into broken_range.
+   */
+  private static ATN withoutBrokenRange() {
+    ATN atn = new ATNDeserializer().deserialize(VersionParser._serializedATN.toCharArray());
+    for (ATNState state : atn.states) {
+      if (state instanceof RuleStopState) {
+        for (int i = state.getNumberOfTransitions() - 1; i >= 0; i--) {
+          if (state.transition(i).target.ruleIndex == VersionParser.RULE_broken_range) {
+            state.removeTransition(i);
+          }
+        }
+      }
+    }
+    return atn;
+  }
+
+  private static DFA[] createDFA(ATN atn) {
+    DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+    for (int i = 0; i < dfa.length; i++) {
+      dfa[i] = new DFA(atn.getDecisionState(i), i);
+    }
+    return dfa;
+  }
+
+  /**
+   * Get the engine for the current thread. If the thread's engine is already in
+   * use a new, private, engine is returned instead.
+   */
+  public static VersionParsingEngine get() {
+    VersionParsingEngine engine = engines.get();
+    if (engine.busy) {
+      engine = new VersionParsingEngine();
+    }
+    return engine;
+  }
+
+  /**
+   * Parse the string, resetting all state left over from any previous parse.
+   * Callers must call release() once they are done with the result.
+   */
+  public RangeContext parse(String vstring) {
+    busy = true;
+    reset(vstring);
+    parser.setInterpreter(sll);
+    parser.setErrorHandler(bail);
+    try {
+      RangeContext context = parser.range();
+      if (context.broken_range() == null) {
+        return context;
+      }
+    }
+    catch (ParseCancellationException e) {
+      // Either a real syntax error, or something only full LL can parse
+    }
+    return parseLL(vstring);
+  }
+
+  /**
+   * Parse the string and build its range. The SLL pass builds the range
+   * directly, with no parse tree. Callers must call release() once they are
+   * done with the engine's error listener.
+   */
+  public VersionListener build(String vstring, boolean strict) {
+    busy = true;
+    reset(vstring);
+    VersionListener listener = new VersionListener(strict);
+    parser.setInterpreter(sll);
+    parser.setErrorHandler(bail);
+    parser.setBuildParseTree(false);
+    parser.addParseListener(listener);
+    try {
+      parser.range();
+      if (listener.getRangeRule() != VersionParser.RULE_broken_range) {
+        return listener;
+      }
+    }
+    catch (RuntimeException e) {
+      // A syntax error, something only full LL can parse, or a complaint from
+      // the listener about a parse which LL may not agree with
+    }
+    finally {
+      parser.removeParseListeners();
+      parser.setBuildParseTree(true);
+    }
+
+    listener = new VersionListener(strict);
+    ParseTreeWalker.DEFAULT.walk(listener, parseLL(vstring));
+    return listener;
+  }
+
+  /**
+   * Parse the string again, with full LL prediction and the usual error
+   * recovery.
+   */
+  private RangeContext parseLL(String vstring) {
+    fallbacks++;
+    reset(vstring);
+    parser.setInterpreter(ll);
+    parser.setErrorHandler(recover);
+    return parser.range();
+  }
+
+  /**
+   * Start again from the beginning of the string, forgetting any errors.
+   */
+  private void reset(String vstring) {
+    errorListener.reset();
+    input.reset(vstring);
+    lexer.setInputStream(input);
+    tokens.reset(lexer);
+    parser.setInputStream(tokens);
+    // Normally left at -1 by the last rule exiting, but not if a parse listener
+    // threw part way through
+    parser.setState(ATNState.INVALID_STATE_NUMBER);
+  }
+
+  /**
+   * Mark the engine as available for the next parse.
+   */
+  public void release() {
+    busy = false;
+  }
+
+  public VersionErrorListener getErrorListener() {
+    return errorListener;
+  }
+
+  /**
+   * @return How many strings this engine has had to parse a second time with
+   * full LL prediction
+   */
+  public long getFallbackCount() {
+    return fallbacks;
+  }
+
+  /**
+   * CommonTokenStream does not forget that it has reached EOF when it is pointed
+   * at a token source, so we do that ourselves.
+   */
+  private static final class ReusableTokenStream
+      extends CommonTokenStream
+  {
+    public ReusableTokenStream(TokenSource tokenSource) {
+      super(tokenSource);
+    }
+
+    public void reset(TokenSource tokenSource) {
+      fetchedEOF = false;
+      setTokenSource(tokenSource);
+    }
+  }
+}
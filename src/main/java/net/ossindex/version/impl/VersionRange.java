@@ -39,26 +39,137 @@ import net.ossindex.version.IVersionRange;
 public class VersionRange
     extends AbstractCommonRange
 {
+  /**
+   * The comparison operators a simple range may use.
+   */
+  public enum Operator
+  {
+    LT("<", true, false, false),
+    LE("<=", true, true, false),
+    GT(">", false, false, true),
+    GE(">=", false, true, true);
+
+    private final String symbol;
+
+    /**
+     * Which results of candidate.compareTo(bound) are within the range
+     */
+    private final boolean acceptsBelow;
+
+    private final boolean acceptsEqual;
+
+    private final boolean acceptsAbove;
+
+    Operator(String symbol, boolean acceptsBelow, boolean acceptsEqual, boolean acceptsAbove)
+    {
+      this.symbol = symbol;
+      this.acceptsBelow = acceptsBelow;
+      this.acceptsEqual = acceptsEqual;
+      this.acceptsAbove = acceptsAbove;
+    }
+
+    /**
+     * Get the operator for a string such as "&gt;=".
+     *
+     * @throws IllegalArgumentException if the operator is not supported
+     */
+    public static Operator fromSymbol(String symbol)
+    {
+      if (symbol != null) {
+        switch (symbol) {
+          case "<":
+            return LT;
+          case "<=":
+            return LE;
+          case ">":
+            return GT;
+          case ">=":
+            return GE;
+        }
+      }
+      throw new IllegalArgumentException("Invalid operator: " + symbol);
+    }
+
+    public String getSymbol()
+    {
+      return symbol;
+    }
+
+    /**
+     * True if the bound version itself is within the range
+     */
+    public boolean isInclusive()
+    {
+      return acceptsEqual;
+    }
+
+    /**
+     * True if the range goes up to infinity
+     */
+    public boolean isUnbounded()
+    {
+      return acceptsAbove;
+    }
+
+    /**
+     * The operator which accepts exactly the versions this one rejects
+     */
+    public Operator invert()
+    {
+      switch (this) {
+        case LT:
+          return GE;
+        case LE:
+          return GT;
+        case GT:
+          return LE;
+        default:
+          return LT;
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return symbol;
+    }
+  }
+
   private String type;
 
+  private final Operator operator;
+
+  private final SemanticVersion version;
+
   /**
-   *
+   * The operator's rules, copied here so that contains does not need to look
+   * at the operator at all.
    */
-  private String operator;
+  private final boolean acceptsBelow;
+
+  private final boolean acceptsEqual;
 
-  private SemanticVersion version;
+  private final boolean acceptsAbove;
 
   private boolean hasErrors = false;
 
   /**
    *
-   * @param operator
+   * @param operator One of &lt;, &lt;=, &gt; or &gt;=
    * @param version
    */
   public VersionRange(String operator, SemanticVersion version)
+  {
+    this(Operator.fromSymbol(operator), version);
+  }
+
+  public VersionRange(Operator operator, SemanticVersion version)
   {
     this.version = version;
     this.operator = operator;
+    this.acceptsBelow = operator.acceptsBelow;
+    this.acceptsEqual = operator.acceptsEqual;
+    this.acceptsAbove = operator.acceptsAbove;
   }
 
   /*
@@ -68,42 +179,19 @@ public class VersionRange
   @Override
   public boolean contains(IVersion version)
   {
-
     // Can the versions be compared?
     if (!(version instanceof SemanticVersion)) {
       return false;
     }
 
-    // We always want the extended version on the left, since it has the
-    // more complex code.
-    if (this.version instanceof ExtendedSemanticVersion) {
-      switch (operator) {
-        case ">":
-          return this.version.lessThan(version);
-        case ">=":
-          return this.version.lessThanOrEqualTo(version);
-        case "<":
-          return this.version.greaterThan(version);
-        case "<=":
-          return this.version.greaterThanOrEqualTo(version);
-        default:
-          throw new IllegalArgumentException("Invalid operator: " + operator);
-      }
+    int cmp = ((SemanticVersion) version).compareTo(this.version);
+    if (cmp < 0) {
+      return acceptsBelow;
     }
-    else {
-      switch (operator) {
-        case "<":
-          return ((SemanticVersion) version).lessThan(this.version);
-        case "<=":
-          return ((SemanticVersion) version).lessThanOrEqualTo(this.version);
-        case ">":
-          return ((SemanticVersion) version).greaterThan(this.version);
-        case ">=":
-          return ((SemanticVersion) version).greaterThanOrEqualTo(this.version);
-        default:
-          throw new IllegalArgumentException("Invalid operator: " + operator);
-      }
+    if (cmp > 0) {
+      return acceptsAbove;
     }
+    return acceptsEqual;
   }
 
   /*
@@ -113,9 +201,6 @@ public class VersionRange
   @Override
   public boolean isDiscrete()
   {
-    if (operator == null) {
-      return true;
-    }
     return false;
   }
 
@@ -137,16 +222,14 @@ public class VersionRange
   public IVersion getMinimum()
   {
     switch (operator) {
-      case "<":
-      case "<=":
+      case LT:
+      case LE:
         return new SemanticVersion(0);
-      case ">":
+      case GT:
         // FIXME: Not quite correct. We need to increment the version.
         return version;
-      case ">=":
-        return version;
       default:
-        throw new IllegalArgumentException("Invalid operator: " + operator);
+        return version;
     }
   }
 
@@ -158,16 +241,14 @@ public class VersionRange
   public IVersion getMaximum()
   {
     switch (operator) {
-      case "<":
+      case LT:
         return version.getPrevVersion();
-      case "<=":
+      case LE:
         return version;
-      case ">":
+      case GT:
         return version.getNextVersion();
-      case ">=":
-        return null;
       default:
-        throw new IllegalArgumentException("Invalid operator: " + operator);
+        return null;
     }
   }
 
@@ -178,7 +259,7 @@ public class VersionRange
   @Override
   public String toString()
   {
-    return operator + version;
+    return operator.getSymbol() + version;
   }
 
   /*
@@ -188,27 +269,16 @@ public class VersionRange
   @Override
   public String toMavenString()
   {
-    String mavenString = "";
     switch (operator) {
-      case "<=":
-        mavenString = "(,%s]";
-        break;
-      case "<":
-        mavenString = "(,%s)";
-        break;
-      case "==":
-        mavenString = "[%s]";
-        break;
-      case ">=":
-        mavenString = "[%s,)";
-        break;
-      case ">":
-        mavenString = "(%s,)";
-        break;
+      case LE:
+        return "(," + version + "]";
+      case LT:
+        return "(," + version + ")";
+      case GE:
+        return "[" + version + ",)";
       default:
-        toString();
+        return "(" + version + ",)";
     }
-    return String.format(mavenString, version);
   }
 
   /*
@@ -227,10 +297,10 @@ public class VersionRange
     else if (yourRange instanceof VersionRange) {
       IVersion useMyVersion = null;
       switch (operator) {
-        case ">":
+        case GT:
           useMyVersion = version.getNextVersion();
           break;
-        case "<":
+        case LT:
           useMyVersion = version.getPrevVersion();
           break;
         default:
@@ -243,10 +313,10 @@ public class VersionRange
 
       IVersion useYourVersion = null;
       switch (((VersionRange) yourRange).operator) {
-        case ">":
+        case GT:
           useYourVersion = ((VersionRange) yourRange).version.getNextVersion();
           break;
-        case "<":
+        case LT:
           useYourVersion = ((VersionRange) yourRange).version.getPrevVersion();
           break;
         default:
@@ -337,15 +407,25 @@ public class VersionRange
     return this;
   }
 
+  public Operator getOperator() {
+    return operator;
+  }
+
+  public SemanticVersion getVersion() {
+    return version;
+  }
+
   public String getType() {
     return type;
   }
 
   public void setType(String type) {
+    checkNotFrozen();
     this.type = type;
   }
 
   public void setHasErrors(boolean b) {
+    checkNotFrozen();
     hasErrors = b;
   }
 
@@ -357,13 +437,7 @@ public class VersionRange
    * An unbounded range goes to infinity
    */
   public boolean isUnbounded() {
-    switch (operator) {
-      case ">":
-      case ">=":
-        return true;
-      default:
-        return false;
-    }
+    return operator.isUnbounded();
   }
 
   /*
@@ -372,18 +446,34 @@ public class VersionRange
    */
   @Override
   public IVersionRange invert() {
-    switch (operator) {
-      case ">":
-        return new VersionRange("<=", version);
-      case ">=":
-        return new VersionRange("<", version);
-      case "<":
-        return new VersionRange(">=", version);
-      case "<=":
-        return new VersionRange(">", version);
-      default:
-        throw new UnsupportedOperationException();
+    return new VersionRange(operator.invert(), version);
+  }
+
+  /**
+   * Ranges are equal if they have the same operator and equal versions.
+   *
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof VersionRange)) {
+      return false;
     }
+    VersionRange other = (VersionRange) o;
+    return operator == other.operator && version.equals(other.version);
   }
 
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    return 31 * operator.ordinal() + version.hashCode();
+  }
 }
@@ -0,0 +1,227 @@
+package net.ossindex.version.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import net.ossindex.version.IVersion;
+import net.ossindex.version.IVersionScheme;
+import net.ossindex.version.InvalidRangeException;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+
+/**
+ * The version schemes built into every VersionFactory.
+ *
+ * <ul>
+ * <li>npm: strict semver, as npm's semver.valid() accepts it</li>
+ * <li>maven: Maven's own ordering, as AetherVersion</li>
+ * <li>pypi: PEP 440, as Pep440Version</li>
+ * <li>gem: Gem::Version, as GemVersion</li>
+ * </ul>
+ *
+ * @author Ken Duck
+ */
+public final class VersionSchemes
+{
+  public static final IVersionScheme NPM = new NpmScheme();
+
+  public static final IVersionScheme MAVEN = new MavenScheme();
+
+  public static final IVersionScheme PYPI = new PypiScheme();
+
+  public static final IVersionScheme RUBYGEMS = new RubyGemsScheme();
+
+  private static final List<IVersionScheme> DEFAULTS = Collections.unmodifiableList(Arrays.asList(NPM, MAVEN, PYPI, RUBYGEMS));
+
+  private VersionSchemes()
+  {
+  }
+
+  public static List<IVersionScheme> getDefaults()
+  {
+    return DEFAULTS;
+  }
+
+  private static Collection<String> hints(String... hints)
+  {
+    return Collections.unmodifiableList(Arrays.asList(hints));
+  }
+
+  /**
+   * Semantic versions, parsed directly into a SemanticVersion. As with npm, a
+   * leading "v" or "=" and surrounding whitespace are ignored, but nothing else
+   * is forgiven: all three numbers are required and may not have leading
+   * zeros.
+   */
+  private static class NpmScheme
+      implements IVersionScheme
+  {
+    private static final Collection<String> HINTS = hints("npm", "semver");
+
+    // Longest number which always fits in an int
+    private static final int MAX_DIGITS = 9;
+
+    @Override
+    public Collection<String> getHints()
+    {
+      return HINTS;
+    }
+
+    @Override
+    public IVersion parseVersion(String version) throws InvalidRangeException
+    {
+      String s = version.trim();
+      int pos = 0;
+      int length = s.length();
+      while (pos < length && (s.charAt(pos) == '=' || s.charAt(pos) == 'v')) {
+        pos++;
+      }
+
+      int[] numbers = new int[3];
+      for (int i = 0; i < 3; i++) {
+        if (i > 0) {
+          if (pos >= length || s.charAt(pos) != '.') {
+            throw invalid(version);
+          }
+          pos++;
+        }
+        int start = pos;
+        while (pos < length && isDigit(s.charAt(pos))) {
+          pos++;
+        }
+        int digits = pos - start;
+        if (digits == 0 || digits > MAX_DIGITS || (digits > 1 && s.charAt(start) == '0')) {
+          throw invalid(version);
+        }
+        numbers[i] = Integer.parseInt(s.substring(start, pos));
+      }
+
+      String preRelease = null;
+      if (pos < length && s.charAt(pos) == '-') {
+        int start = pos + 1;
+        pos = scanIdentifiers(s, start, true, version);
+        preRelease = s.substring(start, pos);
+      }
+      String buildMetadata = null;
+      if (pos < length && s.charAt(pos) == '+') {
+        int start = pos + 1;
+        pos = scanIdentifiers(s, start, false, version);
+        buildMetadata = s.substring(start, pos);
+      }
+      if (pos != length) {
+        throw invalid(version);
+      }
+      return new SemanticVersion(numbers[0], numbers[1], numbers[2], preRelease, buildMetadata, 3);
+    }
+
+    /**
+     * Scan dot separated identifiers of letters, digits and hyphens.
+     *
+     * @return The position just after the last identifier
+     */
+    private static int scanIdentifiers(String s, int pos, boolean preRelease, String version) throws InvalidRangeException
+    {
+      int length = s.length();
+      while (true) {
+        int start = pos;
+        boolean numeric = true;
+        while (pos < length) {
+          char c = s.charAt(pos);
+          if (isDigit(c)) {
+            pos++;
+          }
+          else if (c == '-' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+            numeric = false;
+            pos++;
+          }
+          else {
+            break;
+          }
+        }
+        if (pos == start) {
+          throw invalid(version);
+        }
+        // Numeric pre-release identifiers may not have leading zeros
+        if (preRelease && numeric && pos - start > 1 && s.charAt(start) == '0') {
+          throw invalid(version);
+        }
+        if (pos < length && s.charAt(pos) == '.') {
+          pos++;
+        }
+        else {
+          return pos;
+        }
+      }
+    }
+
+    private static boolean isDigit(char c)
+    {
+      return c >= '0' && c <= '9';
+    }
+
+    private static InvalidRangeException invalid(String version)
+    {
+      return new InvalidRangeException("Not a semantic version: " + version);
+    }
+  }
+
+  private static class MavenScheme
+      implements IVersionScheme
+  {
+    private static final Collection<String> HINTS = hints("maven");
+
+    @Override
+    public Collection<String> getHints()
+    {
+      return HINTS;
+    }
+
+    @Override
+    public IVersion parseVersion(String version) throws InvalidRangeException
+    {
+      try {
+        return new AetherVersion(version.trim());
+      }
+      catch (InvalidVersionSpecificationException e) {
+        throw new InvalidRangeException(e);
+      }
+    }
+  }
+
+  private static class PypiScheme
+      implements IVersionScheme
+  {
+    private static final Collection<String> HINTS = hints("pypi", "python");
+
+    @Override
+    public Collection<String> getHints()
+    {
+      return HINTS;
+    }
+
+    @Override
+    public IVersion parseVersion(String version) throws InvalidRangeException
+    {
+      return new Pep440Version(version);
+    }
+  }
+
+  private static class RubyGemsScheme
+      implements IVersionScheme
+  {
+    private static final Collection<String> HINTS = hints("gem", "rubygems", "ruby");
+
+    @Override
+    public Collection<String> getHints()
+    {
+      return HINTS;
+    }
+
+    @Override
+    public IVersion parseVersion(String version) throws InvalidRangeException
+    {
+      return new GemVersion(version);
+    }
+  }
+}
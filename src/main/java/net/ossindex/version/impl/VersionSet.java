@@ -27,6 +27,7 @@
 package net.ossindex.version.impl;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -51,7 +52,7 @@ public class VersionSet
   /**
    * Used for both atomic and simple versions
    */
-  private SortedSet<IVersion> set = new TreeSet<IVersion>();
+  private final SortedSet<IVersion> set = new TreeSet<IVersion>();
 
   public VersionSet()
   {
@@ -155,6 +156,7 @@ public class VersionSet
    */
   public void add(IVersion version)
   {
+    checkNotFrozen();
     set.add(version);
   }
 
@@ -181,7 +183,7 @@ public class VersionSet
   @Override
   public Iterator<IVersion> iterator()
   {
-    return set.iterator();
+    return Collections.unmodifiableSortedSet(set).iterator();
   }
 
   /** Get the max range, the min range, and then return a range based on those
@@ -225,10 +227,12 @@ public class VersionSet
   }
 
   public void setType(String type) {
+    checkNotFrozen();
     this.type = type;
   }
 
   public void setHasErrors(boolean b) {
+    checkNotFrozen();
     hasErrors = b;
   }
 
@@ -236,7 +240,53 @@ public class VersionSet
     return hasErrors;
   }
 
+  /**
+   * @return The versions, in order. The collection cannot be modified, use add
+   * instead.
+   */
   public Collection<IVersion> getVersions() {
-    return set;
+    return Collections.unmodifiableSortedSet(set);
+  }
+
+  /**
+   * Sets are equal if they contain equal versions.
+   *
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof VersionSet)) {
+      return false;
+    }
+    VersionSet other = (VersionSet) o;
+    if (set.size() != other.set.size()) {
+      return false;
+    }
+    // The sets are ordered by compareTo, which is not always the same as equals
+    Iterator<IVersion> it = other.set.iterator();
+    for (IVersion version : set) {
+      if (!version.equals(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode()
+  {
+    int hash = 41;
+    for (IVersion version : set) {
+      hash = 31 * hash + version.hashCode();
+    }
+    return hash;
   }
 }
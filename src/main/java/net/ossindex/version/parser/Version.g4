@@ -36,7 +36,7 @@ range
 
 maven_ranges
     : maven_range
-    | maven_range ',' maven_ranges
+    | maven_range comma=',' maven_ranges
     | '[' '-'? ']'
     | '(' '-'? ')'
     | '[' '-'? ')'
@@ -47,20 +47,23 @@ maven_ranges
  * Handle a variety of maven-style ranges
  */
 maven_range
-    : ('[' | '(') (
-      | version ',' version
-      | version ','
-      | version
-      | ',' version
-      ) (']' | ')')
+    : open=('[' | '(') (
+      | lower=version comma=',' upper=version
+      | lower=version comma=','
+      | lower=version
+      | comma=',' upper=version
+      ) close=(']' | ')')
     ;
 
 /** A few special cases of broken ranges. We are trying to handle unfortunate
  * situations as best we can to get SOMETHING from the chaos.
+ *
+ * Since anything at all may follow the version, this rule is kept out of the
+ * engine's fast SLL pass (see VersionParsingEngine).
  */
 broken_range
-	: simple_range .*
-	| version .*
+	: simple_range .+
+	| version .+
 	;
 
 range_type
@@ -70,7 +73,7 @@ range_type
 	;
 
 semantic_range
-        : '^' version
+        : op='^' version
         ;
 
 union_range
@@ -85,13 +88,13 @@ union_range
 /** Ranges connected by logical operators
  */
 logical_range
-	: '(' logical_range ')'
-	| '(' simple_range ')'
-	| '(' union_range ')'
+	: open='(' logical_range ')'
+	| open='(' simple_range ')'
+	| open='(' union_range ')'
 
-	| simple_range {whitespace();} simple_range
-	| logical_range {whitespace();} simple_range
-	| logical_range {whitespace();} logical_range
+	| simple_range simple_range
+	| logical_range simple_range
+	| logical_range logical_range
 	
 	| simple_range ',' simple_range
 	| logical_range ',' simple_range
@@ -110,11 +113,11 @@ version_set
 	;
 
 simple_range
-	: '<' version
-	| '<=' version
-	| '>' version
-	| '>=' version
-	| '~>' version
+	: op='<' version
+	| op='<=' version
+	| op='>' version
+	| op='>=' version
+	| op='~>' version
 	;
 
 version
@@ -135,29 +138,29 @@ stream
  * version possible.
  */
 prefixed_version
-	: any*? numeric_version
-	| any*? postfix_version
+	: any+? numeric_version
+	| any+? postfix_version
 	;
 
 /* Matches versions of various sorts that at least appear like semantic versioning,
  * though they may not strictly match. Close enough to handle in this one place.
  */
 postfix_version
-	: NUMBER dot NUMBER dot NUMBER dot NUMBER sep identifier
-	| NUMBER dot NUMBER dot NUMBER dot NUMBER {nw()}? identifier
-	| NUMBER dot NUMBER dot NUMBER sep identifier
-	| NUMBER dot NUMBER dot NUMBER {nw()}? identifier
-	| NUMBER dot NUMBER sep identifier
-	| NUMBER dot NUMBER {nw()}? identifier
+	: major=NUMBER dot minor=NUMBER dot patch=NUMBER dot build=NUMBER separator=sep identifier
+	| major=NUMBER dot minor=NUMBER dot patch=NUMBER dot build=NUMBER {nw()}? identifier
+	| major=NUMBER dot minor=NUMBER dot patch=NUMBER separator=sep identifier
+	| major=NUMBER dot minor=NUMBER dot patch=NUMBER {nw()}? identifier
+	| major=NUMBER dot minor=NUMBER separator=sep identifier
+	| major=NUMBER dot minor=NUMBER {nw()}? identifier
 	;
 
 /** Simple numeric matching. Strip trailing dots if they exist.
  */
 numeric_version
-	: NUMBER dot NUMBER dot NUMBER dot NUMBER dot?
-	| NUMBER dot NUMBER dot NUMBER dot?
-	| NUMBER dot NUMBER dot?
-	| NUMBER dot?
+	: major=NUMBER dot minor=NUMBER dot patch=NUMBER dot build=NUMBER dot?
+	| major=NUMBER dot minor=NUMBER dot patch=NUMBER dot?
+	| major=NUMBER dot minor=NUMBER dot?
+	| major=NUMBER dot?
 	;
 
 sep
@@ -0,0 +1,128 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.ossindex.version.impl.AetherVersion;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ensure Maven versions are ordered exactly as Aether orders them.
+ *
+ * @author Ken Duck
+ */
+public class AetherVersionTests
+{
+  private static final VersionScheme scheme = new GenericVersionScheme();
+
+  private static final String[] VERSIONS = {
+      "", "0", "1", "1.0", "1.0.0", "1-0", "1.0-0", "1-1", "1.1", "1.2", "1.10", "1.0.1", "1.0.0.1",
+      "1-alpha", "1-alpha1", "1-alpha-1", "1-alpha2", "1-a1", "1a1", "1.0-a1", "1-beta", "1-b2", "1-beta-2",
+      "1-milestone", "1-m1", "1-M2", "1-cr1", "1-rc", "1-RC1", "1-rc-2", "1-snapshot", "1-SNAPSHOT",
+      "1.0-SNAPSHOT", "1-ga", "1-GA", "1-final", "1.0.Final", "1-sp", "1-sp1", "1-SP.2", "1-foo", "1-foo2",
+      "1-bar", "1-abc", "1-xyz", "1.foo", "1-1.foo-bar1baz-.1", "1-min", "1-max", "1.min", "1.max", "max",
+      "2.0-min", "2.0.max", "1.0.0.0.0.0.0", "1.0.0.0.0.0.0x", "1.0.0x", "1x", "1.0.1-SNAPSHOT",
+      "1.2.3-20150101.123456-1", "01.02.03", "1.02", "1.0.0-0", "1..1", "1--1", "1__2", "1.-1",
+      "12345678901234567890", "1.12345678901234567890", "1.2345678901", "3.0-JBoss-4.0.2_03",
+      "2.0.0.RELEASE", "4.3.6.Final", "5.0.0.M1", "5.0.0.RC2", "2.9.9.1", "1.0-alpha-20050205.060708-1",
+      "r01", "v1.2", "1.2-beta2-SNAPSHOT"
+  };
+
+  @Test
+  public void testSameOrderAsAether() throws InvalidVersionSpecificationException
+  {
+    checkPairs(list(VERSIONS));
+  }
+
+  /**
+   * Random strings made from the characters that matter to the tokenizer.
+   */
+  @Test
+  public void testRandomVersions() throws InvalidVersionSpecificationException
+  {
+    String alphabet = "0001123456789...--_abmABMrcspgaflnxyz";
+    Random random = new Random(42);
+    List<String> versions = new ArrayList<String>();
+    for (int i = 0; i < 600; i++) {
+      int length = 1 + random.nextInt(10);
+      StringBuilder sb = new StringBuilder();
+      for (int j = 0; j < length; j++) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      versions.add(sb.toString());
+    }
+    checkPairs(versions);
+  }
+
+  @Test
+  public void testComponents() throws InvalidVersionSpecificationException
+  {
+    AetherVersion version = new AetherVersion("1.2.3");
+    assertEquals(1, version.getMajor());
+    assertEquals(2, version.getMinor());
+    assertEquals(3, version.getPatch());
+    assertTrue(version.isStable());
+
+    version = new AetherVersion("4.3.6.Final");
+    assertEquals(4, version.getMajor());
+    assertEquals(3, version.getMinor());
+    assertEquals(6, version.getPatch());
+    assertTrue(version.isStable());
+
+    version = new AetherVersion("2.0-SP1");
+    assertEquals(2, version.getMajor());
+    assertEquals(0, version.getMinor());
+    assertTrue(version.isStable());
+
+    version = new AetherVersion("1.0-beta-2");
+    assertEquals(1, version.getMajor());
+    assertEquals(0, version.getMinor());
+    assertEquals(0, version.getPatch());
+    assertFalse(version.isStable());
+
+    assertFalse(new AetherVersion("5.0.0.RC2").isStable());
+    assertFalse(new AetherVersion("1.0-SNAPSHOT").isStable());
+    assertFalse(new AetherVersion("1.0-foo").isStable());
+    assertEquals("01.02.03", new AetherVersion("01.02.03").toString());
+    assertEquals(scheme.parseVersion("1.0-rc1"), new AetherVersion("1.0-rc1").getVersionImpl());
+  }
+
+  private static List<String> list(String... versions)
+  {
+    List<String> list = new ArrayList<String>();
+    for (String version : versions) {
+      list.add(version);
+    }
+    return list;
+  }
+
+  private static void checkPairs(List<String> strings) throws InvalidVersionSpecificationException
+  {
+    List<Version> expected = new ArrayList<Version>();
+    List<AetherVersion> actual = new ArrayList<AetherVersion>();
+    for (String s : strings) {
+      expected.add(scheme.parseVersion(s));
+      actual.add(new AetherVersion(s));
+    }
+    for (int i = 0; i < strings.size(); i++) {
+      for (int j = 0; j < strings.size(); j++) {
+        int e = Integer.signum(expected.get(i).compareTo(expected.get(j)));
+        int a = Integer.signum(actual.get(i).compareTo(actual.get(j)));
+        if (e != a) {
+          assertEquals(strings.get(i) + " <=> " + strings.get(j), e, a);
+        }
+        // Like Aether, equal only means compareTo is 0
+        assertEquals(strings.get(i) + " == " + strings.get(j), e == 0, actual.get(i).equals(actual.get(j)));
+      }
+    }
+  }
+}
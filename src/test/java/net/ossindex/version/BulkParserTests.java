@@ -0,0 +1,108 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ensure bulk parsing gives the same results, in the same order, as parsing each
+ * string on its own.
+ *
+ * @author Ken Duck
+ */
+public class BulkParserTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Test
+  public void testCorpusMatchesSequential()
+  {
+    // Repeat the corpus so that the batch is split across several tasks
+    List<String> inputs = new ArrayList<String>();
+    for (int i = 0; i < 2; i++) {
+      inputs.addAll(Arrays.asList(RangeCorpus.INPUTS));
+    }
+    Collections.shuffle(inputs);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      BulkParser parser = new BulkParser(factory, pool);
+      List<ParseResult> results = parser.parseAll(inputs);
+      assertEquals(inputs.size(), results.size());
+
+      int failed = 0;
+      for (int i = 0; i < inputs.size(); i++) {
+        String input = inputs.get(i);
+        ParseResult result = results.get(i);
+        assertEquals(i, result.getIndex());
+        assertEquals(input, result.getInput());
+        try {
+          IVersionRange expected = factory.getRange(input);
+          assertTrue(input, result.isSuccess());
+          assertEquals(input, expected.toString(), result.getRange().toString());
+          assertEquals(input, expected.getType(), result.getRange().getType());
+        }
+        catch (InvalidRangeException | RuntimeException e) {
+          failed++;
+          assertFalse(input, result.isSuccess());
+          assertNull(input, result.getRange());
+          assertNotNull(input, result.getError());
+        }
+      }
+      assertEquals(inputs.size(), parser.getParsedCount());
+      assertEquals(failed, parser.getFailedCount());
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailuresDoNotStopTheBatch()
+  {
+    BulkParser parser = new BulkParser(VersionFactory.getStrictVersionFactory());
+    List<ParseResult> results = parser.parseAll(Arrays.asList("1.2.3", "not a version", ">=1.0.0 <2.0.0"));
+
+    assertTrue(results.get(0).isSuccess());
+    assertEquals("1.2.3", results.get(0).getRange().toString());
+    assertFalse(results.get(1).isSuccess());
+    assertTrue(results.get(2).isSuccess());
+    assertEquals(">=1.0.0 <2.0.0", results.get(2).getRange().toString());
+
+    assertEquals(3, parser.getParsedCount());
+    assertEquals(1, parser.getFailedCount());
+    assertTrue(parser.getElapsedNanos() > 0);
+    assertTrue(parser.getThroughput() > 0);
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    BulkParser parser = new BulkParser(factory);
+    assertEquals(0, parser.parseAll(Collections.<String> emptyList()).size());
+    assertEquals(0, parser.getParsedCount());
+  }
+
+  @Test
+  public void testLinkedList()
+  {
+    List<String> inputs = new LinkedList<String>(Arrays.asList(RangeCorpus.INPUTS));
+    List<ParseResult> results = new BulkParser(factory).parseAll(inputs);
+    assertEquals(inputs.size(), results.size());
+    int i = 0;
+    for (String input : inputs) {
+      assertEquals(input, results.get(i++).getInput());
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package net.ossindex.version;
 
+import net.ossindex.version.impl.SemanticVersion;
+import net.ossindex.version.impl.VersionRange;
 import net.ossindex.version.impl.VersionSet;
 import org.junit.Test;
 
@@ -517,4 +519,40 @@ public class ContainsTests
     IVersionRange range2 = VersionFactory.getVersionFactory().getRange(">=1.10.1 <1.10.10");
     assertTrue(range1.contains(range2));
   }
+
+  @Test
+  public void testOperatorBoundaries() throws InvalidRangeException
+  {
+    VersionFactory factory = VersionFactory.getVersionFactory();
+    String[] ranges = {"<1.2.5", "<=1.2.5", ">1.2.5", ">=1.2.5"};
+    // Containment of 1.2.4, 1.2.5-beta, 1.2.5, 1.2.5.1 and 1.2.6 for each range
+    boolean[][] expected = {
+        {true, true, false, false, false},
+        {true, true, true, false, false},
+        {false, false, false, true, true},
+        {false, false, true, true, true}
+    };
+    String[] versions = {"1.2.4", "1.2.5-beta", "1.2.5", "1.2.5.1", "1.2.6"};
+    for (int i = 0; i < ranges.length; i++) {
+      IVersionRange range = factory.getRange(ranges[i]);
+      IVersionRange inverse = range.invert();
+      for (int j = 0; j < versions.length; j++) {
+        IVersion version = factory.getVersion(versions[j]);
+        assertEquals(ranges[i] + " contains " + versions[j], expected[i][j], range.contains(version));
+        assertEquals(inverse + " contains " + versions[j], !expected[i][j], inverse.contains(version));
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidOperator()
+  {
+    try {
+      new VersionRange("==", new SemanticVersion(1, 2, 5));
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
 }
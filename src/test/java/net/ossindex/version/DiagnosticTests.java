@@ -0,0 +1,159 @@
+package net.ossindex.version;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.ossindex.version.ParseDiagnostic.Fallback;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the diagnostics reported for strings which do not cleanly parse.
+ *
+ * @author Ken Duck
+ */
+public class DiagnosticTests
+{
+  @Test
+  public void testBrokenRange() throws InvalidRangeException
+  {
+    Recorder recorder = new Recorder();
+    VersionFactory factory = VersionFactory.builder().diagnosticSink(recorder).build();
+    IVersionRange range = factory.getRange("foo bar");
+    assertTrue(range.hasErrors());
+
+    assertEquals(1, recorder.diagnostics.size());
+    ParseDiagnostic diagnostic = recorder.diagnostics.get(0);
+    assertEquals("foo bar", diagnostic.getInput());
+    assertEquals(Fallback.BROKEN_RANGE, diagnostic.getFallback());
+    assertEquals(4, diagnostic.getPosition());
+    assertTrue(diagnostic.getMessage(), diagnostic.getMessage().length() > 0);
+
+    assertEquals(1, factory.getDiagnosticCounts().getCount(Fallback.BROKEN_RANGE));
+    assertEquals(1, factory.getDiagnosticCounts().getSyntaxErrorCount());
+  }
+
+  /**
+   * Whitespace may include a newline, so the position is counted from the start
+   * of the input rather than the start of the line.
+   */
+  @Test
+  public void testPositionAfterNewline() throws InvalidRangeException
+  {
+    Recorder recorder = new Recorder();
+    VersionFactory factory = VersionFactory.builder().diagnosticSink(recorder).build();
+    factory.getRange("foo\n bar");
+    assertEquals(1, recorder.diagnostics.size());
+    assertEquals(5, recorder.diagnostics.get(0).getPosition());
+  }
+
+  @Test
+  public void testNamedVersion() throws InvalidRangeException
+  {
+    Recorder recorder = new Recorder();
+    VersionFactory factory = VersionFactory.builder().diagnosticSink(recorder).build();
+    assertEquals("2015.04.01-0", factory.getRange("2015.04.01-0").toString());
+
+    ParseDiagnostic diagnostic = recorder.diagnostics.get(0);
+    assertEquals(Fallback.NAMED_VERSION, diagnostic.getFallback());
+    assertEquals(1, factory.getDiagnosticCounts().getCount(Fallback.NAMED_VERSION));
+    assertEquals(1, factory.getDiagnosticCounts().getTotal());
+  }
+
+  @Test
+  public void testRejected()
+  {
+    Recorder recorder = new Recorder();
+    VersionFactory factory = VersionFactory.builder().strict(true).diagnosticSink(recorder).build();
+    for (String input : Arrays.asList("[1.0,2.0", "foo bar", "", ">=2.10 <=2.2.4")) {
+      try {
+        factory.getRange(input);
+        fail("Expected " + input + " to be rejected");
+      }
+      catch (InvalidRangeException e) {
+        // Expected
+      }
+    }
+    assertEquals(4, recorder.diagnostics.size());
+    for (ParseDiagnostic diagnostic : recorder.diagnostics) {
+      assertEquals(diagnostic.toString(), Fallback.REJECTED, diagnostic.getFallback());
+    }
+    assertEquals(8, recorder.diagnostics.get(0).getPosition());
+    assertEquals(-1, recorder.diagnostics.get(2).getPosition());
+    assertEquals(4, factory.getDiagnosticCounts().getCount(Fallback.REJECTED));
+
+    factory.getDiagnosticCounts().reset();
+    assertEquals(0, factory.getDiagnosticCounts().getTotal());
+  }
+
+  @Test
+  public void testCleanParseReportsNothing() throws InvalidRangeException
+  {
+    Recorder recorder = new Recorder();
+    VersionFactory factory = VersionFactory.builder().fastPath(false).diagnosticSink(recorder).build();
+    factory.getRange(">=1.0.0 <2.0.0");
+    factory.getRange("[1.0,2.0)");
+    assertTrue(recorder.diagnostics.isEmpty());
+    assertEquals(0, factory.getDiagnosticCounts().getTotal());
+  }
+
+  /**
+   * By default nothing is written anywhere.
+   */
+  @Test
+  public void testNoOutputByDefault() throws InvalidRangeException
+  {
+    PrintStream err = System.err;
+    PrintStream out = System.out;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream capture = new PrintStream(bytes);
+    System.setErr(capture);
+    System.setOut(capture);
+    try {
+      VersionFactory factory = VersionFactory.builder().build();
+      factory.getRange("foo bar");
+      factory.getRange("2015.04.01-0");
+      factory.getRange("~> 1.0 <");
+    }
+    catch (InvalidRangeException e) {
+      // Not what we are testing
+    }
+    finally {
+      System.setErr(err);
+      System.setOut(out);
+    }
+    capture.flush();
+    assertEquals("", bytes.toString());
+  }
+
+  @Test
+  public void testParseResultDiagnostic()
+  {
+    BulkParser parser = new BulkParser(VersionFactory.builder().build());
+    List<ParseResult> results = parser.parseAll(Arrays.asList(">=1.0.0", "foo bar", "[1.0,2.0"));
+    assertNull(results.get(0).getDiagnostic());
+    assertEquals(Fallback.BROKEN_RANGE, results.get(1).getDiagnostic().getFallback());
+    assertEquals(Fallback.REJECTED, results.get(2).getDiagnostic().getFallback());
+    assertEquals(8, results.get(2).getDiagnostic().getPosition());
+  }
+
+  private static class Recorder
+      implements IDiagnosticSink
+  {
+    final List<ParseDiagnostic> diagnostics = Collections.synchronizedList(new ArrayList<ParseDiagnostic>());
+
+    @Override
+    public void report(ParseDiagnostic diagnostic)
+    {
+      diagnostics.add(diagnostic);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package net.ossindex.version;
+
+import net.ossindex.version.impl.FastRangeParser;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ensure the fast path parser produces exactly the same results as the grammar.
+ *
+ * @author Ken Duck
+ */
+public class FastRangeParserTests
+{
+  /**
+   * Anything the fast path accepts must match the full parser.
+   */
+  @Test
+  public void testCorpusMatchesGrammar()
+  {
+    int accepted = 0;
+    for (String input : RangeCorpus.INPUTS) {
+      String fast;
+      try {
+        IVersionRange range = FastRangeParser.parse(input);
+        if (range == null) {
+          continue;
+        }
+        fast = RangeCorpus.describe(range);
+      }
+      catch (Exception e) {
+        fast = e.getClass().getSimpleName() + ": " + e.getMessage();
+      }
+      accepted++;
+      assertEquals(input, RangeCorpus.describeGrammarResult(input, false), fast);
+    }
+    // Make sure the test is actually testing something
+    assertTrue(accepted > 100);
+  }
+
+  @Test
+  public void testSimpleShapesUseFastPath()
+  {
+    String[] inputs = {
+        "1.2.3",
+        "4.0",
+        "7",
+        "5.5.5.5.",
+        "1.2.3-beta",
+        "1.2.3alpha",
+        "2.5.6.SEC01",
+        ">=2.1.0",
+        "<3",
+        "<= 1.9.3",
+        "~> 1.9",
+        "^1.2.3",
+        ">=1.2.0 <1.2.9",
+        ">=0.10.0, <0.10.2",
+        ">1.2.5 & <1.3"
+    };
+    for (String input : inputs) {
+      assertNotNull(input, FastRangeParser.parse(input));
+    }
+  }
+
+  @Test
+  public void testComplexShapesUseGrammar()
+  {
+    String[] inputs = {
+        "[1.0,2.0)",
+        "1.2.5,1.2.6",
+        "2.5.6 || 2.5.7",
+        "bob",
+        "demo-1.2.3",
+        "1.2.3-04",
+        "4.3.2.RELEASE",
+        "1:4.6.0-4.6.1-pre1-2",
+        ">1.2.19 <=1.2.19]"
+    };
+    for (String input : inputs) {
+      assertNull(input, FastRangeParser.parse(input));
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.ossindex.version.impl.OrRange;
+import net.ossindex.version.impl.SemanticVersion;
+import net.ossindex.version.impl.VersionSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test that frozen ranges cannot be changed, and can be read from many threads.
+ *
+ * @author Ken Duck
+ */
+public class FreezeTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Test
+  public void testVersionSetIsReadOnly()
+  {
+    VersionSet set = new VersionSet(new SemanticVersion(1, 0, 0));
+    try {
+      set.getVersions().add(new SemanticVersion(2, 0, 0));
+      fail("Expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException e) {
+      // Expected
+    }
+    try {
+      set.iterator().next();
+      set.iterator().remove();
+      fail("Expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException | IllegalStateException e) {
+      // Expected
+    }
+    assertEquals(1, set.getVersions().size());
+
+    // Still fine before the set is frozen
+    set.add(new SemanticVersion(2, 0, 0));
+    assertEquals(2, set.getVersions().size());
+  }
+
+  @Test
+  public void testFrozenRangesRejectChanges() throws InvalidRangeException
+  {
+    VersionSet set = new VersionSet(new SemanticVersion(1, 0, 0));
+    OrRange range = new OrRange(set, factory.getRange(">=2.0.0 <3.0.0"));
+    range.freeze();
+    assertTrue(set.isFrozen());
+    for (IVersionRange part : range.getRanges()) {
+      assertTrue(((IFreezableRange) part).isFrozen());
+    }
+    try {
+      range.add(factory.getRange(">5.0.0"));
+      fail("Expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException e) {
+      // Expected
+    }
+    try {
+      set.add(new SemanticVersion(4, 0, 0));
+      fail("Expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException e) {
+      // Expected
+    }
+    try {
+      range.setHasErrors(true);
+      fail("Expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException e) {
+      // Expected
+    }
+    assertEquals("1.0.0 | >=2.0.0 <3.0.0", range.toString());
+  }
+
+  /**
+   * Many threads reading the same frozen ranges get the same answers as a single
+   * thread.
+   */
+  @Test
+  public void testConcurrentReads() throws Exception
+  {
+    final List<IVersionRange> ranges = new ArrayList<IVersionRange>();
+    for (IVersionRange range : RangeCorpus.parseAll()) {
+      ranges.add(factory.intern(range));
+    }
+    final List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+    final String expected = describe(ranges, probes);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(new Callable<String>()
+        {
+          @Override
+          public String call()
+          {
+            return describe(ranges, probes);
+          }
+        }));
+      }
+      for (Future<String> result : results) {
+        assertEquals(expected, result.get());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  private static String describe(List<IVersionRange> ranges, List<IVersion> probes)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (IVersionRange range : ranges) {
+      sb.append(range).append(' ').append(range.getType()).append(' ').append(range.hasErrors()).append(' ');
+      for (IVersion version : probes) {
+        sb.append(range.contains(version) ? '1' : '0');
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,153 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.ossindex.version.impl.AndRange;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test range equality and interning.
+ *
+ * @author Ken Duck
+ */
+public class InternTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  /**
+   * Parsing the same string twice gives equal ranges with equal hashes, and
+   * interning them gives the same instance.
+   */
+  @Test
+  public void testCorpusEquality()
+  {
+    List<IVersionRange> ranges1 = RangeCorpus.parseAll();
+    List<IVersionRange> ranges2 = RangeCorpus.parseAll();
+    assertEquals(ranges1.size(), ranges2.size());
+    for (int i = 0; i < ranges1.size(); i++) {
+      IVersionRange r1 = ranges1.get(i);
+      IVersionRange r2 = ranges2.get(i);
+      assertNotSame(r1, r2);
+      assertEquals(r1.toString(), r1, r2);
+      assertEquals(r1.toString(), r1.hashCode(), r2.hashCode());
+      assertSame(r1.toString(), factory.intern(r1), factory.intern(r2));
+      assertTrue(((IFreezableRange) r2).isFrozen());
+    }
+  }
+
+  @Test
+  public void testDifferentSpellingsAreShared() throws InvalidRangeException
+  {
+    IVersionRange r1 = factory.intern(factory.getRange("<1.0.0"));
+    IVersionRange r2 = factory.intern(factory.getRange("< 1.0.0"));
+    assertSame(r1, r2);
+  }
+
+  @Test
+  public void testPartsAreShared() throws InvalidRangeException
+  {
+    AndRange r1 = (AndRange) factory.intern(factory.getRange(">=1.0.0 <2.0.0"));
+    AndRange r2 = (AndRange) factory.intern(factory.getRange(">=1.0.0 <3.0.0"));
+    assertSame(r1.first(), r2.first());
+    assertSame(r1.getMinimum(), r2.getMinimum());
+    assertSame(factory.intern(factory.getVersion("1.0.0")), r1.getMinimum());
+  }
+
+  /**
+   * Equal versions which print differently are not interchangeable.
+   */
+  @Test
+  public void testEqualVersionsWithDifferentStrings() throws InvalidRangeException
+  {
+    IVersion v1 = factory.getVersion("1.2.3");
+    IVersion v2 = factory.getVersion("1.2.3.0");
+    assertEquals(v1, v2);
+    assertEquals("1.2.3.0", factory.intern(v2).toString());
+    assertEquals("1.2.3", factory.intern(v1).toString());
+
+    IVersionRange r1 = factory.intern(factory.getRange(">=1.2.3"));
+    IVersionRange r2 = factory.intern(factory.getRange(">=1.2.3.0"));
+    assertEquals(r1, r2);
+    assertNotSame(r1, r2);
+    assertEquals(">=1.2.3.0", r2.toString());
+  }
+
+  @Test
+  public void testCachingFactoryInterns() throws InvalidRangeException
+  {
+    VersionFactory caching = VersionFactory.getCachingVersionFactory();
+    assertSame(caching.getRange(">=4.5.6 <4.6.0"), caching.getRange(">=4.5.6  <4.6.0"));
+  }
+
+  @Test
+  public void testUnusedValuesAreDropped() throws InterruptedException
+  {
+    Interner<String> interner = new Interner<String>();
+    for (int i = 0; i < 1000; i++) {
+      interner.intern(new String("value" + i));
+    }
+    String kept = interner.intern(new String("kept"));
+    assertSame(kept, interner.intern(new String("kept")));
+
+    for (int i = 0; i < 50 && interner.size() > 1; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(1, interner.size());
+    assertSame(kept, interner.intern(new String("kept")));
+  }
+
+  /**
+   * Threads interning equal values at the same time all get one instance.
+   */
+  @Test
+  public void testConcurrentInterning() throws Exception
+  {
+    final int threads = 8;
+    final Interner<String> interner = new Interner<String>();
+    final CyclicBarrier barrier = new CyclicBarrier(threads);
+    List<Callable<String[]>> tasks = new ArrayList<Callable<String[]>>();
+    for (int i = 0; i < threads; i++) {
+      tasks.add(new Callable<String[]>()
+      {
+        @Override
+        public String[] call() throws Exception
+        {
+          barrier.await();
+          String[] results = new String[1000];
+          for (int j = 0; j < results.length; j++) {
+            results[j] = interner.intern(new String("value" + j));
+          }
+          return results;
+        }
+      });
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<String[]>> futures = executor.invokeAll(tasks);
+      String[] first = futures.get(0).get();
+      for (Future<String[]> future : futures) {
+        String[] results = future.get();
+        for (int j = 0; j < results.length; j++) {
+          assertSame(first[j], results[j]);
+        }
+      }
+      assertEquals(1000, interner.size());
+      assertEquals(1000, interner.getMisses());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ossindex.version.impl.NormalizedRange;
+import net.ossindex.version.impl.OrRange;
+import net.ossindex.version.impl.SemanticVersion;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Ensure the normalized form of a range contains exactly the same versions as
+ * the range, and that the range algebra is consistent.
+ *
+ * @author Ken Duck
+ */
+public class NormalizedRangeTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Test
+  public void testCorpusMatchesContains()
+  {
+    List<IVersionRange> ranges = RangeCorpus.parseAll();
+    List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+    for (IVersionRange range : ranges) {
+      NormalizedRange normalized = NormalizedRange.of(range);
+      for (IVersion version : probes) {
+        if (normalized.contains(version) != range.contains(version)) {
+          fail(range + " normalized to " + normalized + " contains " + version);
+        }
+      }
+      assertEquals(normalized, NormalizedRange.of(normalized));
+    }
+  }
+
+  @Test
+  public void testInvert()
+  {
+    List<IVersionRange> ranges = RangeCorpus.parseAll();
+    List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+    for (IVersionRange range : ranges) {
+      NormalizedRange normalized = NormalizedRange.of(range);
+      if (!normalized.getNamedVersions().isEmpty()) {
+        continue;
+      }
+      NormalizedRange inverted = normalized.invert();
+      for (IVersion version : probes) {
+        if (version instanceof SemanticVersion && inverted.contains(version) == range.contains(version)) {
+          fail(range + " inverted to " + inverted + " contains " + version);
+        }
+      }
+      assertEquals(normalized, inverted.invert());
+    }
+  }
+
+  /**
+   * Check intersects and contains(range) against the intersection, and the
+   * intersection and union against the probe versions.
+   */
+  @Test
+  public void testAlgebra()
+  {
+    List<IVersionRange> ranges = RangeCorpus.parseAll();
+    List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+    for (int i = 0; i < ranges.size(); i += 3) {
+      NormalizedRange r1 = NormalizedRange.of(ranges.get(i));
+      for (int j = 0; j < ranges.size(); j += 3) {
+        NormalizedRange r2 = NormalizedRange.of(ranges.get(j));
+        NormalizedRange intersection = r1.intersection(r2);
+        NormalizedRange union = r1.union(r2);
+        assertEquals(r1 + " & " + r2, !intersection.isEmpty(), r1.intersects(r2));
+        assertEquals(r1 + " contains " + r2, intersection.equals(r2), r1.contains(r2));
+        assertEquals(intersection, r2.intersection(r1));
+        assertEquals(union, r2.union(r1));
+        for (IVersion version : probes) {
+          boolean in1 = r1.contains(version);
+          boolean in2 = r2.contains(version);
+          if (intersection.contains(version) != (in1 && in2) || union.contains(version) != (in1 || in2)) {
+            fail(r1 + " and " + r2 + " with " + version);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testOverlapsAreMerged() throws InvalidRangeException
+  {
+    NormalizedRange range = NormalizedRange.of(factory.getRange("<=1.0.0 | >=0.5.0 <2.0.0 | >=2.0.0 <3.0.0 | 2.5.0"));
+    assertEquals("<3.0.0", range.toString());
+    assertEquals("(,3.0.0)", range.toMavenString());
+    assertTrue(range.isSimple());
+
+    // Exclusive bounds on the same version leave a gap
+    range = NormalizedRange.of(factory.getRange("<1.0.0 | >1.0.0"));
+    assertEquals("<1.0.0 | >1.0.0", range.toString());
+    assertFalse(range.contains(factory.getVersion("1.0.0")));
+    assertEquals("1.0.0", range.invert().toString());
+  }
+
+  @Test
+  public void testInvertManyRanges() throws InvalidRangeException
+  {
+    List<IVersionRange> ranges = new ArrayList<IVersionRange>();
+    ranges.add(factory.getRange(">=1.0.0 <2.0.0"));
+    ranges.add(factory.getRange(">=3.0.0 <4.0.0"));
+    ranges.add(factory.getRange(">=5.0.0"));
+    IVersionRange inverted = new OrRange(ranges).invert();
+    assertEquals("<1.0.0 | >=2.0.0 <3.0.0 | >=4.0.0 <5.0.0", inverted.toString());
+    assertEquals("(,1.0.0),[2.0.0,3.0.0),[4.0.0,5.0.0)", inverted.toMavenString());
+
+    // Nested ranges normalize to the same thing
+    IVersionRange nested = factory.getRange("[1.0.0,2.0.0),[3.0.0,4.0.0),[5.0.0,)");
+    assertEquals(inverted, NormalizedRange.of(nested.invert()));
+  }
+
+  @Test
+  public void testEquivalentRangesAreEqual() throws InvalidRangeException
+  {
+    assertEquals(NormalizedRange.of(factory.getRange("[1.0.0,2.0.0)")), NormalizedRange.of(factory.getRange(">=1.0.0 <2.0.0")));
+    assertEquals(NormalizedRange.of(factory.getRange("1.0.0 | 1.0.0")), NormalizedRange.of(factory.getRange("[1.0.0]")));
+  }
+}
@@ -0,0 +1,113 @@
+package net.ossindex.version;
+
+import net.ossindex.version.IParseMetrics.Outcome;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the parse metrics recorded by VersionFactory.
+ *
+ * @author Ken Duck
+ */
+public class ParseStatisticsTests
+{
+  @Test
+  public void testGrammarOutcomes() throws InvalidRangeException
+  {
+    checkOutcome(Outcome.MAVEN_RANGES, "[1.0,2.0)");
+    checkOutcome(Outcome.VERSION_SET, "1.0.0,1.1.0");
+    checkOutcome(Outcome.UNION_RANGE, ">=1.0 || <0.5");
+    checkOutcome(Outcome.RANGE_TYPE, ">=1.0 <2.0");
+    checkOutcome(Outcome.BROKEN_RANGE, "1.2.3[zounds]");
+    checkOutcome(Outcome.NAMED_FALLBACK, "2015.04.01-0");
+  }
+
+  @Test
+  public void testRejected()
+  {
+    ParseStatistics stats = new ParseStatistics();
+    VersionFactory factory = VersionFactory.builder().strict(true).metrics(stats).build();
+    try {
+      factory.getRange("[1.0,2.0");
+      fail("Expected InvalidRangeException");
+    }
+    catch (InvalidRangeException e) {
+      // Expected
+    }
+    assertEquals(1, stats.getCount(Outcome.REJECTED));
+    assertEquals(8.0, stats.getAverageInputLength(Outcome.REJECTED), 0);
+  }
+
+  @Test
+  public void testCacheAndFastPath() throws InvalidRangeException
+  {
+    ParseStatistics stats = new ParseStatistics();
+    VersionFactory factory = VersionFactory.builder().cacheSize(10).metrics(stats).build();
+    factory.getRange("1.2.3");
+    factory.getRange("1.2.3");
+    factory.getRange("1.2.3");
+    factory.getRange(">=1.0.0");
+    assertEquals(2, stats.getCount(Outcome.FAST_PATH));
+    assertEquals(2, stats.getCount(Outcome.CACHE_HIT));
+    assertEquals(4, stats.getTotalCount());
+    assertEquals(0.5, stats.getCacheHitRatio(), 0);
+    assertEquals((5 + 5 + 5 + 7) / 4.0, stats.getAverageInputLength(), 0);
+  }
+
+  @Test
+  public void testHistogram()
+  {
+    ParseStatistics stats = new ParseStatistics();
+    stats.record(Outcome.VERSION_SET, 5, 0);
+    stats.record(Outcome.VERSION_SET, 5, 3);
+    stats.record(Outcome.VERSION_SET, 5, 1000);
+    stats.record(Outcome.VERSION_SET, 5, 1023);
+    long[] histogram = stats.getHistogram(Outcome.VERSION_SET);
+    assertEquals(ParseStatistics.BUCKETS, histogram.length);
+    assertEquals(1, histogram[0]);
+    assertEquals(1, histogram[1]);
+    assertEquals(2, histogram[9]);
+    assertEquals(1023, stats.getPercentileNanos(Outcome.VERSION_SET, 99));
+    assertEquals(3, stats.getPercentileNanos(Outcome.VERSION_SET, 50));
+    assertEquals(0, stats.getPercentileNanos(Outcome.RANGE_TYPE, 99));
+    assertEquals(2026 / 4.0, stats.getAverageNanos(Outcome.VERSION_SET), 0);
+
+    stats.reset();
+    assertEquals(0, stats.getTotalCount());
+    assertEquals(0, stats.getHistogram(Outcome.VERSION_SET)[9]);
+  }
+
+  /**
+   * Every string is counted exactly once.
+   */
+  @Test
+  public void testCorpus()
+  {
+    ParseStatistics stats = new ParseStatistics();
+    VersionFactory factory = VersionFactory.builder().metrics(stats).build();
+    int count = 0;
+    for (String input : RangeCorpus.INPUTS) {
+      try {
+        factory.getRange(input);
+      }
+      catch (InvalidRangeException e) {
+        // Counted as rejected
+      }
+      count++;
+    }
+    assertEquals(count, stats.getTotalCount());
+    assertTrue(stats.toString(), stats.getCount(Outcome.FAST_PATH) > 0);
+  }
+
+  private static void checkOutcome(Outcome expected, String input) throws InvalidRangeException
+  {
+    ParseStatistics stats = new ParseStatistics();
+    VersionFactory factory = VersionFactory.builder().fastPath(false).metrics(stats).build();
+    factory.getRange(input);
+    assertEquals(input, 1, stats.getCount(expected));
+    assertEquals(input, 1, stats.getTotalCount());
+  }
+}
@@ -0,0 +1,144 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the parsed range cache
+ *
+ * @author Ken Duck
+ */
+public class RangeCacheTests
+{
+  @Test
+  public void testRepeatedRangeIsShared() throws InvalidRangeException
+  {
+    VersionFactory factory = VersionFactory.getCachingVersionFactory();
+    IVersionRange range1 = factory.getRange(">=1.2.0 <1.2.9");
+    IVersionRange range2 = factory.getRange(">=1.2.0 <1.2.9");
+    assertNotNull(range1);
+    assertSame(range1, range2);
+    assertEquals(">=1.2.0 <1.2.9", range2.toString());
+    assertTrue(factory.getCache().getHitCount() > 0);
+  }
+
+  @Test
+  public void testCachedRangesAreFrozen() throws InvalidRangeException
+  {
+    IVersionRange range = VersionFactory.getCachingVersionFactory().getRange("[2.0,2.5)");
+    assertTrue(((IFreezableRange) range).isFrozen());
+    assertEquals("maven", range.getType());
+    try {
+      range.setType("npm");
+      fail("Expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException e) {
+      // Expected
+    }
+    assertEquals("maven", range.getType());
+  }
+
+  @Test
+  public void testStrictFailuresAreNotCached() throws InvalidRangeException
+  {
+    VersionFactory factory = VersionFactory.getCachingStrictVersionFactory();
+    for (int i = 0; i < 2; i++) {
+      try {
+        factory.getRange(">=2.10 <=2.2.4");
+        fail("Expected InvalidRangeException");
+      }
+      catch (InvalidRangeException e) {
+        // Expected
+      }
+    }
+    assertNull(factory.getCache().get(">=2.10 <=2.2.4"));
+  }
+
+  @Test
+  public void testEviction() throws InvalidRangeException
+  {
+    RangeCache cache = new RangeCache(2);
+    VersionFactory factory = VersionFactory.getVersionFactory();
+    cache.put("1.0.0", factory.getRange("1.0.0"));
+    cache.put("2.0.0", factory.getRange("2.0.0"));
+    cache.put("3.0.0", factory.getRange("3.0.0"));
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    assertNull(cache.get("1.0.0"));
+    assertNotNull(cache.get("3.0.0"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  /**
+   * Clearing while other threads put must not leave entries which are neither
+   * counted nor evictable.
+   */
+  @Test
+  public void testClearWhilePutting() throws Exception
+  {
+    final int threads = 4;
+    final int keys = 200;
+    final RangeCache cache = new RangeCache(keys);
+    final IVersionRange range = VersionFactory.getVersionFactory().getRange("1.0.0");
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int i = 0; i < threads; i++) {
+      final int thread = i;
+      tasks.add(new Callable<Void>()
+      {
+        @Override
+        public Void call()
+        {
+          for (int j = 0; j < 20000; j++) {
+            if (thread == 0 && j % 100 == 0) {
+              cache.clear();
+            }
+            else {
+              cache.put("key" + (j % (keys * 2)), range);
+            }
+          }
+          return null;
+        }
+      });
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    assertEquals(cache.size(), countCached(cache, keys * 2));
+    assertTrue(cache.size() <= keys);
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, countCached(cache, keys * 2));
+  }
+
+  private static int countCached(RangeCache cache, int keys)
+  {
+    int count = 0;
+    for (int i = 0; i < keys; i++) {
+      if (cache.get("key" + i) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
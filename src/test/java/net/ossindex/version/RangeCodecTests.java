@@ -0,0 +1,122 @@
+package net.ossindex.version;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import net.ossindex.version.impl.SemanticVersion;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Ensure ranges and versions come back from the binary form exactly as they went
+ * in.
+ *
+ * @author Ken Duck
+ */
+public class RangeCodecTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Test
+  public void testCorpusRoundTrip() throws IOException
+  {
+    List<IVersionRange> ranges = RangeCorpus.parseAll();
+
+    // Write everything into one stream, to check each range reads exactly its own bytes
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    for (IVersionRange range : ranges) {
+      RangeCodec.writeRange(out, range);
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    for (IVersionRange range : ranges) {
+      IVersionRange copy = RangeCodec.readRange(in);
+      assertEquals(range.toString(), RangeCorpus.describe(range), RangeCorpus.describe(copy));
+      assertEquals(range.toString(), range, copy);
+      assertFalse(((IFreezableRange) copy).isFrozen());
+      assertEquals(range.toString(), factory.intern(range), factory.intern(copy));
+    }
+    assertEquals(0, in.available());
+  }
+
+  @Test
+  public void testByteBuffer() throws IOException, InvalidRangeException
+  {
+    IVersionRange range = factory.getRange(">=1.2.3-beta.1+build.5 <2.0.0.4-sp1");
+    range.setType("npm");
+    ByteBuffer buffer = RangeCodec.encode(range);
+    int size = buffer.remaining();
+    IVersionRange copy = RangeCodec.decode(buffer);
+    assertEquals(RangeCorpus.describe(range), RangeCorpus.describe(copy));
+    assertEquals("npm", copy.getType());
+    assertEquals(size, buffer.position());
+
+    // Direct buffers are read too, starting at their position
+    ByteBuffer direct = ByteBuffer.allocateDirect(size + 3);
+    direct.put(new byte[] { 9, 9, 9 });
+    direct.put(RangeCodec.encode(range));
+    direct.flip();
+    direct.position(3);
+    assertEquals(range, RangeCodec.decode(direct));
+    assertFalse(direct.hasRemaining());
+  }
+
+  @Test
+  public void testVersions() throws IOException, InvalidRangeException
+  {
+    String[] versions = { "1", "1.2", "1.2.3", "1.2.3-alpha.1", "1.2.3+meta", "1.2.3.4", "1.2.3.4-sp1", "master" };
+    for (String vstring : versions) {
+      IVersion version = factory.getVersion(vstring);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      RangeCodec.writeVersion(new DataOutputStream(bytes), version);
+      IVersion copy = RangeCodec.readVersion(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+      assertEquals(vstring, version.getClass(), copy.getClass());
+      assertEquals(vstring, version.toString(), copy.toString());
+      assertEquals(vstring, version, copy);
+      if (version instanceof SemanticVersion) {
+        // The number of significant digits must survive too
+        assertEquals(vstring, nextParent((SemanticVersion) version), nextParent((SemanticVersion) copy));
+      }
+    }
+  }
+
+  @Test
+  public void testSmall() throws InvalidRangeException
+  {
+    // One format byte, then tag, flags, operator, and a version of tag, flags and four small numbers
+    assertEquals(10, RangeCodec.encode(factory.getRange("<1.2.3")).remaining());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownFormat() throws IOException, InvalidRangeException
+  {
+    ByteBuffer buffer = RangeCodec.encode(factory.getRange("<1.2.3"));
+    buffer.put(0, (byte) (RangeCodec.FORMAT_VERSION + 1));
+    RangeCodec.decode(buffer);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException, InvalidRangeException
+  {
+    ByteBuffer buffer = RangeCodec.encode(factory.getRange(">=1.0.0 <2.0.0"));
+    buffer.limit(buffer.limit() - 1);
+    RangeCodec.decode(buffer);
+  }
+
+  private static String nextParent(SemanticVersion version)
+  {
+    try {
+      return version.getNextParentVersion().toString();
+    }
+    catch (RuntimeException e) {
+      return e.getClass().getSimpleName();
+    }
+  }
+}
@@ -0,0 +1,565 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.ossindex.version.impl.SemanticVersion;
+import net.ossindex.version.impl.VersionErrorListener;
+import net.ossindex.version.impl.VersionListener;
+import net.ossindex.version.parser.VersionLexer;
+import net.ossindex.version.parser.VersionParser;
+import net.ossindex.version.parser.VersionParser.RangeContext;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+/**
+ * Version and range strings collected from the other tests, plus a few extra edge
+ * cases. Used to check that alternate parsing strategies produce the same results
+ * as the grammar.
+ *
+ * @author Ken Duck
+ */
+public class RangeCorpus
+{
+  public static final String[] INPUTS = {
+      "( - )",
+      "( - ]",
+      "(,1.2.5)",
+      "(,1.2.5),(1.3.0,)",
+      "(,1.2.5-rc5)",
+      "(,1.2.5.0]",
+      "(,1.2.5.6)",
+      "(,1.2.5.6]",
+      "(,1.2.5]",
+      "(,1.8.0.9)",
+      "(,2.8.9),[3.0.0,3.0.4),[3.1.0,3.1.4)",
+      "(,4.3.2)",
+      "(,4.3.2]",
+      "(1.0,2.0)",
+      "(1.0,2.0]",
+      "(1.0,2.0],[3.0,4.0)",
+      "(1.2.19,1.2.19]",
+      "(1.2.5,)",
+      "(1.2.5,1.3.0)",
+      "(1.2.5,1.3.0),(2.2.5,2.3.0)",
+      "(1.2.5.6,)",
+      "(4.3.2,)",
+      "(4.3.2,]",
+      "(>0.2 & <0.5) | (>1.2 & <1.5)",
+      "(>1.2.5 & <1.3)",
+      "(>1.2.5 & <1.3) | (>2.2.5 & <2.3)",
+      "(>1.4 & <1.9) | (>2.4 & <2.9)",
+      "(>=2.0.0 <=2.5.3-SP13) | ((>=2.6.0 <=2.6.1) | (>=2.7.0 <=2.7.1-Beta2))",
+      "(>=2.0.0 <=2.5.3-SP13) | (>=2.6.0 <=2.6.1)",
+      "(>=2.0.0 <=2.5.3-SP13) | (>=2.6.0 <=2.6.1) | (>=2.7.0 <=2.7.1-Beta2)",
+      "(>=3.0.0 <3.0.4) | (>=3.1.0 <3.1.4)",
+      "(named]",
+      "*",
+      "-",
+      "0.0.0-111111111111",
+      "0.0.111111111111",
+      "0.0.17-alpha",
+      "0.0.17-alpha.0",
+      "0.2.4.23-1~deb7u1",
+      "01",
+      "01.0.0",
+      "01.0.0.5",
+      "1",
+      "1.0.0",
+      "1.0.0.5",
+      "1.0.2-v20150114",
+      "1.02",
+      "1.02.3",
+      "1.02.3.4",
+      "1.1.0-wildfly.7",
+      "1.1.0.wildfly.007",
+      "1.1.3",
+      "1.2",
+      "1.2.0",
+      "1.2.03",
+      "1.2.03.4",
+      "1.2.2,2.2.9",
+      "1.2.3",
+      "1.2.3 &, 1.2.3",
+      "1.2.3-0",
+      "1.2.3-04",
+      "1.2.3-04a",
+      "1.2.3-0a",
+      "1.2.3-4",
+      "1.2.3-4a",
+      "1.2.3-a",
+      "1.2.3-alpha",
+      "1.2.3-rc+build",
+      "1.2.3-rc+build.1",
+      "1.2.3.04",
+      "1.2.3.4",
+      "1.2.3[zounds]",
+      "1.2.3alpha",
+      "1.2.4",
+      "1.2.4.6",
+      "1.2.5",
+      "1.2.5,1.2.6,1.2.8",
+      "1.2.5-rc4",
+      "1.2.5-rc6",
+      "1.2.5.5",
+      "1.2.5.6",
+      "1.2.5.7",
+      "1.2.5.99",
+      "1.2.6",
+      "1.2.6,1.2.9",
+      "1.2.6,2.2.9",
+      "1.2.9",
+      "1.2.99",
+      "1.2.x",
+      "1.3.0",
+      "1.3.1",
+      "1.6.0-Final-redhat-1",
+      "1.6.0.Final-redhat-1",
+      "1.7",
+      "1.7-201002241055",
+      "1.7-a",
+      "1.7.0",
+      "1.7.0-201002241055",
+      "1.7.0-a",
+      "1.x",
+      "10.0.6+7-e2ba6752",
+      "10.0.6-7-e2ba6752",
+      "1:4.6.0-4.6.1-pre1-2",
+      "2.0.0",
+      "2.2.3alpha1.1",
+      "2.2.6",
+      "2.3.1",
+      "2.3.2",
+      "2.4",
+      "2.5.6 | 2.5.7",
+      "2.5.6 || 2.5.7",
+      "2.5.6-SEC01",
+      "2.5.6-SEC01 | 2.5.6-SEC02",
+      "2.5.6.SEC01",
+      "2.5.6.SEC01 || 2.5.6.SEC02",
+      "2.8.9",
+      "2015.04.01",
+      "2015.04.01-0",
+      "3.0-JBoss-4.0.2-3",
+      "3.0-JBoss-4.0.2_03",
+      "3.0.0",
+      "3.0.3",
+      "3.0.4",
+      "3.1.0",
+      "3.1.3",
+      "3.1.4",
+      "4.0.2-3eab439-20180109215419",
+      "4.3.1 | 4.3.2",
+      "4.3.2",
+      "4.3.2-Final",
+      "4.3.2-Final | 4.3.1-GA",
+      "4.3.2-Final-Score",
+      "4.3.2.1",
+      "4.3.2.Final",
+      "4.3.2.RELEASE",
+      "4.3.7.RELEASE",
+      "4.6.0-4.6.1-pre1-2",
+      "5.",
+      "5.0.0",
+      "5.5.",
+      "5.5.0",
+      "5.5.5",
+      "5.5.5.",
+      "5.5.5.5",
+      "5.5.5.5.",
+      "5demo-1.2.3",
+      "5demo-1.2.3alpha",
+      "< 1.9.3",
+      "<1.0.0 | >2.0.0",
+      "<1.0.5-1",
+      "<1.10.10",
+      "<1.2.5",
+      "<1.2.5 | >1.3",
+      "<1.2.5 | >1.3.0",
+      "<1.2.5-rc5",
+      "<1.2.5.6",
+      "<1.4.1 >=0.4.3",
+      "<1.5",
+      "<1.8.0.9",
+      "<1.8.7-dfsg-1+deb8u1",
+      "<1.9.3",
+      "<1.9.3.484 | >=1.9.4.0",
+      "<1.9.3.484 | >=1.9.4.0 <2.0.0.353 | >=2.0.1.0 <2.1.0-preview.2",
+      "<12.0.0-1",
+      "<1:1.0.5-1",
+      "<1:1.8.7+dfsg-1+deb8u1",
+      "<2.0.0 | >3.0.0",
+      "<2.0.0 | >3.0.0 <4.0.0 | >5.0.0",
+      "<2.8.9 || >=3.0.0 <3.0.4 || >=3.1.0 <3.1.4 ",
+      "<2:12.0.0-1",
+      "<4.0.0 | >5.0.0",
+      "<4.0.0 | >5.0.0 <6.0.0",
+      "<4.1.7 | >4.1.99999999 <4.2.0-beta3",
+      "<4.3.2",
+      "<6.0.0",
+      "<= 1.9.3",
+      "<=1.2.5",
+      "<=1.2.5.0",
+      "<=1.2.5.6",
+      "<=1.9.3",
+      "<=4.3.2",
+      "= 4.3.2.Final",
+      "= 4.3.2.Final_Score",
+      "> 1.9.3",
+      ">1.0.0",
+      ">1.0.0 <2.0.0",
+      ">1.0.0 <2.0.0 | >3.0.0",
+      ">1.0.0 <2.0.0 | >3.0.0 <4.0.0 | >5.0.0 <6.0.0",
+      ">1.0.0 <=2.0.0",
+      ">1.0.0 <=2.0.0 | >=3.0.0 <4.0.0",
+      ">1.2",
+      ">1.2.19 <=1.2.19]",
+      ">1.2.4",
+      ">1.2.4 <1.2.7",
+      ">1.2.4 <1.2.7 | >2.2.5 <2.2.7",
+      ">1.2.5",
+      ">1.2.5 & <1.3",
+      ">1.2.5 <1.2.6",
+      ">1.2.5 <1.2.7",
+      ">1.2.5 <1.2.7 | >2.2.5 <2.2.7",
+      ">1.2.5 <1.3",
+      ">1.2.5 <1.3.0",
+      ">1.2.5 <1.3.0 | >2.2.5 <2.3.0",
+      ">1.2.5.6",
+      ">1.2.6",
+      ">1.2.6 <1.2.7",
+      ">1.2.6 <1.2.7 | >2.2.5 <2.2.7",
+      ">1.9.3",
+      ">2.5.6 | >2.5.7",
+      ">2.5.6 || >2.5.7",
+      ">4.3.2",
+      ">= 1.9.3",
+      ">= 2.1.0.preview.2",
+      ">=0.0.0",
+      ">=0.0.0 <1.0.0",
+      ">=0.0.3 <0.0.4",
+      ">=0.0.3-beta <0.0.4",
+      ">=0.10.0 <0.10.2",
+      ">=0.10.0, <0.10.2",
+      ">=0.2.0 <0.3.0",
+      ">=0.2.3 <0.3.0",
+      ">=0.4.3 <1.4.1",
+      ">=1.0.0 <2.0.0",
+      ">=1.0.0 <=2.0.0",
+      ">=1.1.0 <1.1.1c",
+      ">=1.1.1 <1.1.1c",
+      ">=1.1.1a <1.1.1c",
+      ">=1.10.1 <1.10.10",
+      ">=1.2.0 <1.2.9",
+      ">=1.2.0 <1.3.0",
+      ">=1.2.19 <1.2.19]",
+      ">=1.2.3 <1.1.1",
+      ">=1.2.3 <1.3.0",
+      ">=1.2.3 <2.0.0",
+      ">=1.2.3-beta.2 <2.0.0",
+      ">=1.2.5",
+      ">=1.2.5.0",
+      ">=1.2.5.6",
+      ">=1.6.0.Final-redhat-1 <3.0.0.CR1",
+      ">=1.9.0 <2.0.0",
+      ">=1.9.3",
+      ">=1.9.3 <1.10.0",
+      ">=1.9.3.484 <1.9.4.0",
+      ">=2.0.0 <=2.5.3-SP13",
+      ">=2.10 & <=2.2.4",
+      ">=2.10 <=2.2.4",
+      ">=2.4.0-beta <=2.4.0-rc1",
+      ">=2.5.0 <=2.5.6 | 2.5.6-SEC01 | 2.5.6-SEC02 | 2.5.7 | >=3.0.0 <3.0.3",
+      ">=2.5.0 <=2.5.6 || 2.5.6.SEC01 || 2.5.6.SEC02 || 2.5.7 || >=3.0.0 <3.0.3",
+      ">=3.0.0 <3.0.4 | >=3.1.0 <3.1.4",
+      ">=3.0.0 <3.0.4 || >=3.1.0 <3.1.4 ",
+      ">=3.0.0 <=3.9.1 =3.10.2",
+      ">=3.1.0 <3.1.4 ",
+      ">=3.2.0 <=3.2.8 | >=4.0.0 <=4.0.4",
+      ">=4.1.0 <4.2.1 | >=4.3.0 <4.3.2 | >=5.0.0 <5.1.2",
+      ">=4.1.0 <4.2.1 || >=4.3.0 <4.3.2 || >=5.0.0 <5.1.2",
+      ">=4.2.0-beta3",
+      ">=4.2.5",
+      ">=4.2.5.1",
+      ">=4.2.5.1 <4.3.0",
+      ">=4.3.2",
+      ">=~1.2.3-beta.2 <1.3.0",
+      "[ - )",
+      "[ - ]",
+      "[,4.3.2)",
+      "[,4.3.2]",
+      "[-]",
+      "[1.0,2.0)",
+      "[1.0,2.0]",
+      "[1.1.0,1.1.1],[1.1.1-a],[1.1.1-b],[1.1.1-c]",
+      "[1.1.1-a],[1.1.1-b],[1.1.1-c]",
+      "[1.1.1],[1.1.1-a],[1.1.1-b],[1.1.1-c]",
+      "[1.2.5,)",
+      "[1.2.5.0,)",
+      "[1.2.5.6,)",
+      "[1.2.5]",
+      "[1.2.5],[1.2.6],[1.2.8]",
+      "[1.6.0-Final-redhat-1,3.0.0-CR1)",
+      "[2.0,2.5)",
+      "[2.0.0,2.5.3-SP13]",
+      "[2.0.0,2.5.3-SP13],[2.6.0,2.6.1]",
+      "[2.0.0,2.5.3-SP13],[2.6.0,2.6.1],[2.7.0,2.7.1-Beta2]",
+      "[2.4-beta,2.4.0-rc1]",
+      "[2.4.0rc1]",
+      "2.4.0-rc1",
+      "[2.4beta,2.4.0rc1]",
+      "[2.5.0,2.5.6],[2.5.6-SEC01],[2.5.6-SEC02],[2.5.7],[3.0.0,3.0.3)",
+      "[3.0.0,3.0.4),[3.1.0,3.1.4)",
+      "[3.1.0,3.1.4)",
+      "[3.2,3.2.8.RELEASE], [4.0,4.0.4.RELEASE]",
+      "[4-beta]",
+      "4.0.0-beta",
+      "[4.1.0,4.2.1),[4.3.0,4.3.2),[5.0.0,5.1.2)",
+      "[4.3-beta]",
+      "4.3.0-beta",
+      "[4.3.1],[4.3.2]",
+      "[4.3.2,)",
+      "[4.3.2,]",
+      "[4.3.2-beta]",
+      "4.3.2-beta",
+      "[4.3.2.1-beta]",
+      "4.3.2.1-beta",
+      "[4.3.2.1.beta]",
+      "[4.3.2.1_beta]",
+      "[4.3.2.1beta]",
+      "[4.3.2.beta]",
+      "[4.3.2]",
+      "[4.3.2_beta]",
+      "[4.3.2beta]",
+      "[4.3.beta]",
+      "[4.3]",
+      "4.3.0",
+      "[4.3_beta]",
+      "[4.3beta]",
+      "[4.beta]",
+      "[4]",
+      "4.0.0",
+      "[4_beta]",
+      "[4beta]",
+      "[]",
+      "[named]",
+      "^0.0.3",
+      "^0.0.3-beta",
+      "^0.2.3",
+      "^1.2.3",
+      "^1.2.3-beta.2",
+      "bob",
+      "demo-1.2.3",
+      "named",
+      "named&version",
+      "named(zounds)",
+      "named+version",
+      "named-version",
+      "named.version",
+      "named<version",
+      "named=version",
+      "named>version",
+      "namedVersion",
+      "named[wow]",
+      "~0",
+      "~0.2",
+      "~0.2.3",
+      "~1",
+      "~1.2",
+      "~1.2.3",
+      "~1.2.3-beta.2",
+      "~> 1.9",
+      "~> 1.9.3",
+      "~> 1.9.3.484",
+      "~> 2.0.0.353",
+      "~> 4.1.7",
+      "~> 4.2.5, >= 4.2.5.1",
+      "1.2GA",
+      "1.2.3.RELEASE",
+      "1.2-RELEASE",
+      "1.2.3-final",
+      "1.2.3.4.GA",
+      "<5.",
+      ">=1.2.3-beta <2",
+      "1.2.3-beta ",
+      " 1.2.3",
+      "=1.2.3",
+      "^1.2.3.4",
+      "^2",
+      "~> 1",
+      "~> 1.2-beta",
+      "~>1.2.3.4",
+      ">1<2",
+      ">1,<2",
+      ">1 & <2",
+      ">=1.2.3 , <2",
+      "1.2.3.4-beta",
+      "1.2.3.4beta",
+      "1.2beta",
+      "1.2.3-SNAPSHOT",
+      "1.2.3_beta",
+      "1.2.3_RC1",
+      "1.2.3.RC1",
+      "< 2.0.0",
+      ">=01.2.3",
+      "01.2.3-beta",
+      "1.2.03-beta",
+      ">=1.2.3-beta1 <2",
+      "1234567890.1",
+      "1.2.3\t",
+      "\t>=1 <2\n",
+      "1.2.3.4.5",
+      "1.2.3 4",
+      ">=1.0 <2.0 <3.0",
+      "<=1.2.3-rc1",
+      ">2.0.0-alpha <2.0.0",
+      "1.0-beta-2",
+      "1.2.3-beta.1",
+      "v1.2.3",
+      "1.2.3+build",
+      ">= 1.0.0 ,<= 2.0.0",
+      "<1.0.0 >=2.0.0",
+      ">1.2.3-beta & <1.2.3-rc"
+  };
+
+  /**
+   * Versions checked against each range when describing it
+   */
+  private static final IVersion[] PROBES = {
+      new SemanticVersion(0, 0, 1),
+      new SemanticVersion(1, 2, 3),
+      new SemanticVersion("1.2.3-beta"),
+      new SemanticVersion(1, 2, 5),
+      new SemanticVersion(2, 0, 0),
+      new SemanticVersion(4, 3, 2)
+  };
+
+  /**
+   * Parse every input which the version factory accepts.
+   */
+  public static List<IVersionRange> parseAll()
+  {
+    List<IVersionRange> ranges = new ArrayList<IVersionRange>();
+    for (String input : INPUTS) {
+      try {
+        ranges.add(VersionFactory.getVersionFactory().getRange(input));
+      }
+      catch (InvalidRangeException | RuntimeException e) {
+        // Skip inputs which do not parse
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Every version mentioned in the corpus, plus the versions on either side of
+   * them, so that every boundary is tested.
+   */
+  public static List<IVersion> probeVersions(List<IVersionRange> ranges)
+  {
+    Set<String> strings = new LinkedHashSet<String>();
+    for (IVersionRange range : ranges) {
+      for (String token : range.toString().split("[^0-9A-Za-z.+-]+")) {
+        if (!token.isEmpty()) {
+          strings.add(token);
+        }
+      }
+    }
+    List<IVersion> probes = new ArrayList<IVersion>();
+    for (String s : strings) {
+      try {
+        IVersion version = VersionFactory.getVersionFactory().getVersion(s);
+        probes.add(version);
+        if (version instanceof SemanticVersion) {
+          SemanticVersion sv = (SemanticVersion) version;
+          probes.add(sv.getNextVersion());
+          probes.add(sv.getPrevVersion());
+        }
+      }
+      catch (InvalidRangeException | RuntimeException e) {
+        // Not a version
+      }
+    }
+    return probes;
+  }
+
+  /**
+   * Parse the string with the ANTLR grammar only, exactly as the version factory
+   * would without any shortcuts.
+   *
+   * @return A description of the result, or of the exception thrown
+   */
+  public static String describeGrammarResult(String vstring, boolean strict)
+  {
+    try {
+      VersionErrorListener errorListener = new VersionErrorListener();
+      VersionLexer lexer = new VersionLexer(new ANTLRInputStream(vstring));
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(errorListener);
+      VersionParser parser = new VersionParser(new CommonTokenStream(lexer));
+      parser.removeErrorListeners();
+      parser.addErrorListener(errorListener);
+      RangeContext context = parser.range();
+      VersionListener listener = new VersionListener(strict);
+      new ParseTreeWalker().walk(listener, context);
+      IVersionRange range = listener.getRange();
+      if (errorListener.hasErrors()) {
+        range.setHasErrors(true);
+      }
+      return describe(range);
+    }
+    catch (Exception e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+  }
+
+  /**
+   * Describe the range in enough detail to tell if two ranges are the same.
+   */
+  public static String describe(IVersionRange range)
+  {
+    if (range == null) {
+      return "null";
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append(range.getClass().getSimpleName());
+    sb.append(" [").append(range).append("]");
+    sb.append(" type=").append(range.getType());
+    sb.append(" errors=").append(range.hasErrors());
+    sb.append(" simple=").append(range.isSimple());
+    sb.append(" discrete=").append(range.isDiscrete());
+    try {
+      sb.append(" maven=").append(range.toMavenString());
+    }
+    catch (RuntimeException e) {
+      sb.append(" maven=").append(e.getClass().getSimpleName());
+    }
+    try {
+      IVersion min = range.getMinimum();
+      sb.append(" min=").append(min == null ? null : min.getClass().getSimpleName() + ":" + min);
+    }
+    catch (RuntimeException e) {
+      sb.append(" min=").append(e.getClass().getSimpleName());
+    }
+    try {
+      IVersion max = range.getMaximum();
+      sb.append(" max=").append(max == null ? null : max.getClass().getSimpleName() + ":" + max);
+    }
+    catch (RuntimeException e) {
+      sb.append(" max=").append(e.getClass().getSimpleName());
+    }
+    sb.append(" contains=");
+    for (IVersion probe : PROBES) {
+      try {
+        sb.append(range.contains(probe) ? 'Y' : 'N');
+      }
+      catch (RuntimeException e) {
+        sb.append('E');
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,142 @@
+package net.ossindex.version;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ensure the mapped range database gives exactly the same answers as calling
+ * contains on the ranges it was built from.
+ *
+ * @author Ken Duck
+ */
+public class RangeDatabaseTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  private static final int PACKAGES = 7;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testCorpusMatchesContains() throws IOException, InvalidRangeException
+  {
+    List<IVersionRange> ranges = new ArrayList<IVersionRange>();
+    RangeDatabase.Writer writer = new RangeDatabase.Writer();
+    for (IVersionRange range : RangeCorpus.parseAll()) {
+      try {
+        assertEquals(ranges.size(), writer.add(packageOf(ranges.size()), range));
+        ranges.add(range);
+      }
+      catch (UnsupportedOperationException e) {
+        // Named versions and ranges which cannot be normalized are not stored
+      }
+    }
+    assertTrue(ranges.size() > 100);
+
+    File file = folder.newFile();
+    writer.write(file);
+
+    List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+    // Pre-releases which are not in any range must still be placed correctly
+    for (String extra : new String[] { "1.0.0-0", "1.0.0-alpha.0", "1.2.5-rc4", "1.2.5-rc6", "1.2.5-zzz", "3.0.0-1" }) {
+      probes.add(factory.getVersion(extra));
+    }
+
+    RangeDatabase db = RangeDatabase.open(file);
+    try {
+      assertEquals(PACKAGES, db.getPackageCount());
+      assertEquals(ranges.size(), db.getRangeCount());
+      for (int p = 0; p < PACKAGES; p++) {
+        String pkg = "pkg" + p;
+        for (IVersion version : probes) {
+          int[] expected = linearSearch(ranges, pkg, version);
+          assertArrayEquals(pkg + " " + version, expected, db.find(pkg, version));
+          assertEquals(pkg + " " + version, expected.length > 0, db.contains(pkg, version));
+        }
+      }
+    }
+    finally {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testPackages() throws IOException, InvalidRangeException
+  {
+    RangeDatabase.Writer writer = new RangeDatabase.Writer();
+    writer.add("npm:left-pad", factory.getRange("<1.3.0"));
+    writer.add("maven:org.example:lib", factory.getRange("[1.0,2.0)"));
+    writer.add("npm:left-pad", factory.getRange(">=2.0.0 <2.1.0 || >=3.0.0-beta.2 <3.0.0"));
+    writer.add("gem:\u00fcber", factory.getRange("~> 1.2"));
+    File file = folder.newFile();
+    writer.write(file);
+
+    RangeDatabase db = RangeDatabase.open(file);
+    try {
+      assertArrayEquals(new int[] { 0 }, db.find("npm:left-pad", factory.getVersion("1.2.9")));
+      assertArrayEquals(new int[] { 2 }, db.find("npm:left-pad", factory.getVersion("2.0.5")));
+      assertArrayEquals(new int[] { 2 }, db.find("npm:left-pad", factory.getVersion("3.0.0-beta.10")));
+      assertFalse(db.contains("npm:left-pad", factory.getVersion("3.0.0-beta.1")));
+      assertFalse(db.contains("npm:left-pad", factory.getVersion("3.0.0")));
+      assertTrue(db.contains("maven:org.example:lib", factory.getVersion("1.5.0.3")));
+      assertTrue(db.contains("gem:\u00fcber", factory.getVersion("1.9")));
+      assertFalse(db.contains("gem:\u00fcber", factory.getVersion("2.0")));
+      assertFalse(db.contains("npm:right-pad", factory.getVersion("1.0.0")));
+      assertFalse(db.contains("npm:left-pad", factory.getVersion("master")));
+    }
+    finally {
+      db.close();
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testNamedVersionsAreRejected() throws InvalidRangeException
+  {
+    new RangeDatabase.Writer().add("pkg", factory.getRange("1.0.0 | master"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotADatabase() throws IOException
+  {
+    File file = folder.newFile();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(new byte[64]);
+    }
+    finally {
+      out.close();
+    }
+    RangeDatabase.open(file);
+  }
+
+  private static String packageOf(int index)
+  {
+    return "pkg" + (index % PACKAGES);
+  }
+
+  private static int[] linearSearch(List<IVersionRange> ranges, String pkg, IVersion version)
+  {
+    int[] results = new int[ranges.size()];
+    int size = 0;
+    for (int i = 0; i < ranges.size(); i++) {
+      if (packageOf(i).equals(pkg) && ranges.get(i).contains(version)) {
+        results[size++] = i;
+      }
+    }
+    return Arrays.copyOf(results, size);
+  }
+}
@@ -0,0 +1,122 @@
+package net.ossindex.version;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ensure reading ranges from a file gives the same results as parsing each line
+ * directly.
+ *
+ * @author Ken Duck
+ */
+public class RangeFileReaderTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testCorpus() throws IOException
+  {
+    StringBuilder sb = new StringBuilder();
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < RangeCorpus.INPUTS.length; i++) {
+      String input = RangeCorpus.INPUTS[i];
+      if (input.trim().isEmpty() || input.contains("\n")) {
+        continue;
+      }
+      lines.add(input);
+      // Mix up the line endings
+      sb.append(input).append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    File file = write(sb.toString());
+
+    // A tiny window makes sure lines are split across remappings, and that the
+    // window grows for lines longer than it
+    for (int chunkSize : new int[] { 8, 64, 1024 * 1024 }) {
+      RangeFileReader reader = new RangeFileReader(factory, file, chunkSize);
+      try {
+        int i = 0;
+        while (reader.hasNext()) {
+          ParseResult result = reader.next();
+          String input = lines.get(i);
+          assertEquals(i, result.getIndex());
+          assertEquals(input, result.getInput());
+          try {
+            assertEquals(input, factory.getRange(input).toString(), result.getRange().toString());
+          }
+          catch (InvalidRangeException | RuntimeException e) {
+            assertFalse(input, result.isSuccess());
+          }
+          i++;
+        }
+        assertEquals(lines.size(), i);
+      }
+      finally {
+        reader.close();
+      }
+    }
+  }
+
+  @Test
+  public void testBlankLinesAndByteOrderMark() throws IOException
+  {
+    File file = write("\uFEFF1.2.3\n\n  \n>=1.0.0 <2.0.0\r\n\n~1.2");
+    RangeFileReader reader = new RangeFileReader(factory, file);
+    try {
+      ParseResult result = reader.next();
+      assertEquals(0, result.getIndex());
+      assertEquals("1.2.3", result.getRange().toString());
+      result = reader.next();
+      assertEquals(3, result.getIndex());
+      assertEquals(">=1.0.0 <2.0.0", result.getRange().toString());
+      assertTrue(reader.hasNext());
+      assertEquals(5, reader.next().getIndex());
+      assertFalse(reader.hasNext());
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testEmptyFile() throws IOException
+  {
+    RangeFileReader reader = new RangeFileReader(factory, write(""));
+    try {
+      assertFalse(reader.hasNext());
+      reader.next();
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  private File write(String content) throws IOException
+  {
+    File file = folder.newFile();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    finally {
+      out.close();
+    }
+    return file;
+  }
+}
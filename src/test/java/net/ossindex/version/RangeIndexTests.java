@@ -0,0 +1,116 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ensure the range index gives exactly the same answers as calling contains on
+ * every range.
+ *
+ * @author Ken Duck
+ */
+public class RangeIndexTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Test
+  public void testCorpusMatchesContains()
+  {
+    List<IVersionRange> ranges = RangeCorpus.parseAll();
+    List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+
+    RangeIndex<Integer> index = new RangeIndex<Integer>();
+    for (int i = 0; i < ranges.size(); i++) {
+      index.add(ranges.get(i), i);
+    }
+    assertEquals(ranges.size(), index.size());
+    // Make sure the tree is actually used, and we are not just checking contains
+    assertTrue(index.getIntervalCount() > ranges.size() / 2);
+
+    for (IVersion version : probes) {
+      assertEquals(version.toString(), linearSearch(ranges, version), index.find(version));
+    }
+  }
+
+  @Test
+  public void testRemove()
+  {
+    List<IVersionRange> ranges = RangeCorpus.parseAll();
+    List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+
+    RangeIndex<Integer> index = new RangeIndex<Integer>();
+    for (int i = 0; i < ranges.size(); i++) {
+      index.add(ranges.get(i), i);
+    }
+    // Remove every other range, the rest should be unaffected
+    List<IVersionRange> remaining = new ArrayList<IVersionRange>();
+    for (int i = 0; i < ranges.size(); i++) {
+      if (i % 2 == 0) {
+        assertTrue(index.remove(i));
+        remaining.add(null);
+      }
+      else {
+        remaining.add(ranges.get(i));
+      }
+    }
+    assertFalse(index.remove(0));
+
+    for (IVersion version : probes) {
+      assertEquals(version.toString(), linearSearch(remaining, version), index.find(version));
+    }
+
+    for (int i = 1; i < ranges.size(); i += 2) {
+      index.remove(i);
+    }
+    assertEquals(0, index.size());
+    assertEquals(0, index.getIntervalCount());
+  }
+
+  @Test
+  public void testMultipleRangesForOneValue() throws InvalidRangeException
+  {
+    RangeIndex<String> index = new RangeIndex<String>();
+    index.add(factory.getRange("<1.0.0"), "CVE-1");
+    index.add(factory.getRange(">=2.0.0 <2.1.0"), "CVE-1");
+    index.add(factory.getRange("1.5.0 | master"), "CVE-2");
+
+    assertEquals(setOf("CVE-1"), index.find(factory.getVersion("0.9.0")));
+    assertEquals(setOf("CVE-1"), index.find(factory.getVersion("2.0.5")));
+    assertEquals(setOf(), index.find(factory.getVersion("2.1.0")));
+    assertEquals(setOf("CVE-2"), index.find(factory.getVersion("1.5.0")));
+    assertEquals(setOf("CVE-2"), index.find(factory.getVersion("master")));
+
+    index.remove("CVE-1");
+    assertEquals(setOf(), index.find(factory.getVersion("0.9.0")));
+    assertEquals(setOf("CVE-2"), index.find(factory.getVersion("master")));
+  }
+
+  private static Set<Integer> linearSearch(List<IVersionRange> ranges, IVersion version)
+  {
+    Set<Integer> results = new LinkedHashSet<Integer>();
+    for (int i = 0; i < ranges.size(); i++) {
+      IVersionRange range = ranges.get(i);
+      if (range != null && range.contains(version)) {
+        results.add(i);
+      }
+    }
+    return results;
+  }
+
+  private static Set<String> setOf(String... values)
+  {
+    Set<String> results = new LinkedHashSet<String>();
+    for (String value : values) {
+      results.add(value);
+    }
+    return results;
+  }
+}
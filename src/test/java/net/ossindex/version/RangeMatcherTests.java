@@ -0,0 +1,93 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Ensure batch matching gives exactly the same answers as calling contains on
+ * each version.
+ *
+ * @author Ken Duck
+ */
+public class RangeMatcherTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Test
+  public void testCorpusMatchesContains()
+  {
+    List<IVersionRange> ranges = RangeCorpus.parseAll();
+    List<IVersion> probes = RangeCorpus.probeVersions(ranges);
+    // Order should not matter
+    List<IVersion> shuffled = new ArrayList<IVersion>(probes);
+    Collections.reverse(shuffled);
+
+    for (IVersionRange range : ranges) {
+      RangeMatcher matcher = new RangeMatcher(range);
+      for (List<IVersion> versions : asList(probes, shuffled)) {
+        BitSet results = matcher.containsAll(versions);
+        for (int i = 0; i < versions.size(); i++) {
+          IVersion version = versions.get(i);
+          boolean expected = range.contains(version);
+          if (results.get(i) != expected || matcher.contains(version) != expected) {
+            fail(range + " contains " + version + " should be " + expected);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLinkedList() throws InvalidRangeException
+  {
+    IVersionRange range = factory.getRange(">=1.0.0 <2.0.0 | 3.0.0 | master");
+    List<IVersion> versions = new LinkedList<IVersion>();
+    for (String s : new String[]{"3.0.0", "master", "1.5.0", "0.9.0", "develop", "1.0.0", "2.0.0"}) {
+      versions.add(factory.getVersion(s));
+    }
+    BitSet results = RangeMatcher.containsAll(range, versions);
+    int i = 0;
+    for (IVersion version : versions) {
+      assertEquals(version.toString(), range.contains(version), results.get(i++));
+    }
+    assertEquals(4, results.cardinality());
+  }
+
+  @Test
+  public void testOverlappingRanges() throws InvalidRangeException
+  {
+    IVersionRange range = factory.getRange("<=1.0.0 | >=0.5.0 <2.0.0 | >2.0.0 <3.0.0 | 5.0.0 | master");
+    List<IVersion> versions = new ArrayList<IVersion>();
+    for (String s : new String[]{"0.1.0", "1.0.0", "1.5.0", "2.0.0", "2.5.0", "3.0.0", "5.0.0", "master", "develop"}) {
+      versions.add(factory.getVersion(s));
+    }
+    BitSet results = RangeMatcher.containsAll(range, versions);
+    assertTrue(results.get(0));
+    assertTrue(results.get(1));
+    assertTrue(results.get(2));
+    assertFalse(results.get(3));
+    assertTrue(results.get(4));
+    assertFalse(results.get(5));
+    assertTrue(results.get(6));
+    assertTrue(results.get(7));
+    assertFalse(results.get(8));
+  }
+
+  @SafeVarargs
+  private static <T> List<T> asList(T... values)
+  {
+    List<T> results = new ArrayList<T>();
+    Collections.addAll(results, values);
+    return results;
+  }
+}
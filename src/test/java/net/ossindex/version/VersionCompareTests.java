@@ -0,0 +1,128 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.zafarkhaja.semver.Version;
+import net.ossindex.version.impl.NamedVersion;
+import net.ossindex.version.impl.SemanticVersion;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that version comparison follows the semver ordering used by jsemver, and
+ * is consistent in both directions.
+ *
+ * @author Ken Duck
+ */
+public class VersionCompareTests
+{
+  private static final String[] VERSIONS = {
+      "0.0.1",
+      "1.2.3",
+      "1.2.4",
+      "1.3.0",
+      "2.0.0",
+      "10.0.0",
+      "1.2.3-0",
+      "1.2.3-1",
+      "1.2.3-2",
+      "1.2.3-10",
+      "1.2.3-a",
+      "1.2.3-alpha",
+      "1.2.3-alpha.1",
+      "1.2.3-alpha.2",
+      "1.2.3-alpha.10",
+      "1.2.3-alpha.beta",
+      "1.2.3-alpha1",
+      "1.2.3-beta",
+      "1.2.3-beta.2",
+      "1.2.3-beta.11",
+      "1.2.3-rc.1",
+      "1.2.3-RC1",
+      "1.2.3-Final-redhat-1",
+      "1.2.3-SNAPSHOT",
+      "1.2.3-4a",
+      "1.2.3-04a",
+      "1.2.3-99999999999",
+      "1.2.3-rc+build",
+      "1.2.3+build.1",
+      "1.7.0-201002241055"
+  };
+
+  @Test
+  public void testSameOrderAsJsemver()
+  {
+    for (String s1 : VERSIONS) {
+      for (String s2 : VERSIONS) {
+        int expected = Integer.signum(Version.valueOf(s1).compareTo(Version.valueOf(s2)));
+        int actual = Integer.signum(new SemanticVersion(s1).compareTo(new SemanticVersion(s2)));
+        assertEquals(s1 + " <=> " + s2, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testEqualVersionsHaveEqualHashes()
+  {
+    for (String s1 : VERSIONS) {
+      for (String s2 : VERSIONS) {
+        SemanticVersion v1 = new SemanticVersion(s1);
+        SemanticVersion v2 = new SemanticVersion(s2);
+        if (v1.equals(v2)) {
+          assertEquals(s1 + " == " + s2, v1.hashCode(), v2.hashCode());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testToStringMatchesJsemver()
+  {
+    for (String s : VERSIONS) {
+      assertEquals(Version.valueOf(s).toString(), new SemanticVersion(s).toString());
+      assertEquals(Version.valueOf(s), new SemanticVersion(s).getVersionImpl());
+    }
+  }
+
+  @Test
+  public void testExtendedCompareIsSymmetric() throws InvalidRangeException
+  {
+    VersionFactory factory = VersionFactory.getVersionFactory();
+    List<IVersion> versions = new ArrayList<IVersion>();
+    for (String s : new String[]{"1.2.3", "1.2.3-beta", "1.2.3.0", "1.2.3.4", "1.2.3.10", "1.2.4", "1.2.4.1"}) {
+      versions.add(factory.getVersion(s));
+    }
+    for (IVersion v1 : versions) {
+      for (IVersion v2 : versions) {
+        assertEquals(v1 + " <=> " + v2, Integer.signum(v1.compareTo(v2)), -Integer.signum(v2.compareTo(v1)));
+      }
+    }
+    assertTrue(factory.getVersion("1.2.3").compareTo(factory.getVersion("1.2.3.4")) < 0);
+    assertEquals(0, factory.getVersion("1.2.3").compareTo(factory.getVersion("1.2.3.0")));
+    assertEquals(factory.getVersion("1.2.3"), factory.getVersion("1.2.3.0"));
+    assertEquals(factory.getVersion("1.2.3").hashCode(), factory.getVersion("1.2.3.0").hashCode());
+  }
+
+  /**
+   * Versions are compared with named versions by their strings, which are built
+   * once and then reused.
+   */
+  @Test
+  public void testMixedCompareUsesCachedStrings() throws InvalidRangeException
+  {
+    VersionFactory factory = VersionFactory.getVersionFactory();
+    IVersion named = new NamedVersion("master");
+    for (String s : new String[]{"1.2.3", "1.2.3-beta.1+build", "1.2.3.4"}) {
+      IVersion version = factory.getVersion(s);
+      String string = version.toString();
+      assertEquals(s, string);
+      assertTrue(version.compareTo(named) < 0);
+      assertTrue(named.compareTo(version) > 0);
+      assertSame(string, version.toString());
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package net.ossindex.version;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the shared factories and independently configured factories, including
+ * under concurrent use.
+ *
+ * @author Ken Duck
+ */
+public class VersionFactoryTests
+{
+  private static final int THREADS = 8;
+
+  /**
+   * The shared factory getters are called on every request, so must not lock.
+   */
+  @Test
+  public void testGettersDoNotLock() throws NoSuchMethodException
+  {
+    for (String name : new String[]{"getVersionFactory", "getStrictVersionFactory",
+        "getCachingVersionFactory", "getCachingStrictVersionFactory"}) {
+      Method method = VersionFactory.class.getMethod(name);
+      assertFalse(name, Modifier.isSynchronized(method.getModifiers()));
+    }
+  }
+
+  /**
+   * Every thread gets the same shared factory, even when they all ask at once.
+   */
+  @Test
+  public void testSharedFactoriesFromManyThreads() throws Exception
+  {
+    final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+    List<Callable<VersionFactory[]>> tasks = new ArrayList<Callable<VersionFactory[]>>();
+    for (int i = 0; i < THREADS; i++) {
+      tasks.add(new Callable<VersionFactory[]>()
+      {
+        @Override
+        public VersionFactory[] call() throws Exception
+        {
+          barrier.await();
+          return new VersionFactory[]{
+              VersionFactory.getVersionFactory(),
+              VersionFactory.getStrictVersionFactory(),
+              VersionFactory.getCachingVersionFactory(),
+              VersionFactory.getCachingStrictVersionFactory()
+          };
+        }
+      });
+    }
+    List<VersionFactory[]> results = runAll(tasks);
+    for (VersionFactory[] factories : results) {
+      for (int i = 0; i < factories.length; i++) {
+        assertSame(results.get(0)[i], factories[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testBuilder() throws InvalidRangeException
+  {
+    VersionFactory strict = VersionFactory.builder().strict(true).build();
+    try {
+      strict.getRange(">=2.10 <=2.2.4");
+      fail("Expected InvalidRangeException");
+    }
+    catch (InvalidRangeException e) {
+      // Expected
+    }
+
+    VersionFactory caching = VersionFactory.builder().cacheSize(10).build();
+    assertNotSame(VersionFactory.getCachingVersionFactory().getCache(), caching.getCache());
+    assertSame(caching.getRange(">=1.0.0"), caching.getRange(">=1.0.0"));
+    assertNull(VersionFactory.builder().build().getCache());
+
+    VersionFactory quiet = VersionFactory.builder().diagnosticSink(null).build();
+    assertEquals("2015.04.01-0", quiet.getRange("2015.04.01-0").toString());
+  }
+
+  /**
+   * Turning off the fast path must not change the results.
+   */
+  @Test
+  public void testFastPathOff()
+  {
+    VersionFactory grammarOnly = VersionFactory.builder().fastPath(false).diagnosticSink(null).build();
+    VersionFactory quiet = VersionFactory.builder().diagnosticSink(null).build();
+    for (String input : RangeCorpus.INPUTS) {
+      assertEquals(input, describe(quiet, input), describe(grammarOnly, input));
+    }
+  }
+
+  /**
+   * Many threads parsing through one caching factory get the same results as
+   * a single thread.
+   */
+  @Test
+  public void testConcurrentParsing() throws Exception
+  {
+    final VersionFactory factory = VersionFactory.builder().cacheSize(100).diagnosticSink(null).build();
+    final String expected = describeCorpus(VersionFactory.builder().diagnosticSink(null).build());
+    List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+    for (int i = 0; i < THREADS; i++) {
+      tasks.add(new Callable<String>()
+      {
+        @Override
+        public String call()
+        {
+          return describeCorpus(factory);
+        }
+      });
+    }
+    for (String result : runAll(tasks)) {
+      assertEquals(expected, result);
+    }
+  }
+
+  private static <T> List<T> runAll(List<Callable<T>> tasks) throws Exception
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    try {
+      List<T> results = new ArrayList<T>();
+      for (Future<T> future : executor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  private static String describeCorpus(VersionFactory factory)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (String input : RangeCorpus.INPUTS) {
+      sb.append(describe(factory, input)).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static String describe(VersionFactory factory, String input)
+  {
+    try {
+      return RangeCorpus.describe(factory.getRange(input));
+    }
+    catch (Exception e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+  }
+}
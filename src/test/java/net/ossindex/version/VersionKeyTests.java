@@ -0,0 +1,148 @@
+package net.ossindex.version;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.ossindex.version.impl.AetherVersion;
+import net.ossindex.version.impl.GemVersion;
+import net.ossindex.version.impl.NamedVersion;
+import net.ossindex.version.impl.Pep440Version;
+import net.ossindex.version.impl.SemanticVersion;
+import net.ossindex.version.impl.VersionImpl;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ensure version sort keys are in the same order as the versions.
+ *
+ * @author Ken Duck
+ */
+public class VersionKeyTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  private static final String[] EXTRA = {
+      "0.0.0", "1.0.0-0", "1.0.0-1", "1.0.0-9", "1.0.0-10", "1.0.0-01", "1.0.0-alpha", "1.0.0-alpha.1",
+      "1.0.0-alpha.beta", "1.0.0-beta", "1.0.0-beta.2", "1.0.0-beta.11", "1.0.0-rc.1", "1.0.0-RC.1",
+      "1.0.0-alpha-1", "1.0.0", "1.0.0.0", "1.0.0.1", "1.0.0.10", "1.0.1", "1.0.1-a", "255.0.0", "256.0.0",
+      "65536.1.1", "2147483647.0.0", "1.2.3+build.5", "1.0.0.4-sp1", "master", "release", "Release",
+      "trunk-\u00e9t\u00e9", "1.2GA"
+  };
+
+  @Test
+  public void testMatchesCompareTo() throws InvalidRangeException
+  {
+    List<IVersion> versions = versions();
+    byte[][] keys = new byte[versions.size()][];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = VersionKey.encode(versions.get(i));
+    }
+    int checked = 0;
+    for (int i = 0; i < keys.length; i++) {
+      IVersion v1 = versions.get(i);
+      for (int j = 0; j < keys.length; j++) {
+        IVersion v2 = versions.get(j);
+        if (!comparable(v1, v2)) {
+          continue;
+        }
+        int expected = Integer.signum(v1.compareTo(v2));
+        int actual = Integer.signum(VersionKey.compare(keys[i], keys[j]));
+        if (expected != actual) {
+          assertEquals(v1 + " vs " + v2, expected, actual);
+        }
+        checked++;
+      }
+    }
+    assertTrue(checked > 10000);
+  }
+
+  @Test
+  public void testNamedVersionsSortLast() throws InvalidRangeException
+  {
+    byte[] highest = VersionKey.encode(factory.getVersion("2147483647.2147483647.2147483647"));
+    assertTrue(VersionKey.compare(highest, VersionKey.encode(new NamedVersion("1.2GA"))) < 0);
+    assertTrue(VersionKey.compare(highest, VersionKey.encode(new NamedVersion("0"))) < 0);
+  }
+
+  @Test
+  public void testOtherVersions() throws Exception
+  {
+    byte[] named = VersionKey.encode(new NamedVersion("zzz"));
+    byte[] gem = VersionKey.encode(new GemVersion("1.2.3"));
+    byte[] pep = VersionKey.encode(new Pep440Version("1.2.3"));
+    byte[] impl = VersionKey.encode(new VersionImpl(1, 2, 3));
+    assertTrue(VersionKey.compare(named, gem) < 0);
+    assertTrue(VersionKey.compare(named, pep) < 0);
+    assertTrue(VersionKey.compare(named, impl) < 0);
+    // Grouped by type, then by string
+    assertTrue(VersionKey.compare(gem, pep) < 0);
+    assertTrue(VersionKey.compare(gem, VersionKey.encode(new GemVersion("1.2.4"))) < 0);
+    assertEquals(0, VersionKey.compare(pep, VersionKey.encode(new Pep440Version("1.2.3"))));
+    assertTrue(VersionKey.compare(VersionKey.encode(new AetherVersion("1.0")),
+        VersionKey.encode(new AetherVersion("1.0-SNAPSHOT"))) < 0);
+  }
+
+  @Test
+  public void testSort() throws InvalidRangeException
+  {
+    List<IVersion> versions = new ArrayList<IVersion>();
+    for (IVersion version : versions()) {
+      if (version instanceof SemanticVersion) {
+        versions.add(version);
+      }
+    }
+    Collections.shuffle(versions);
+    List<IVersion> expected = new ArrayList<IVersion>(versions);
+    Collections.sort(expected);
+    Collections.sort(versions, new Comparator<IVersion>()
+    {
+      @Override
+      public int compare(IVersion v1, IVersion v2)
+      {
+        return VersionKey.compare(VersionKey.encode(v1), VersionKey.encode(v2));
+      }
+    });
+    for (int i = 0; i < versions.size(); i++) {
+      assertEquals(0, expected.get(i).compareTo(versions.get(i)));
+    }
+  }
+
+  private static List<IVersion> versions() throws InvalidRangeException
+  {
+    List<IVersion> versions = RangeCorpus.probeVersions(RangeCorpus.parseAll());
+    for (String extra : EXTRA) {
+      versions.add(factory.getVersion(extra));
+    }
+    return versions;
+  }
+
+  /**
+   * compareTo is only a consistent order within each kind of version, and when
+   * pre-release identifiers are numbers or start with a letter.
+   */
+  private static boolean comparable(IVersion v1, IVersion v2)
+  {
+    if (v1 instanceof SemanticVersion && v2 instanceof SemanticVersion) {
+      return semverIdentifiers((SemanticVersion) v1) && semverIdentifiers((SemanticVersion) v2);
+    }
+    return v1 instanceof NamedVersion && v2 instanceof NamedVersion;
+  }
+
+  private static boolean semverIdentifiers(SemanticVersion version)
+  {
+    String pre = version.getPreRelease();
+    if (pre == null) {
+      return true;
+    }
+    for (String identifier : pre.split("\\.", -1)) {
+      if (!identifier.matches("[0-9]+|[A-Za-z].*")) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,190 @@
+package net.ossindex.version;
+
+import net.ossindex.version.impl.VersionErrorListener;
+import net.ossindex.version.impl.VersionListener;
+import net.ossindex.version.impl.VersionParsingEngine;
+import net.ossindex.version.parser.VersionLexer;
+import net.ossindex.version.parser.VersionParser;
+import net.ossindex.version.parser.VersionParser.RangeContext;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The two stage (SLL, then LL) engine must give exactly the results of a plain
+ * full LL parse.
+ *
+ * @author Ken Duck
+ */
+public class VersionParsingEngineTests
+{
+  @Test
+  public void testCorpusMatchesFullLL()
+  {
+    VersionParsingEngine engine = VersionParsingEngine.get();
+    long before = engine.getFallbackCount();
+    for (String input : RangeCorpus.INPUTS) {
+      assertEquals(input, describeFullLL(input), describeEngine(input));
+    }
+    long fallbacks = engine.getFallbackCount() - before;
+    // Make sure SLL is actually doing most of the work
+    assertTrue("fallbacks=" + fallbacks, fallbacks < RangeCorpus.INPUTS.length);
+  }
+
+  /**
+   * Named versions and postfixes used to be enough to send SLL back to LL, since
+   * the broken_range rule allows anything to follow a version.
+   */
+  @Test
+  public void testSllParsesWellFormedRanges()
+  {
+    VersionParsingEngine engine = VersionParsingEngine.get();
+    long before = engine.getFallbackCount();
+    for (String input : new String[] { "named", "1.2.3.4beta", "0.0.17-alpha.0", ">=1.2.3-beta <2",
+        "<1.9.3.484 | >=1.9.4.0 <2.0.0.353 | >=2.0.1.0 <2.1.0-preview.2" }) {
+      try {
+        engine.parse(input);
+      }
+      finally {
+        engine.release();
+      }
+      assertEquals(input, before, engine.getFallbackCount());
+    }
+  }
+
+  @Test
+  public void testBrokenRangeUsesFullLL()
+  {
+    VersionParsingEngine engine = VersionParsingEngine.get();
+    long before = engine.getFallbackCount();
+    try {
+      assertTrue(engine.parse("named&version").broken_range() != null);
+    }
+    finally {
+      engine.release();
+    }
+    assertEquals(before + 1, engine.getFallbackCount());
+  }
+
+  /**
+   * Building the range straight from the parse, without a tree, must give what
+   * walking the full LL tree gives.
+   */
+  @Test
+  public void testBuildMatchesTreeWalk()
+  {
+    for (String input : RangeCorpus.INPUTS) {
+      assertEquals(input, describeFullLL(input), describeBuild(input));
+    }
+  }
+
+  /**
+   * Error recovery leaves error nodes in the tree. Versions with gaps in them
+   * are still refused, and broken maven ranges still read by position.
+   */
+  @Test
+  public void testErrorRecoveredTrees() throws InvalidRangeException
+  {
+    VersionFactory factory = VersionFactory.getVersionFactory();
+    for (String input : new String[] { "6 .9||(", "6 .9||( .", "<6 .0>1C4<" }) {
+      try {
+        factory.getRange(input);
+        fail("Expected " + input + " to be rejected");
+      }
+      catch (InvalidRangeException e) {
+        // Expected
+      }
+    }
+    IVersionRange range = factory.getRange("(1.12 .]");
+    assertEquals(">1.12.0", range.toString());
+    assertTrue(range.hasErrors());
+  }
+
+  private static String describeBuild(String input)
+  {
+    VersionParsingEngine engine = VersionParsingEngine.get();
+    try {
+      StringBuilder sb = new StringBuilder();
+      for (boolean strict : new boolean[] { false, true }) {
+        try {
+          sb.append(RangeCorpus.describe(engine.build(input, strict).getRange()));
+        }
+        catch (Exception e) {
+          sb.append(e.getClass().getSimpleName()).append(": ").append(e.getMessage());
+        }
+        sb.append(" | ");
+      }
+      return describeErrors(sb, engine.getErrorListener());
+    }
+    finally {
+      engine.release();
+    }
+  }
+
+  private static String describeEngine(String input)
+  {
+    VersionParsingEngine engine = VersionParsingEngine.get();
+    try {
+      RangeContext context = engine.parse(input);
+      return describe(context, engine.getErrorListener());
+    }
+    catch (Exception e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+    finally {
+      engine.release();
+    }
+  }
+
+  private static String describeFullLL(String input)
+  {
+    try {
+      VersionErrorListener errorListener = new VersionErrorListener();
+      VersionLexer lexer = new VersionLexer(new ANTLRInputStream(input));
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(errorListener);
+      VersionParser parser = new VersionParser(new CommonTokenStream(lexer));
+      parser.removeErrorListeners();
+      parser.addErrorListener(errorListener);
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      return describe(parser.range(), errorListener);
+    }
+    catch (Exception e) {
+      return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+  }
+
+  /**
+   * Describe the parse as both the lenient and the strict listener see it, along
+   * with any syntax errors.
+   */
+  private static String describe(RangeContext context, VersionErrorListener errorListener)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (boolean strict : new boolean[] { false, true }) {
+      try {
+        VersionListener listener = new VersionListener(strict);
+        ParseTreeWalker.DEFAULT.walk(listener, context);
+        sb.append(RangeCorpus.describe(listener.getRange()));
+      }
+      catch (Exception e) {
+        sb.append(e.getClass().getSimpleName()).append(": ").append(e.getMessage());
+      }
+      sb.append(" | ");
+    }
+    return describeErrors(sb, errorListener);
+  }
+
+  private static String describeErrors(StringBuilder sb, VersionErrorListener errorListener)
+  {
+    return sb.append("syntaxErrors=").append(errorListener.getErrorCount()).append(" at ")
+        .append(errorListener.getFirstErrorPosition()).append(": ").append(errorListener.getFirstErrorMessage())
+        .toString();
+  }
+}
@@ -0,0 +1,224 @@
+package net.ossindex.version;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import net.ossindex.version.impl.AetherVersion;
+import net.ossindex.version.impl.GemVersion;
+import net.ossindex.version.impl.NamedVersion;
+import net.ossindex.version.impl.Pep440Version;
+import net.ossindex.version.impl.SemanticVersion;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the per-ecosystem version schemes, and choosing them by hint.
+ *
+ * @author Ken Duck
+ */
+public class VersionSchemeTests
+{
+  private static final VersionFactory factory = VersionFactory.getVersionFactory();
+
+  @Test
+  public void testNpmOrder() throws InvalidRangeException
+  {
+    checkAscending("npm", "1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-alpha.beta", "1.0.0-beta", "1.0.0-beta.2",
+        "1.0.0-beta.11", "1.0.0-rc.1", "1.0.0", "1.0.1", "1.10.0", "v2.0.0");
+    checkEqual("npm", "1.2.3", "=1.2.3", " v1.2.3 ", "1.2.3+build.5");
+  }
+
+  @Test
+  public void testNpmInvalid()
+  {
+    checkInvalid("npm", "1.0", "01.0.0", "1.0.0.0", "1.0.0-", "1.0.0-01", "1.0.0+", "1.0.0-a..b", "1.x", "");
+  }
+
+  @Test
+  public void testMavenOrder() throws InvalidRangeException
+  {
+    checkAscending("maven", "1.0-alpha-1", "1.0-beta", "1.0-RC1", "1.0-SNAPSHOT", "1.0", "1.0-sp1", "1.0.1", "1.10");
+    checkEqual("maven", "1", "1.0", "1.0.0", "1-ga", "1.0.FINAL");
+  }
+
+  /**
+   * The ordering example from PEP 440, with local labels added.
+   */
+  @Test
+  public void testPypiOrder() throws InvalidRangeException
+  {
+    checkAscending("pypi", "1.0.dev456", "1.0a1", "1.0a2.dev456", "1.0a12.dev456", "1.0a12", "1.0b1.dev456",
+        "1.0b2", "1.0b2.post345.dev456", "1.0b2.post345", "1.0rc1.dev456", "1.0rc1", "1.0", "1.0+abc.5",
+        "1.0+abc.7", "1.0+5", "1.0.post456.dev34", "1.0.post456", "1.0.15", "1.1.dev1", "1!0.1");
+    checkEqual("pypi", "1.0a1", "1.0.0a1", "v1.0-alpha.1", "1.0ALPHA1", "1.0a01");
+    checkEqual("pypi", "1.0.post0", "1.0-0", "1.0post", "1.0.r0", "1.0-rev");
+    checkEqual("pypi", "1.0rc1", "1.0c1", "1.0.pre1", "1.0-preview-1");
+    checkEqual("pypi", "1.0+abc.007", "1.0+ABC-7");
+  }
+
+  @Test
+  public void testPypiNormalized() throws InvalidRangeException
+  {
+    assertEquals("1.0a1", factory.getSchemeVersion("pypi", "v1.0-ALPHA.1").toString());
+    assertEquals("2!1.0rc2.post1.dev3+ubuntu.1", factory.getSchemeVersion("pypi", "2!1.0-c2-post1_dev3+Ubuntu-1").toString());
+    assertEquals("1.0.post2", factory.getSchemeVersion("pypi", "1.0-2").toString());
+  }
+
+  @Test
+  public void testPypiInvalid()
+  {
+    checkInvalid("pypi", "1.0+", "1.0-alpha-beta", "a1.0", "1.0.x", "");
+  }
+
+  @Test
+  public void testGemOrder() throws InvalidRangeException
+  {
+    checkAscending("gem", "0.9", "1.0.a", "1.0.a.1", "1.0.b1", "1.0.pre", "1.0-1", "1.0.rc1", "1", "1.0.1", "1.1",
+        "1.10", "2.a", "2");
+    checkEqual("gem", "1", "1.0", "1.0.0", " 1.0 ");
+    checkEqual("gem", "1.0.a", "1.a", "1.0.0.a.0");
+  }
+
+  @Test
+  public void testGemInvalid()
+  {
+    checkInvalid("gem", "a", "1..0", "1.0.", "1 0", "-1");
+  }
+
+  @Test
+  public void testStable() throws InvalidRangeException
+  {
+    assertTrue(factory.getSchemeVersion("pypi", "1.0.post1").isStable());
+    assertFalse(factory.getSchemeVersion("pypi", "1.0.dev1").isStable());
+    assertFalse(factory.getSchemeVersion("pypi", "1.0rc1").isStable());
+    assertTrue(factory.getSchemeVersion("gem", "1.2.3").isStable());
+    assertFalse(factory.getSchemeVersion("gem", "1.2.3.beta").isStable());
+  }
+
+  @Test
+  public void testNumbers() throws InvalidRangeException
+  {
+    IVersion version = factory.getSchemeVersion("pypi", "1!2.3.4.5rc1");
+    assertEquals(2, version.getMajor());
+    assertEquals(3, version.getMinor());
+    assertEquals(4, version.getPatch());
+    assertEquals(5, version.getBuild());
+
+    version = factory.getSchemeVersion("gem", "2.0.beta.3");
+    assertEquals(2, version.getMajor());
+    assertEquals(0, version.getMinor());
+    assertEquals(0, version.getPatch());
+  }
+
+  @Test
+  public void testHintChoosesScheme() throws InvalidRangeException
+  {
+    assertTrue(factory.getSchemeVersion("npm", "1.2.3") instanceof SemanticVersion);
+    assertTrue(factory.getSchemeVersion("MAVEN", "1.2.3") instanceof AetherVersion);
+    assertTrue(factory.getSchemeVersion("PyPI", "1.2.3") instanceof Pep440Version);
+    assertTrue(factory.getSchemeVersion("gem", "1.2.3") instanceof GemVersion);
+    assertNull(factory.getScheme("deb"));
+    assertNull(factory.getScheme(null));
+  }
+
+  @Test
+  public void testFallback() throws InvalidRangeException
+  {
+    assertEquals(factory.getVersion("1.2.3"), factory.getSchemeVersion(null, "1.2.3"));
+    assertEquals(factory.getVersion("1.2.3"), factory.getSchemeVersion("deb", "1.2.3"));
+    // Not valid semver, so the heuristic parser gets it
+    assertEquals(factory.getVersion("1.2"), factory.getSchemeVersion("npm", "1.2"));
+    assertTrue(factory.getSchemeVersion("gem", "master") instanceof NamedVersion);
+  }
+
+  /**
+   * getVersion ignores the scheme, so its versions stay inside the ranges from
+   * getRange.
+   */
+  @Test
+  public void testHintedVersionInRange() throws InvalidRangeException
+  {
+    IVersionRange range = factory.getRange(">=1.0.0 <2.0.0");
+    for (String hint : new String[] { "npm", "maven", "pypi", "python", "gem", "rubygems", "ruby", "deb", null }) {
+      IVersion version = factory.getVersion(hint, "1.2.3");
+      assertTrue(String.valueOf(hint), version instanceof SemanticVersion);
+      assertTrue(String.valueOf(hint), range.contains(version));
+      assertFalse(String.valueOf(hint), range.contains(factory.getVersion(hint, "2.0.1")));
+    }
+  }
+
+  @Test(expected = InvalidRangeException.class)
+  public void testStrictDoesNotFallBack() throws InvalidRangeException
+  {
+    VersionFactory.getStrictVersionFactory().getSchemeVersion("npm", "1.2");
+  }
+
+  @Test
+  public void testCustomScheme() throws InvalidRangeException
+  {
+    final IVersion fixed = new SemanticVersion(9, 9, 9);
+    IVersionScheme scheme = new IVersionScheme()
+    {
+      @Override
+      public Collection<String> getHints()
+      {
+        return Collections.singletonList("npm");
+      }
+
+      @Override
+      public IVersion parseVersion(String version)
+      {
+        return fixed;
+      }
+    };
+    VersionFactory custom = VersionFactory.builder().scheme(scheme).build();
+    assertSame(scheme, custom.getScheme("NPM"));
+    assertSame(fixed, custom.getSchemeVersion("npm", "1.0.0"));
+    assertTrue(custom.getSchemeVersion("maven", "1.0.0") instanceof AetherVersion);
+    // Other factories are unaffected
+    assertTrue(factory.getScheme("npm") != scheme);
+  }
+
+  private static void checkAscending(String hint, String... versions) throws InvalidRangeException
+  {
+    for (int i = 0; i < versions.length; i++) {
+      IVersion v1 = VersionFactory.getStrictVersionFactory().getSchemeVersion(hint, versions[i]);
+      for (int j = 0; j < versions.length; j++) {
+        IVersion v2 = VersionFactory.getStrictVersionFactory().getSchemeVersion(hint, versions[j]);
+        int expected = Integer.signum(Integer.compare(i, j));
+        assertEquals(versions[i] + " <=> " + versions[j], expected, Integer.signum(v1.compareTo(v2)));
+        assertEquals(versions[i] + " == " + versions[j], i == j, v1.equals(v2));
+      }
+    }
+  }
+
+  private static void checkEqual(String hint, String... versions) throws InvalidRangeException
+  {
+    IVersion first = VersionFactory.getStrictVersionFactory().getSchemeVersion(hint, versions[0]);
+    for (String s : versions) {
+      IVersion version = VersionFactory.getStrictVersionFactory().getSchemeVersion(hint, s);
+      assertEquals(versions[0] + " <=> " + s, 0, first.compareTo(version));
+      assertEquals(versions[0] + " == " + s, first, version);
+      assertEquals(versions[0] + " hash " + s, first.hashCode(), version.hashCode());
+    }
+  }
+
+  private static void checkInvalid(String hint, String... versions)
+  {
+    for (String s : versions) {
+      try {
+        VersionFactory.getStrictVersionFactory().getScheme(hint).parseVersion(s);
+        fail("Expected " + hint + " to reject '" + s + "'");
+      }
+      catch (InvalidRangeException e) {
+        // Expected
+      }
+    }
+  }
+}